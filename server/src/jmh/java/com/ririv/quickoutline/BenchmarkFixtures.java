@@ -0,0 +1,88 @@
+package com.ririv.quickoutline;
+
+import com.itextpdf.io.font.constants.StandardFonts;
+import com.itextpdf.kernel.font.PdfFont;
+import com.itextpdf.kernel.font.PdfFontFactory;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfOutline;
+import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.kernel.pdf.canvas.PdfCanvas;
+import com.itextpdf.kernel.pdf.navigation.PdfExplicitDestination;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * 基准测试用的输入，全部在内存中按固定种子生成，不依赖未提交的文件
+ */
+public final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * 目录页：每行为 "1.2 标题 ........ 页码"，标题、点引导符和页码分别写出，产生多个文本块
+     */
+    public static byte[] tocPdf(int pages, int linesPerPage) {
+        Random random = new Random(42);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PdfDocument pdfDoc = new PdfDocument(new PdfWriter(out))) {
+            PdfFont regular = PdfFontFactory.createFont(StandardFonts.HELVETICA);
+            PdfFont bold = PdfFontFactory.createFont(StandardFonts.HELVETICA_BOLD);
+            int pageRef = 1;
+            for (int p = 0; p < pages; p++) {
+                PdfCanvas canvas = new PdfCanvas(pdfDoc.addNewPage());
+                float y = 800;
+                for (int l = 0; l < linesPerPage; l++) {
+                    boolean chapter = l % 8 == 0;
+                    String title = (chapter ? "" : "    ") + (p + 1) + "." + l + " " + words(random, 2 + random.nextInt(5));
+                    pageRef += random.nextInt(4);
+                    y -= 18;
+                    canvas.beginText().setFontAndSize(chapter ? bold : regular, chapter ? 12 : 11).moveText(50, y)
+                            .showText(title).endText();
+                    canvas.beginText().setFontAndSize(regular, 11).moveText(360, y).showText(" . . . . . . . . . . ").endText();
+                    canvas.beginText().setFontAndSize(regular, 11).moveText(520, y).showText(Integer.toString(pageRef)).endText();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 带有 bookmarks 个书签（每章 9 个小节）的 PDF，写到 file
+     */
+    public static Path outlinePdf(Path file, int bookmarks) {
+        Random random = new Random(7);
+        try (PdfDocument pdfDoc = new PdfDocument(new PdfWriter(file.toString()))) {
+            int pages = Math.max(1, bookmarks / 10);
+            for (int i = 0; i < pages; i++) pdfDoc.addNewPage();
+            PdfOutline root = pdfDoc.getOutlines(false);
+            PdfOutline chapter = null;
+            for (int i = 0; i < bookmarks; i++) {
+                PdfOutline parent = i % 10 == 0 ? root : chapter;
+                PdfOutline outline = parent.addOutline(i + " " + words(random, 3));
+                outline.addDestination(PdfExplicitDestination.createFit(pdfDoc.getPage(1 + i % pages)));
+                if (i % 10 == 0) chapter = outline;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return file;
+    }
+
+    public static String words(Random random, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int w = 0; w < count; w++) {
+            if (w > 0) text.append(' ');
+            int length = 3 + random.nextInt(8);
+            text.append((char) ('A' + random.nextInt(26)));
+            for (int c = 1; c < length; c++) text.append((char) ('a' + random.nextInt(26)));
+        }
+        return text.toString();
+    }
+}
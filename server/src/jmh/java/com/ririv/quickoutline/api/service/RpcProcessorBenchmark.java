@@ -0,0 +1,87 @@
+package com.ririv.quickoutline.api.service;
+
+import com.google.gson.Gson;
+import com.ririv.quickoutline.BenchmarkFixtures;
+import com.ririv.quickoutline.api.service.impl.ApiServiceImpl;
+import com.ririv.quickoutline.service.WorkScheduler;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RpcProcessor.process 的完整路径：解析请求、分派、序列化响应
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RpcProcessorBenchmark {
+
+    @Param({"2000"})
+    public int bookmarks;
+
+    private final Gson gson = new Gson();
+    private WorkScheduler scheduler;
+    private RpcProcessor processor;
+    private Path dir;
+    private String placeholderRequest;
+    private String snapshotRequest;
+    private String pdf;
+    private String firstId;
+    private long version;
+
+    @Setup
+    public void setUp() throws IOException {
+        scheduler = new WorkScheduler(1);
+        processor = new RpcProcessor(new ApiServiceImpl(scheduler));
+        dir = Files.createTempDirectory("quickoutline-jmh");
+        pdf = BenchmarkFixtures.outlinePdf(dir.resolve("outline.pdf"), bookmarks).toString();
+        String opened = processor.process(request("open", "openOutlineSession", pdf, 0));
+        Map<?, ?> snapshot = (Map<?, ?>) gson.fromJson(opened, Map.class).get("result");
+        firstId = (String) ((Map<?, ?>) ((List<?>) snapshot.get("nodes")).get(0)).get("id");
+        version = ((Number) snapshot.get("version")).longValue();
+        placeholderRequest = request("p", "placeholder");
+        snapshotRequest = request("s", "getOutlineSnapshot", pdf);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        processor.process(request("close", "closeOutlineSession", pdf));
+        scheduler.shutdown();
+        Files.deleteIfExists(Path.of(pdf));
+        Files.deleteIfExists(dir);
+    }
+
+    private String request(String id, String method, Object... params) {
+        return gson.toJson(Map.of("id", id, "method", method, "params", Arrays.asList(params)));
+    }
+
+    @Benchmark
+    public String placeholder() {
+        return processor.process(placeholderRequest);
+    }
+
+    @Benchmark
+    public String snapshot() {
+        return processor.process(snapshotRequest);
+    }
+
+    /**
+     * 单个增量操作；请求体每次重建，因为它携带递增的基准版本号
+     */
+    @Benchmark
+    public String retitle() {
+        String retitleRequest = request("r", "applyOutlineOps", pdf, version,
+                List.of(Map.of("op", "retitle", "id", firstId, "title", "Renamed " + version)));
+        version++;
+        return processor.process(retitleRequest);
+    }
+}
@@ -0,0 +1,75 @@
+package com.ririv.quickoutline.model;
+
+import com.ririv.quickoutline.BenchmarkFixtures;
+import com.ririv.quickoutline.textProcess.OutlineTextCodec;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 书签树的构建与序列化：从目录文本解析、从线性列表建树、写回目录文本
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BookmarkBenchmark {
+
+    @Param({"1000", "20000"})
+    public int size;
+
+    private String outlineText;
+    private List<String> titles;
+    private int[] levels;
+    private Bookmark tree;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+        titles = new ArrayList<>(size);
+        levels = new int[size];
+        int level = 1;
+        for (int i = 0; i < size; i++) {
+            // 层级每次最多加深一级，与真实目录一致
+            level = i == 0 ? 1 : Math.max(1, Math.min(level + 1, level + random.nextInt(3) - 1));
+            levels[i] = Math.min(level, 5);
+            titles.add(i + " " + BenchmarkFixtures.words(random, 4));
+        }
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            try {
+                OutlineTextCodec.writeLine(text, levels[i], titles.get(i), i + 1);
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        }
+        outlineText = text.toString();
+        tree = buildTree();
+    }
+
+    @Benchmark
+    public Bookmark parseOutlineText() throws IOException {
+        return OutlineTextCodec.read(new StringReader(outlineText));
+    }
+
+    @Benchmark
+    public Bookmark buildTree() {
+        List<Bookmark> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(new Bookmark(titles.get(i), i + 1, levels[i]));
+        }
+        return Bookmark.convertListToBookmarkTree(list);
+    }
+
+    @Benchmark
+    public String writeOutlineText() {
+        return OutlineTextCodec.write(tree);
+    }
+}
@@ -0,0 +1,123 @@
+package com.ririv.quickoutline.pdfProcess.itextImpl;
+
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfPage;
+import com.itextpdf.kernel.pdf.PdfReader;
+import com.itextpdf.kernel.pdf.canvas.parser.PdfCanvasProcessor;
+import com.ririv.quickoutline.BenchmarkFixtures;
+import com.ririv.quickoutline.pdfProcess.itextImpl.model.CharacterPattern;
+import com.ririv.quickoutline.pdfProcess.itextImpl.model.LineWithMetadata;
+import com.ririv.quickoutline.pdfProcess.itextImpl.model.Style;
+import com.ririv.quickoutline.pdfProcess.itextImpl.model.TextBlock;
+import com.ririv.quickoutline.pdfProcess.itextImpl.model.TextChunk;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 目录提取流水线各阶段，输入为 20 页、每页 40 行的目录页。
+ * 除 parsePage 外各阶段的输入都在 Setup 中准备好，只测该阶段本身。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TocPipelineBenchmark {
+
+    private static final int PAGES = 20;
+    private static final int LINES_PER_PAGE = 40;
+
+    private PdfDocument pdfDoc;
+    private PdfPage firstPage;
+    private List<TextChunk> firstPageChunks;
+    private List<LineWithMetadata> allLines;
+    private List<TextBlock> allBlocks;
+    private Style dominantStyle;
+    private List<List<TextBlock>> blocksByPage;
+    private List<String> lineTexts;
+
+    @Setup
+    public void setUp() throws IOException {
+        byte[] pdf = BenchmarkFixtures.tocPdf(PAGES, LINES_PER_PAGE);
+        pdfDoc = new PdfDocument(new PdfReader(new ByteArrayInputStream(pdf)));
+        firstPage = pdfDoc.getPage(1);
+        allLines = new ArrayList<>();
+        for (int p = 1; p <= PAGES; p++) {
+            List<TextChunk> chunks = parse(pdfDoc.getPage(p));
+            if (p == 1) firstPageChunks = List.copyOf(chunks);
+            allLines.addAll(TextChunk.convertChunksToLines(chunks, pdfDoc.getPage(p), pdfDoc));
+        }
+        allBlocks = TextBlock.aggregateLinesIntoBlocks(allLines);
+        TocAnalyser analyser = new TocAnalyser();
+        dominantStyle = analyser.findDominantStyle(allBlocks);
+        blocksByPage = new ArrayList<>(allBlocks.stream()
+                .collect(Collectors.groupingBy(b -> b.getPrimaryLine().getPageNum()))
+                .values());
+        lineTexts = allLines.stream().map(LineWithMetadata::getTextContent).toList();
+    }
+
+    @TearDown
+    public void tearDown() {
+        pdfDoc.close();
+    }
+
+    private static List<TextChunk> parse(PdfPage page) {
+        MetadataTextExtractionStrategy strategy = new MetadataTextExtractionStrategy();
+        new PdfCanvasProcessor(strategy).processPageContent(page);
+        return strategy.getTextChunks();
+    }
+
+    /**
+     * PdfCanvasProcessor 解析一页，MetadataTextExtractionStrategy 处理其中的文本事件
+     */
+    @Benchmark
+    public List<TextChunk> parsePage() {
+        return parse(firstPage);
+    }
+
+    @Benchmark
+    public List<LineWithMetadata> convertChunksToLines() {
+        // 该方法会就地排序，每次传入新的副本
+        return TextChunk.convertChunksToLines(new ArrayList<>(firstPageChunks), firstPage, pdfDoc);
+    }
+
+    @Benchmark
+    public List<TextBlock> aggregateLinesIntoBlocks() {
+        return TextBlock.aggregateLinesIntoBlocks(allLines);
+    }
+
+    @Benchmark
+    public void reconstructBlockWithSpaces(Blackhole bh) {
+        for (TextBlock block : allBlocks) {
+            bh.consume(block.reconstructBlockWithSpaces());
+        }
+    }
+
+    @Benchmark
+    public Style findDominantStyle() {
+        return new TocAnalyser().findDominantStyle(allBlocks);
+    }
+
+    @Benchmark
+    public void findTocBlocksInPage(Blackhole bh) {
+        TocAnalyser analyser = new TocAnalyser();
+        for (List<TextBlock> pageBlocks : blocksByPage) {
+            bh.consume(analyser.findTocBlocksInPage(pageBlocks, dominantStyle));
+        }
+    }
+
+    @Benchmark
+    public void characterPattern(Blackhole bh) {
+        for (String text : lineTexts) {
+            bh.consume(new CharacterPattern(text).getPatternType());
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.ririv.quickoutline.api;
+
+import com.ririv.quickoutline.api.model.OutlineAck;
+import com.ririv.quickoutline.api.model.OutlineNode;
+import com.ririv.quickoutline.api.model.OutlineSnapshot;
+import com.ririv.quickoutline.api.model.RpcResponse;
+import com.ririv.quickoutline.api.service.RpcJson;
+import io.vertx.core.buffer.Buffer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 二进制模式（连接时 format=binary）下的响应编码。一个二进制帧包含一条或多条消息：
+ * <pre>
+ * message  := u32 长度（不含自身） | u8 类型 | 内容
+ * JSON     (0): RpcResponse 的 UTF-8 JSON，未专门编码的结果类型都走这里
+ * ERROR    (1): str id | str error
+ * STRING   (2): str id | str result
+ * SNAPSHOT (3): str id | snapshot
+ * ACK      (4): str id | varlong version | varint applied | u8 flags | [str error] | [snapshot]
+ *               flags: 1 = resync，2 = 有 error，4 = 有 snapshot
+ * snapshot := varlong version | varint 节点数 | node*
+ * node     := str id | str title | varint pageNum（0 为 null，否则 zigzag + 1）| varint level
+ * str      := varint (UTF-8 字节数 + 1，0 为 null) | UTF-8 字节
+ * </pre>
+ * 多字节整数为大端序，varint 为 LEB128。前端的解码见 src/lib/api/rpc.ts。
+ */
+public final class BinaryRpcCodec {
+
+    static final byte TYPE_JSON = 0;
+    static final byte TYPE_ERROR = 1;
+    static final byte TYPE_STRING = 2;
+    static final byte TYPE_SNAPSHOT = 3;
+    static final byte TYPE_ACK = 4;
+
+    private static final int FLAG_RESYNC = 1;
+    private static final int FLAG_ERROR = 2;
+    private static final int FLAG_SNAPSHOT = 4;
+
+    private BinaryRpcCodec() {
+    }
+
+    /**
+     * 把一条响应作为带长度前缀的消息追加到 buffer
+     */
+    public static void encode(RpcResponse response, Buffer buffer) {
+        int lengthPos = buffer.length();
+        buffer.appendInt(0); // 长度占位，写完内容后回填
+        if (response.error != null) {
+            buffer.appendByte(TYPE_ERROR);
+            writeString(buffer, response.id);
+            writeString(buffer, response.error);
+        } else if (response.result instanceof String text) {
+            buffer.appendByte(TYPE_STRING);
+            writeString(buffer, response.id);
+            writeString(buffer, text);
+        } else if (response.result instanceof OutlineSnapshot snapshot) {
+            buffer.appendByte(TYPE_SNAPSHOT);
+            writeString(buffer, response.id);
+            writeSnapshot(buffer, snapshot);
+        } else if (response.result instanceof OutlineAck ack) {
+            buffer.appendByte(TYPE_ACK);
+            writeString(buffer, response.id);
+            writeVarLong(buffer, ack.version);
+            writeVarLong(buffer, ack.applied);
+            int flags = (ack.resync ? FLAG_RESYNC : 0)
+                    | (ack.error != null ? FLAG_ERROR : 0)
+                    | (ack.snapshot != null ? FLAG_SNAPSHOT : 0);
+            buffer.appendByte((byte) flags);
+            if (ack.error != null) writeString(buffer, ack.error);
+            if (ack.snapshot != null) writeSnapshot(buffer, ack.snapshot);
+        } else {
+            buffer.appendByte(TYPE_JSON);
+            buffer.appendBytes(RpcJson.toJson(response).getBytes(StandardCharsets.UTF_8));
+        }
+        buffer.setInt(lengthPos, buffer.length() - lengthPos - 4);
+    }
+
+    /**
+     * 解码一个帧中的全部消息。JSON 类型的消息 result 为 Gson 的通用对象（Map/List/Double 等）
+     */
+    public static List<RpcResponse> decode(Buffer buffer) {
+        List<RpcResponse> responses = new ArrayList<>();
+        int[] pos = {0};
+        while (pos[0] < buffer.length()) {
+            int length = buffer.getInt(pos[0]);
+            int end = pos[0] + 4 + length;
+            pos[0] += 4;
+            byte type = buffer.getByte(pos[0]++);
+            switch (type) {
+                case TYPE_ERROR -> responses.add(RpcResponse.error(readString(buffer, pos), readString(buffer, pos)));
+                case TYPE_STRING -> responses.add(RpcResponse.success(readString(buffer, pos), readString(buffer, pos)));
+                case TYPE_SNAPSHOT -> responses.add(RpcResponse.success(readString(buffer, pos), readSnapshot(buffer, pos)));
+                case TYPE_ACK -> {
+                    String id = readString(buffer, pos);
+                    OutlineAck ack = new OutlineAck();
+                    ack.version = readVarLong(buffer, pos);
+                    ack.applied = (int) readVarLong(buffer, pos);
+                    int flags = buffer.getByte(pos[0]++);
+                    ack.resync = (flags & FLAG_RESYNC) != 0;
+                    if ((flags & FLAG_ERROR) != 0) ack.error = readString(buffer, pos);
+                    if ((flags & FLAG_SNAPSHOT) != 0) ack.snapshot = readSnapshot(buffer, pos);
+                    responses.add(RpcResponse.success(id, ack));
+                }
+                case TYPE_JSON -> responses.add(RpcJson.GSON.fromJson(
+                        buffer.getString(pos[0], end, StandardCharsets.UTF_8.name()), RpcResponse.class));
+                default -> throw new IllegalArgumentException("Unknown message type: " + type);
+            }
+            pos[0] = end;
+        }
+        return responses;
+    }
+
+    private static void writeSnapshot(Buffer buffer, OutlineSnapshot snapshot) {
+        writeVarLong(buffer, snapshot.version);
+        List<OutlineNode> nodes = snapshot.nodes == null ? List.of() : snapshot.nodes;
+        writeVarLong(buffer, nodes.size());
+        for (OutlineNode node : nodes) {
+            writeString(buffer, node.id);
+            writeString(buffer, node.title);
+            writeVarLong(buffer, node.pageNum == null ? 0 : zigzag(node.pageNum) + 1);
+            writeVarLong(buffer, node.level);
+        }
+    }
+
+    private static OutlineSnapshot readSnapshot(Buffer buffer, int[] pos) {
+        long version = readVarLong(buffer, pos);
+        int count = (int) readVarLong(buffer, pos);
+        List<OutlineNode> nodes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String id = readString(buffer, pos);
+            String title = readString(buffer, pos);
+            long page = readVarLong(buffer, pos);
+            Integer pageNum = page == 0 ? null : unzigzag(page - 1);
+            int level = (int) readVarLong(buffer, pos);
+            nodes.add(new OutlineNode(id, title, pageNum, level));
+        }
+        return new OutlineSnapshot(version, nodes);
+    }
+
+    private static void writeString(Buffer buffer, String value) {
+        if (value == null) {
+            buffer.appendByte((byte) 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(buffer, bytes.length + 1L);
+        buffer.appendBytes(bytes);
+    }
+
+    private static String readString(Buffer buffer, int[] pos) {
+        long length = readVarLong(buffer, pos);
+        if (length == 0) return null;
+        int start = pos[0];
+        pos[0] += (int) (length - 1);
+        return buffer.getString(start, pos[0], StandardCharsets.UTF_8.name());
+    }
+
+    private static void writeVarLong(Buffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.appendByte((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.appendByte((byte) value);
+    }
+
+    private static long readVarLong(Buffer buffer, int[] pos) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.getByte(pos[0]++);
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+    }
+
+    private static long zigzag(int value) {
+        return Integer.toUnsignedLong((value << 1) ^ (value >> 31));
+    }
+
+    private static int unzigzag(long value) {
+        return (int) (value >>> 1) ^ -(int) (value & 1);
+    }
+}
@@ -0,0 +1,106 @@
+package com.ririv.quickoutline.api;
+
+import io.vertx.core.buffer.Buffer;
+
+import java.io.Writer;
+
+/**
+ * 把字符按 UTF-8 直接编码进 Vert.x Buffer，供 JsonWriter 流式输出，
+ * 不经过中间的 String 与 byte[]。编码先写入固定大小的暂存区，满了再整体追加到 Buffer。
+ * 非法的单个代理字符编码为 '?'，与 String.getBytes(UTF_8) 一致。
+ */
+final class BufferWriter extends Writer {
+
+    private final Buffer buffer;
+    private final byte[] staging = new byte[8192];
+    private int pos;
+    private char pendingHighSurrogate; // 上次写入以高代理结尾时暂存
+
+    BufferWriter(Buffer buffer) {
+        this.buffer = buffer;
+    }
+
+    @Override
+    public void write(int c) {
+        encode((char) c);
+    }
+
+    @Override
+    public void write(char[] chars, int off, int len) {
+        for (int i = off, end = off + len; i < end; i++) {
+            encode(chars[i]);
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) {
+        for (int i = off, end = off + len; i < end; i++) {
+            encode(str.charAt(i));
+        }
+    }
+
+    @Override
+    public Writer append(CharSequence csq, int start, int end) {
+        for (int i = start; i < end; i++) {
+            encode(csq.charAt(i));
+        }
+        return this;
+    }
+
+    private void encode(char c) {
+        if (pos > staging.length - 4) {
+            drain();
+        }
+        if (pendingHighSurrogate != 0) {
+            char high = pendingHighSurrogate;
+            pendingHighSurrogate = 0;
+            if (Character.isLowSurrogate(c)) {
+                int cp = Character.toCodePoint(high, c);
+                staging[pos++] = (byte) (0xF0 | (cp >> 18));
+                staging[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                staging[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                staging[pos++] = (byte) (0x80 | (cp & 0x3F));
+                return;
+            }
+            staging[pos++] = '?';
+            encode(c);
+            return;
+        }
+        if (c < 0x80) {
+            staging[pos++] = (byte) c;
+        } else if (c < 0x800) {
+            staging[pos++] = (byte) (0xC0 | (c >> 6));
+            staging[pos++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c)) {
+            pendingHighSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+            staging[pos++] = '?';
+        } else {
+            staging[pos++] = (byte) (0xE0 | (c >> 12));
+            staging[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            staging[pos++] = (byte) (0x80 | (c & 0x3F));
+        }
+    }
+
+    private void drain() {
+        if (pos > 0) {
+            buffer.appendBytes(staging, 0, pos);
+            pos = 0;
+        }
+    }
+
+    @Override
+    public void flush() {
+        drain();
+    }
+
+    @Override
+    public void close() {
+        if (pendingHighSurrogate != 0) {
+            pendingHighSurrogate = 0;
+            if (pos > staging.length - 4) drain();
+            staging[pos++] = '?';
+        }
+        drain();
+    }
+}
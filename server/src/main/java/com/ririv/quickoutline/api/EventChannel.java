@@ -0,0 +1,191 @@
+package com.ririv.quickoutline.api;
+
+import com.google.gson.JsonObject;
+import com.ririv.quickoutline.api.service.RpcJson;
+import io.vertx.core.Context;
+import io.vertx.core.http.ServerWebSocket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 向前端推送事件的通道，遵守 WebSocket 写队列的背压：
+ * <ul>
+ *     <li>进度事件 {@link #progress}：同一类型在窗口内只保留最新值，写队列满时继续合并，直到 drain</li>
+ *     <li>普通事件 {@link #send}：排队发送，排队过多时丢弃最早的普通事件</li>
+ *     <li>终止事件 {@link #sendTerminal}（如任务完成/失败）：一定送达，发送前先发出已合并的进度</li>
+ * </ul>
+ * 各方法可在任意线程调用，payload 在调用线程上用 Gson 序列化；队列只在 WebSocket 的 Context 上访问。
+ */
+public class EventChannel {
+    private static final Logger log = LoggerFactory.getLogger(EventChannel.class);
+
+    static final long DEFAULT_PROGRESS_WINDOW_MILLIS = 100;
+    static final int MAX_QUEUED_EVENTS = 1024;
+
+    private record Pending(String type, String json, boolean terminal) {
+    }
+
+    private final ServerWebSocket ws;
+    private final Context context;
+    private final long progressWindowMillis;
+
+    // 按类型只保留最新的进度，调用线程直接覆盖，不为每个进度事件向 Event Loop 提交任务
+    private final Map<String, String> latestProgress = new ConcurrentHashMap<>();
+    private final AtomicBoolean progressFlushScheduled = new AtomicBoolean();
+
+    // 以下只在 context 上访问
+    private final ArrayDeque<Pending> queue = new ArrayDeque<>();
+    private int queuedDroppable;
+    private boolean waitingForDrain;
+
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder merged = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    public EventChannel(ServerWebSocket ws, Context context) {
+        this(ws, context, DEFAULT_PROGRESS_WINDOW_MILLIS);
+    }
+
+    public EventChannel(ServerWebSocket ws, Context context, long progressWindowMillis) {
+        this.ws = ws;
+        this.context = context;
+        this.progressWindowMillis = progressWindowMillis;
+        ws.drainHandler(v -> {
+            waitingForDrain = false;
+            moveProgressToQueue();
+            pump();
+        });
+    }
+
+    public void progress(String type, Object payload) {
+        if (latestProgress.put(type, toJson(type, payload)) != null) {
+            merged.increment();
+        }
+        if (progressFlushScheduled.compareAndSet(false, true)) {
+            context.runOnContext(v -> context.owner().setTimer(progressWindowMillis, id -> flushProgress()));
+        }
+    }
+
+    public void send(String type, Object payload) {
+        enqueue(type, toJson(type, payload), false);
+    }
+
+    public void sendTerminal(String type, Object payload) {
+        enqueue(type, toJson(type, payload), true);
+    }
+
+    /**
+     * 发送已由 {@link #toJson} 序列化的事件，广播时同一消息只序列化一次
+     */
+    public void sendSerialized(String type, String json, boolean terminal) {
+        enqueue(type, json, terminal);
+    }
+
+    public long getSentCount() {
+        return sent.sum();
+    }
+
+    public long getMergedCount() {
+        return merged.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public void close() {
+        context.runOnContext(v -> {
+            if (!queue.isEmpty() || !latestProgress.isEmpty()) {
+                log.info("Event channel closed with {} queued and {} progress events unsent", queue.size(), latestProgress.size());
+            }
+            queue.clear();
+            queuedDroppable = 0;
+            latestProgress.clear();
+            log.debug("Event channel stats: sent {}, merged {}, dropped {}", sent.sum(), merged.sum(), dropped.sum());
+        });
+    }
+
+    public static String toJson(String type, Object payload) {
+        JsonObject event = new JsonObject();
+        event.addProperty("type", type);
+        event.add("payload", RpcJson.GSON.toJsonTree(payload));
+        return RpcJson.GSON.toJson(event);
+    }
+
+    private void enqueue(String type, String json, boolean terminal) {
+        context.runOnContext(v -> {
+            if (terminal) {
+                moveProgressToQueue(); // 保证进度事件不会晚于终止事件到达
+            } else if (queuedDroppable >= MAX_QUEUED_EVENTS) {
+                dropOldestDroppable();
+            }
+            add(new Pending(type, json, terminal));
+            pump();
+        });
+    }
+
+    private void flushProgress() {
+        progressFlushScheduled.set(false);
+        if (waitingForDrain) {
+            return; // 写队列已满，进度继续合并，drain 后再发
+        }
+        moveProgressToQueue();
+        pump();
+    }
+
+    private void moveProgressToQueue() {
+        for (String type : latestProgress.keySet()) {
+            String json = latestProgress.remove(type);
+            if (json == null) continue;
+            if (queuedDroppable >= MAX_QUEUED_EVENTS) {
+                dropOldestDroppable();
+            }
+            add(new Pending(type, json, false));
+        }
+    }
+
+    private void add(Pending pending) {
+        queue.add(pending);
+        if (!pending.terminal()) queuedDroppable++;
+    }
+
+    private void dropOldestDroppable() {
+        Iterator<Pending> it = queue.iterator();
+        while (it.hasNext()) {
+            Pending pending = it.next();
+            if (!pending.terminal()) {
+                it.remove();
+                queuedDroppable--;
+                dropped.increment();
+                log.debug("Event queue full, dropped event: {}", pending.type());
+                return;
+            }
+        }
+    }
+
+    private void pump() {
+        while (!queue.isEmpty()) {
+            if (ws.isClosed()) {
+                queue.clear();
+                queuedDroppable = 0;
+                return;
+            }
+            if (ws.writeQueueFull()) {
+                waitingForDrain = true;
+                return;
+            }
+            Pending pending = queue.poll();
+            if (!pending.terminal()) queuedDroppable--;
+            log.debug("Pushing event: {}", pending.type());
+            ws.writeFinalTextFrame(pending.json());
+            sent.increment();
+        }
+    }
+}
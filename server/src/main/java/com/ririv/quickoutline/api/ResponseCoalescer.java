@@ -0,0 +1,127 @@
+package com.ririv.quickoutline.api;
+
+import io.vertx.core.Context;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.ServerWebSocket;
+import io.vertx.core.http.WebSocketFrame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 合并一小段时间窗口内完成的单个响应，以一个帧发送，减少帧数。
+ * JSON 模式下合并为 JSON 数组；二进制模式下消息自带长度前缀，直接拼接。
+ * 窗口由前端在连接时通过 coalesceMs 查询参数指定，为 0 时不合并。
+ * 所有状态只在 WebSocket 所属的 Context 上访问，无需加锁。
+ * 超过 FRAGMENT_SIZE 的消息不参与合并，拆成多个分片帧发送，避免一次写出整个大帧。
+ */
+class ResponseCoalescer {
+
+    static final long MAX_WINDOW_MILLIS = 1000;
+    private static final int MAX_PENDING = 256; // 积压过多时立即发送
+    static final int FRAGMENT_SIZE = 64 * 1024;
+
+    private final ServerWebSocket ws;
+    private final Context context;
+    private final long windowMillis;
+    private final boolean binary;
+    private final List<Buffer> pending = new ArrayList<>();
+    private boolean flushScheduled;
+
+    ResponseCoalescer(ServerWebSocket ws, Context context, long windowMillis, boolean binary) {
+        this.ws = ws;
+        this.context = context;
+        this.windowMillis = windowMillis;
+        this.binary = binary;
+    }
+
+    /**
+     * 解析 coalesceMs 查询参数，缺省或非法时为 0
+     */
+    static long parseWindow(String query) {
+        String value = WebSocketRpcHandler.queryParam(query, "coalesceMs");
+        if (value == null) return 0;
+        try {
+            return Math.max(0, Math.min(Long.parseLong(value), MAX_WINDOW_MILLIS));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    // 单个已序列化的响应，可能被合并
+    void send(Buffer response) {
+        context.runOnContext(v -> {
+            if (windowMillis <= 0 || response.length() > FRAGMENT_SIZE) {
+                write(response);
+                return;
+            }
+            pending.add(response);
+            if (pending.size() >= MAX_PENDING) {
+                flush();
+            } else if (!flushScheduled) {
+                flushScheduled = true;
+                context.owner().setTimer(windowMillis, id -> flush());
+            }
+        });
+    }
+
+    // 批量响应已是一个完整的帧内容，直接发送
+    void sendFrame(Buffer frame) {
+        context.runOnContext(v -> write(frame));
+    }
+
+    private void flush() {
+        flushScheduled = false;
+        if (pending.isEmpty()) return;
+        if (pending.size() == 1) {
+            write(pending.get(0));
+        } else if (binary) {
+            int length = 0;
+            for (Buffer response : pending) length += response.length();
+            Buffer messages = Buffer.buffer(length);
+            for (Buffer response : pending) messages.appendBuffer(response);
+            write(messages);
+        } else {
+            int length = pending.size() + 1;
+            for (Buffer response : pending) length += response.length();
+            Buffer array = Buffer.buffer(length).appendByte((byte) '[');
+            for (int i = 0; i < pending.size(); i++) {
+                if (i > 0) array.appendByte((byte) ',');
+                array.appendBuffer(pending.get(i));
+            }
+            write(array.appendByte((byte) ']'));
+        }
+        pending.clear();
+    }
+
+    private void write(Buffer message) {
+        if (ws.isClosed()) return;
+        if (binary) {
+            writeBinary(message);
+            return;
+        }
+        if (message.length() <= FRAGMENT_SIZE) {
+            ws.writeFinalTextFrame(message.toString());
+            return;
+        }
+        // 公开 API 只能由 String 创建文本帧，因此首帧为空的非最终文本帧，内容都放在后续的延续帧中
+        ws.writeFrame(WebSocketFrame.textFrame("", false));
+        for (int start = 0; start < message.length(); start += FRAGMENT_SIZE) {
+            int end = Math.min(start + FRAGMENT_SIZE, message.length());
+            ws.writeFrame(WebSocketFrame.continuationFrame(message.slice(start, end), end == message.length()));
+        }
+    }
+
+    private void writeBinary(Buffer message) {
+        if (message.length() <= FRAGMENT_SIZE) {
+            ws.writeFinalBinaryFrame(message);
+            return;
+        }
+        for (int start = 0; start < message.length(); start += FRAGMENT_SIZE) {
+            int end = Math.min(start + FRAGMENT_SIZE, message.length());
+            Buffer fragment = message.slice(start, end);
+            boolean last = end == message.length();
+            ws.writeFrame(start == 0 ? WebSocketFrame.binaryFrame(fragment, false) : WebSocketFrame.continuationFrame(fragment, last));
+        }
+    }
+}
@@ -1,19 +1,29 @@
 package com.ririv.quickoutline.api;
 
+import com.google.gson.stream.JsonWriter;
+import com.ririv.quickoutline.api.model.RpcResponse;
+import com.ririv.quickoutline.api.service.RpcDispatcher;
+import com.ririv.quickoutline.api.service.RpcJson;
 import com.ririv.quickoutline.api.service.RpcProcessor;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.http.ServerWebSocket;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
 public class WebSocketRpcHandler implements Handler<ServerWebSocket> {
     private static final Logger log = LoggerFactory.getLogger(WebSocketRpcHandler.class);
-    private final RpcProcessor processor;
+    private static final int INITIAL_BUFFER_SIZE = 512;
+    private final RpcDispatcher dispatcher;
     private final WebSocketSessionManager sessionManager;
 
-    public WebSocketRpcHandler(RpcProcessor processor, WebSocketSessionManager sessionManager) {
-        this.processor = processor;
+    public WebSocketRpcHandler(RpcDispatcher dispatcher, WebSocketSessionManager sessionManager) {
+        this.dispatcher = dispatcher;
         this.sessionManager = sessionManager;
     }
 
@@ -23,34 +33,69 @@ public class WebSocketRpcHandler implements Handler<ServerWebSocket> {
              return; 
         }
         log.info("Tauri connected via WebSocket");
-        sessionManager.setSession(ws);
+        String sessionId = sessionManager.register(ws);
         
+        // format=binary 时响应使用 BinaryRpcCodec 编码，请求仍为 JSON 文本
+        boolean binary = "binary".equals(queryParam(ws.query(), "format"));
+        ResponseCoalescer coalescer = new ResponseCoalescer(ws, Vertx.currentContext(), ResponseCoalescer.parseWindow(ws.query()), binary);
         ws.textMessageHandler(text -> {
             log.info("Received WebSocket message: {}", text);
-            
-            // Offload to worker thread to avoid blocking Event Loop
-            Vertx.currentContext().owner().executeBlocking(() -> {
-                try {
-                    return processor.process(text);
-                } catch (Exception e) {
-                    log.error("RPC Processing Error", e);
-                    throw new RuntimeException(e);
+
+            // 请求在虚拟线程上并发执行，不阻塞 Event Loop；响应按完成顺序写回，前端按 id 匹配
+            boolean batch = RpcProcessor.isBatch(text);
+            dispatcher.dispatchFrame(text, sessionId).whenComplete((responses, err) -> {
+                if (err != null) {
+                    log.error("RPC Execution Failed", err);
+                    return;
                 }
-            }).onComplete(res -> {
-                if (res.succeeded()) {
-                    String response = (String) res.result();
-                    log.info("Sending WebSocket response: {}", response);
-                    ws.writeFinalTextFrame(response);
+                // 在完成请求的工作线程上序列化，Event Loop 只负责写出
+                Buffer message = binary ? serializeBinary(responses) : serialize(responses, batch);
+                log.debug("Sending WebSocket response: {} bytes", message.length());
+                if (batch) {
+                    coalescer.sendFrame(message);
                 } else {
-                    log.error("RPC Execution Failed", res.cause());
+                    coalescer.send(message);
                 }
             });
         });
         
         ws.closeHandler(v -> {
-            log.info("Tauri WebSocket disconnected");
-            sessionManager.clearSession();
+            List<String> cancelled = sessionManager.unregister(sessionId);
+            log.info("Tauri WebSocket disconnected, {} running jobs cancelled", cancelled.size());
         });
         ws.exceptionHandler(e -> log.error("WebSocket error", e));
     }
+
+    static Buffer serializeBinary(List<RpcResponse> responses) {
+        Buffer buffer = Buffer.buffer(INITIAL_BUFFER_SIZE);
+        for (RpcResponse response : responses) {
+            BinaryRpcCodec.encode(response, buffer);
+        }
+        return buffer;
+    }
+
+    static String queryParam(String query, String name) {
+        if (query == null) return null;
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0 && pair.regionMatches(0, name, 0, eq) && eq == name.length()) {
+                return pair.substring(eq + 1);
+            }
+        }
+        return null;
+    }
+
+    static Buffer serialize(List<RpcResponse> responses, boolean asArray) {
+        Buffer buffer = Buffer.buffer(INITIAL_BUFFER_SIZE);
+        try (JsonWriter json = new JsonWriter(new BufferWriter(buffer))) {
+            if (asArray) json.beginArray();
+            for (RpcResponse response : responses) {
+                RpcJson.write(response, json);
+            }
+            if (asArray) json.endArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // BufferWriter 不会抛出
+        }
+        return buffer;
+    }
 }
\ No newline at end of file
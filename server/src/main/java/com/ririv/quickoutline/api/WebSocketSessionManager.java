@@ -1,35 +1,125 @@
 package com.ririv.quickoutline.api;
 
+import io.vertx.core.Vertx;
 import io.vertx.core.http.ServerWebSocket;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 多客户端的会话注册表：每个 WebSocket 连接一个会话，各自有自己的 EventChannel。
+ * 事件可以发给某个任务的所属会话，或广播给所有会话（只序列化一次）。
+ * 会话断开时取消它拥有的任务。注册/注销只是并发 Map 的增删，不会阻塞 Event Loop。
+ */
 public class WebSocketSessionManager {
     private static final Logger log = LoggerFactory.getLogger(WebSocketSessionManager.class);
-    private ServerWebSocket currentSession;
 
-    public void setSession(ServerWebSocket ws) {
-        this.currentSession = ws;
+    private final Map<String, EventChannel> sessions = new ConcurrentHashMap<>();
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final AtomicLong sessionCounter = new AtomicLong();
+
+    private record Job(String sessionId, Runnable cancel) {
+    }
+
+    /**
+     * 在 WebSocket 所属的 Event Loop 上调用，返回新会话的 id。
+     * 会话 id 只在服务端使用：请求经 RpcRequest.sessionId 带上它，任务据此登记所属会话
+     */
+    public String register(ServerWebSocket ws) {
+        String sessionId = "s" + sessionCounter.incrementAndGet();
+        EventChannel channel = new EventChannel(ws, Vertx.currentContext());
+        sessions.put(sessionId, channel);
+        log.debug("Session {} registered, {} active", sessionId, sessions.size());
+        return sessionId;
     }
 
-    public void clearSession() {
-        this.currentSession = null;
+    /**
+     * 注销会话，释放并取消它拥有的任务
+     * @return 被取消的任务 id
+     */
+    public List<String> unregister(String sessionId) {
+        EventChannel channel = sessions.remove(sessionId);
+        if (channel != null) {
+            channel.close();
+        }
+        List<String> cancelled = new ArrayList<>();
+        jobs.forEach((jobId, job) -> {
+            if (job.sessionId().equals(sessionId) && jobs.remove(jobId, job)) {
+                cancelled.add(jobId);
+                job.cancel().run();
+            }
+        });
+        log.debug("Session {} unregistered, {} active, {} jobs cancelled", sessionId, sessions.size(), cancelled.size());
+        return cancelled;
     }
 
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * 登记 sessionId 拥有的任务，会话断开时调用 cancel（在 Event Loop 上，不能阻塞）。
+     * 会话已经断开时立即取消；任务结束后须调用 releaseJob
+     */
+    public void claimJob(String jobId, String sessionId, Runnable cancel) {
+        Job job = new Job(sessionId, cancel);
+        jobs.put(jobId, job);
+        // 先登记再检查：与 unregister 并发时，二者中恰好一方能移除并取消
+        if (!sessions.containsKey(sessionId) && jobs.remove(jobId, job)) {
+            log.debug("Session {} already closed, job {} cancelled", sessionId, jobId);
+            cancel.run();
+        }
+    }
+
+    public void releaseJob(String jobId) {
+        jobs.remove(jobId);
+    }
+
+    /**
+     * 广播给所有会话
+     */
     public void sendEvent(String type, Object payload) {
-        if (currentSession != null && !currentSession.isClosed()) {
-            String json = String.format("{\"type\": \"%s\", \"payload\": %s}", type, payload); // Simple JSON for now, careful with payload escaping
-            // Better use Gson if payload is complex object
-            log.info("Pushing event: {}", json);
-            currentSession.writeFinalTextFrame(json);
-        } else {
+        Collection<EventChannel> channels = sessions.values();
+        if (channels.isEmpty()) {
             log.warn("No active WebSocket session to push event: {}", type);
+            return;
+        }
+        String json = EventChannel.toJson(type, payload);
+        for (EventChannel channel : channels) {
+            channel.sendSerialized(type, json, false);
+        }
+    }
+
+    /**
+     * 高频进度，发给任务的所属会话；会话已断开时直接忽略
+     */
+    public void sendProgress(String jobId, String type, Object payload) {
+        EventChannel channel = channelOfJob(jobId);
+        if (channel != null) {
+            channel.progress(type, payload);
         }
     }
-    
-    public void sendJson(String json) {
-        if (currentSession != null && !currentSession.isClosed()) {
-            currentSession.writeFinalTextFrame(json);
+
+    /**
+     * 任务完成、失败等必须送达的事件，发给任务的所属会话
+     */
+    public void sendTerminalEvent(String jobId, String type, Object payload) {
+        EventChannel channel = channelOfJob(jobId);
+        if (channel != null) {
+            channel.sendTerminal(type, payload);
+        } else {
+            log.warn("Owner of job {} is gone, event dropped: {}", jobId, type);
         }
     }
+
+    private EventChannel channelOfJob(String jobId) {
+        Job job = jobs.get(jobId);
+        return job == null ? null : sessions.get(job.sessionId());
+    }
 }
@@ -0,0 +1,27 @@
+package com.ririv.quickoutline.api.model;
+
+import java.util.List;
+
+/**
+ * 已打开的文档在磁盘上变化后重新加载的结果，也作为 documentChanged 事件推送
+ */
+public class DocumentChange {
+    public String handle;
+    public String filePath;
+    public int pageCount;
+    public int reusedPages; // 指纹未变、沿用原页面模型的页数
+    public int reparsedPages;
+    public List<String> toc; // 之前提取过时为重新提取的目录，否则为 null
+    public long millis;
+
+    public DocumentChange(String handle, String filePath, int pageCount, int reusedPages, int reparsedPages,
+                          List<String> toc, long millis) {
+        this.handle = handle;
+        this.filePath = filePath;
+        this.pageCount = pageCount;
+        this.reusedPages = reusedPages;
+        this.reparsedPages = reparsedPages;
+        this.toc = toc;
+        this.millis = millis;
+    }
+}
@@ -0,0 +1,16 @@
+package com.ririv.quickoutline.api.model;
+
+/**
+ * openDocument 的结果：之后的文档调用以 handle 引用该文档
+ */
+public class DocumentInfo {
+    public String handle;
+    public String filePath;
+    public int pageCount;
+
+    public DocumentInfo(String handle, String filePath, int pageCount) {
+        this.handle = handle;
+        this.filePath = filePath;
+        this.pageCount = pageCount;
+    }
+}
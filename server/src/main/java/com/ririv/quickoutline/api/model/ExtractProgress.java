@@ -0,0 +1,19 @@
+package com.ririv.quickoutline.api.model;
+
+/**
+ * extractProgress 事件：extractToc 的逐页进度，只推送给发起提取的会话。
+ * 提取过程中的进度按最新值合并、可能被丢弃；finished 为 true 的最后一个事件一定送达
+ */
+public class ExtractProgress {
+    public String requestId; // 发起提取的 RpcRequest.id
+    public int donePages;
+    public int totalPages;
+    public boolean finished;
+
+    public ExtractProgress(String requestId, int donePages, int totalPages, boolean finished) {
+        this.requestId = requestId;
+        this.donePages = donePages;
+        this.totalPages = totalPages;
+        this.finished = finished;
+    }
+}
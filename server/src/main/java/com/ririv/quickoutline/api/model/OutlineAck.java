@@ -0,0 +1,30 @@
+package com.ririv.quickoutline.api.model;
+
+/**
+ * 增量操作的确认。正常情况下只返回应用后的版本号；
+ * 基准版本不一致或某个操作失败时 resync 为 true，并附带完整快照供前端重建。
+ */
+public class OutlineAck {
+    public long version;
+    public int applied;
+    public boolean resync;
+    public String error;
+    public OutlineSnapshot snapshot;
+
+    public static OutlineAck ok(long version, int applied) {
+        OutlineAck ack = new OutlineAck();
+        ack.version = version;
+        ack.applied = applied;
+        return ack;
+    }
+
+    public static OutlineAck resync(OutlineSnapshot snapshot, int applied, String error) {
+        OutlineAck ack = new OutlineAck();
+        ack.version = snapshot.version;
+        ack.applied = applied;
+        ack.resync = true;
+        ack.error = error;
+        ack.snapshot = snapshot;
+        return ack;
+    }
+}
@@ -0,0 +1,18 @@
+package com.ririv.quickoutline.api.model;
+
+/**
+ * 快照中的一个节点。快照按先序排列并以 level 表示层级，避免深层嵌套的 JSON。
+ */
+public class OutlineNode {
+    public String id;
+    public String title;
+    public Integer pageNum;
+    public int level;
+
+    public OutlineNode(String id, String title, Integer pageNum, int level) {
+        this.id = id;
+        this.title = title;
+        this.pageNum = pageNum;
+        this.level = level;
+    }
+}
@@ -0,0 +1,16 @@
+package com.ririv.quickoutline.api.model;
+
+/**
+ * 目录增量编辑操作，op 取值：insert / delete / move / retitle / setPage / indent / outdent。
+ * parentId 为 null 表示顶层；afterId 为 null 表示放在第一个。
+ * indent / outdent 作用于 id 到 lastId 这段连续的兄弟节点。
+ */
+public class OutlineOp {
+    public String op;
+    public String id;
+    public String parentId;
+    public String afterId;
+    public String lastId;
+    public String title;
+    public Integer pageNum;
+}
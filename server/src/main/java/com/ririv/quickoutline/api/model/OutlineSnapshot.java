@@ -0,0 +1,13 @@
+package com.ririv.quickoutline.api.model;
+
+import java.util.List;
+
+public class OutlineSnapshot {
+    public long version;
+    public List<OutlineNode> nodes;
+
+    public OutlineSnapshot(long version, List<OutlineNode> nodes) {
+        this.version = version;
+        this.nodes = nodes;
+    }
+}
@@ -6,4 +6,5 @@ public class RpcRequest {
     public String id;
     public String method;
     public List<Object> params;
+    public transient String sessionId; // 发出请求的 WebSocket 会话，由服务端设置
 }
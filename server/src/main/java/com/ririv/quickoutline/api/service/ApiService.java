@@ -1,3 +1,61 @@
 package com.ririv.quickoutline.api.service;
+
+import com.ririv.quickoutline.api.model.DocumentChange;
+import com.ririv.quickoutline.api.model.DocumentInfo;
+import com.ririv.quickoutline.api.model.OutlineAck;
+import com.ririv.quickoutline.api.model.OutlineOp;
+import com.ririv.quickoutline.api.model.OutlineSnapshot;
+import com.ririv.quickoutline.pdfProcess.ExtractionProgress;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
 public interface ApiService {
-}
\ No newline at end of file
+
+    /**
+     * 打开文档并保留已解析的状态，之后对同一文件的提取、目录读取都复用它，见 DocumentRegistry
+     */
+    DocumentInfo openDocument(String filePath) throws IOException;
+
+    void closeDocument(String handle);
+
+    /**
+     * 文件在磁盘上变化后重新加载（DocumentWatcher 自动调用，无法监视的位置可由前端调用）。
+     * 只重新解析内容变化的页面；之前提取过目录时重新提取。
+     * @return 文件未变化时返回 null
+     */
+    DocumentChange refreshDocument(String handle) throws IOException;
+
+    /**
+     * 各页尺寸 {宽, 高}，按页码顺序
+     */
+    float[][] getPageSizes(String handle) throws IOException;
+
+    OutlineSnapshot openOutlineSession(String filePath, int offset) throws IOException;
+
+    OutlineAck applyOutlineOps(String filePath, long baseVersion, List<OutlineOp> ops);
+
+    OutlineSnapshot getOutlineSnapshot(String filePath);
+
+    void saveOutlineSession(String filePath, String destFilePath, int offset) throws IOException;
+
+    void closeOutlineSession(String filePath);
+
+    String extractToc(String filePath);
+
+    /**
+     * 同 extractToc，每提取完一页报告一次进度；progress 抛出 CancellationException 即中止提取并原样抛出
+     */
+    String extractToc(String filePath, ExtractionProgress progress);
+
+    /**
+     * 开始录制提取流水线的 JFR 事件，最长 maxSeconds 秒后自动停止
+     */
+    void startProfiling(int maxSeconds);
+
+    /**
+     * 停止录制并返回各阶段的汇总，见 ExtractionProfiler
+     */
+    Map<String, Object> stopProfiling() throws IOException;
+}
@@ -0,0 +1,189 @@
+package com.ririv.quickoutline.api.service;
+
+import com.ririv.quickoutline.api.model.RpcRequest;
+import com.ririv.quickoutline.api.model.RpcResponse;
+import com.ririv.quickoutline.service.WorkScheduler;
+import com.ririv.quickoutline.service.WorkScheduler.Lane;
+import com.ririv.quickoutline.service.metrics.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * 按 RpcMethodRegistry 的声明调度请求：每个请求一个虚拟线程，
+ * ordered 方法按文档（第一个参数，规范化后的路径）进入各自的串行队列，不同文档之间互不等待；
+ * 其余方法并发执行并受各自的并发上限约束。
+ * INTERACTIVE 方法执行期间通知 WorkScheduler，使后台任务在让出点等待；
+ * 任何请求到达都会通知 WorkScheduler，使预热停止。
+ * 响应可能乱序返回，前端按 RpcRequest.id 匹配。
+ * 每个方法的排队数、执行数、延迟和错误数记录在 Metrics 中，未注册的方法名记为 other。
+ */
+public class RpcDispatcher implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(RpcDispatcher.class);
+
+    private final RpcProcessor processor;
+    private final WorkScheduler scheduler;
+    private final ExecutorService concurrentExecutor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("rpc-", 0).factory());
+    // 文档 -> 该文档最后一个 ordered 请求，新请求接在它之后；队列排空时移除
+    private final Map<String, CompletableFuture<RpcResponse>> orderedTails = new ConcurrentHashMap<>();
+    private final Map<String, Semaphore> permits = new ConcurrentHashMap<>();
+    private final Metrics metrics;
+
+    public RpcDispatcher(RpcProcessor processor, WorkScheduler scheduler) {
+        this(processor, scheduler, Metrics.global());
+    }
+
+    public RpcDispatcher(RpcProcessor processor, WorkScheduler scheduler, Metrics metrics) {
+        this.processor = processor;
+        this.scheduler = scheduler;
+        this.metrics = metrics;
+    }
+
+    public CompletableFuture<RpcResponse> dispatch(String jsonRequest) {
+        return dispatch(jsonRequest, null);
+    }
+
+    private CompletableFuture<RpcResponse> dispatch(String jsonRequest, String sessionId) {
+        RpcRequest request;
+        try {
+            request = processor.parse(jsonRequest);
+        } catch (Exception e) {
+            log.error("RPC Error parsing request: {}", jsonRequest, e);
+            return CompletableFuture.completedFuture(processor.errorResponse(null, e));
+        }
+        request.sessionId = sessionId;
+        return dispatch(request);
+    }
+
+    /**
+     * 一个 WebSocket 帧可以是单个请求，也可以是请求数组（批量）。
+     * 批量中的各项按各自的调度声明执行（互不依赖的并行，ordered 的按数组顺序），
+     * 全部完成后返回，顺序与请求一致。单个请求返回只含一个元素的列表。
+     */
+    public CompletableFuture<List<RpcResponse>> dispatchFrame(String frame) {
+        return dispatchFrame(frame, null);
+    }
+
+    /**
+     * @param sessionId 发出请求的会话，记录到每个 RpcRequest 上，供需要推送事件的方法使用
+     */
+    public CompletableFuture<List<RpcResponse>> dispatchFrame(String frame, String sessionId) {
+        if (!RpcProcessor.isBatch(frame)) {
+            return dispatch(frame, sessionId).thenApply(List::of);
+        }
+        List<RpcRequest> requests;
+        try {
+            requests = processor.parseBatch(frame);
+        } catch (Exception e) {
+            log.error("RPC Error parsing batch: {}", frame, e);
+            return CompletableFuture.completedFuture(List.of(processor.errorResponse(null, e)));
+        }
+
+        List<CompletableFuture<RpcResponse>> responses = new ArrayList<>(requests.size());
+        for (RpcRequest request : requests) {
+            request.sessionId = sessionId;
+            responses.add(dispatch(request));
+        }
+        return CompletableFuture.allOf(responses.toArray(CompletableFuture[]::new)).thenApply(v -> {
+            List<RpcResponse> batch = new ArrayList<>(responses.size());
+            for (CompletableFuture<RpcResponse> response : responses) {
+                batch.add(response.join());
+            }
+            return batch;
+        });
+    }
+
+    private CompletableFuture<RpcResponse> dispatch(RpcRequest request) {
+        RpcMethodRegistry methods = processor.getMethods();
+        RpcMethodRegistry.MethodSpec spec = methods.get(request.method);
+        Metrics.MethodStats stats = metrics.method(methods.contains(request.method) ? request.method : null);
+        stats.queued.increment();
+        scheduler.requestArrived();
+        if (spec.ordered()) {
+            return dispatchOrdered(request, spec.lane(), stats);
+        }
+        if (spec.maxConcurrency() == RpcMethodRegistry.UNLIMITED) {
+            return CompletableFuture.supplyAsync(() -> process(request, spec.lane(), stats), concurrentExecutor);
+        }
+        // 在虚拟线程中等待许可，等待本身不占用平台线程
+        Semaphore semaphore = permits.computeIfAbsent(spec.name(), k -> new Semaphore(spec.maxConcurrency(), true));
+        return CompletableFuture.supplyAsync(() -> {
+            semaphore.acquireUninterruptibly();
+            try {
+                return process(request, spec.lane(), stats);
+            } finally {
+                semaphore.release();
+            }
+        }, concurrentExecutor);
+    }
+
+    /**
+     * 接在同一文档的前一个 ordered 请求之后执行（无论其成功与否）
+     */
+    private CompletableFuture<RpcResponse> dispatchOrdered(RpcRequest request, Lane lane, Metrics.MethodStats stats) {
+        String key = documentKey(request);
+        CompletableFuture<RpcResponse> next = orderedTails.compute(key, (k, tail) -> tail == null
+                ? CompletableFuture.supplyAsync(() -> process(request, lane, stats), concurrentExecutor)
+                : tail.handle((response, error) -> null)
+                        .thenApplyAsync(v -> process(request, lane, stats), concurrentExecutor));
+        next.whenComplete((response, error) -> orderedTails.remove(key, next));
+        return next;
+    }
+
+    private static String documentKey(RpcRequest request) {
+        if (request.params == null || request.params.isEmpty() || !(request.params.get(0) instanceof String path)) {
+            return "";
+        }
+        try {
+            return Path.of(path).toAbsolutePath().normalize().toString();
+        } catch (InvalidPathException e) {
+            return path;
+        }
+    }
+
+    private RpcResponse process(RpcRequest request, Lane lane, Metrics.MethodStats stats) {
+        stats.queued.decrement();
+        stats.inFlight.increment();
+        long start = System.nanoTime();
+        RpcResponse response = null;
+        try {
+            response = execute(request, lane);
+            return response;
+        } finally {
+            scheduler.requestFinished();
+            stats.latency.record(System.nanoTime() - start);
+            stats.inFlight.decrement();
+            if (response == null || response.error != null) {
+                stats.errors.increment();
+            }
+        }
+    }
+
+    private RpcResponse execute(RpcRequest request, Lane lane) {
+        if (lane != Lane.INTERACTIVE) {
+            return processor.execute(request);
+        }
+        scheduler.enterInteractive();
+        try {
+            return processor.execute(request);
+        } finally {
+            scheduler.exitInteractive();
+        }
+    }
+
+    @Override
+    public void close() {
+        concurrentExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,275 @@
+package com.ririv.quickoutline.api.service;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.ririv.quickoutline.api.model.OutlineAck;
+import com.ririv.quickoutline.api.model.OutlineNode;
+import com.ririv.quickoutline.api.model.OutlineSnapshot;
+import com.ririv.quickoutline.api.model.RpcRequest;
+import com.ririv.quickoutline.api.model.RpcResponse;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RPC 使用的 Gson：请求、响应和目录模型都注册了手写的 TypeAdapter，不经过反射；
+ * 其余结果类型仍由 Gson 默认方式处理。
+ * 响应通过 {@link #write(RpcResponse, JsonWriter)} 直接流式写出，不生成中间的 String。
+ * 与默认 Gson 一致，值为 null 的字段不输出。
+ */
+public final class RpcJson {
+
+    public static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(RpcRequest.class, new RpcRequestAdapter().nullSafe())
+            .registerTypeAdapter(OutlineNode.class, new OutlineNodeAdapter().nullSafe())
+            .registerTypeAdapter(OutlineSnapshot.class, new OutlineSnapshotAdapter().nullSafe())
+            .registerTypeAdapterFactory(new ResultHoldersFactory())
+            .create();
+
+    private static final TypeAdapter<RpcResponse> RESPONSE_ADAPTER = GSON.getAdapter(RpcResponse.class);
+
+    private RpcJson() {
+    }
+
+    public static void write(RpcResponse response, JsonWriter out) throws IOException {
+        RESPONSE_ADAPTER.write(out, response);
+    }
+
+    public static String toJson(RpcResponse response) {
+        return GSON.toJson(response, RpcResponse.class);
+    }
+
+    private static final class RpcRequestAdapter extends TypeAdapter<RpcRequest> {
+        private TypeAdapter<Object> paramAdapter;
+
+        @Override
+        public RpcRequest read(JsonReader in) throws IOException {
+            if (paramAdapter == null) {
+                paramAdapter = GSON.getAdapter(Object.class); // 数字为 Double，对象为 Map，与默认 Gson 相同
+            }
+            RpcRequest request = new RpcRequest();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id" -> request.id = nextStringOrNull(in);
+                    case "method" -> request.method = nextStringOrNull(in);
+                    case "params" -> {
+                        if (in.peek() == JsonToken.NULL) {
+                            in.nextNull();
+                            break;
+                        }
+                        List<Object> params = new ArrayList<>();
+                        in.beginArray();
+                        while (in.hasNext()) {
+                            params.add(paramAdapter.read(in));
+                        }
+                        in.endArray();
+                        request.params = params;
+                    }
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return request;
+        }
+
+        @Override
+        public void write(JsonWriter out, RpcRequest request) throws IOException {
+            out.beginObject();
+            out.name("id").value(request.id);
+            out.name("method").value(request.method);
+            if (request.params != null) {
+                out.name("params");
+                GSON.getAdapter(Object.class).write(out, request.params);
+            }
+            out.endObject();
+        }
+    }
+
+    private static final class OutlineNodeAdapter extends TypeAdapter<OutlineNode> {
+        @Override
+        public void write(JsonWriter out, OutlineNode node) throws IOException {
+            out.beginObject();
+            if (node.id != null) out.name("id").value(node.id);
+            if (node.title != null) out.name("title").value(node.title);
+            if (node.pageNum != null) out.name("pageNum").value(node.pageNum);
+            out.name("level").value(node.level);
+            out.endObject();
+        }
+
+        @Override
+        public OutlineNode read(JsonReader in) throws IOException {
+            String id = null, title = null;
+            Integer pageNum = null;
+            int level = 0;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id" -> id = nextStringOrNull(in);
+                    case "title" -> title = nextStringOrNull(in);
+                    case "pageNum" -> {
+                        if (in.peek() == JsonToken.NULL) in.nextNull();
+                        else pageNum = in.nextInt();
+                    }
+                    case "level" -> level = in.nextInt();
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return new OutlineNode(id, title, pageNum, level);
+        }
+    }
+
+    private static final class OutlineSnapshotAdapter extends TypeAdapter<OutlineSnapshot> {
+        private final OutlineNodeAdapter nodeAdapter = new OutlineNodeAdapter();
+
+        @Override
+        public void write(JsonWriter out, OutlineSnapshot snapshot) throws IOException {
+            out.beginObject();
+            out.name("version").value(snapshot.version);
+            if (snapshot.nodes != null) {
+                out.name("nodes").beginArray();
+                for (OutlineNode node : snapshot.nodes) {
+                    nodeAdapter.write(out, node);
+                }
+                out.endArray();
+            }
+            out.endObject();
+        }
+
+        @Override
+        public OutlineSnapshot read(JsonReader in) throws IOException {
+            long version = 0;
+            List<OutlineNode> nodes = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "version" -> version = in.nextLong();
+                    case "nodes" -> {
+                        nodes = new ArrayList<>();
+                        in.beginArray();
+                        while (in.hasNext()) {
+                            nodes.add(nodeAdapter.read(in));
+                        }
+                        in.endArray();
+                    }
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return new OutlineSnapshot(version, nodes);
+        }
+    }
+
+    /**
+     * RpcResponse 与 OutlineAck 含有任意类型的字段（result / snapshot），
+     * 需要通过 Gson 取得对应的 adapter，因此用工厂注册
+     */
+    private static final class ResultHoldersFactory implements TypeAdapterFactory {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            if (type.getRawType() == RpcResponse.class) {
+                return (TypeAdapter<T>) new RpcResponseAdapter(gson).nullSafe();
+            }
+            if (type.getRawType() == OutlineAck.class) {
+                return (TypeAdapter<T>) new OutlineAckAdapter(gson.getAdapter(OutlineSnapshot.class)).nullSafe();
+            }
+            return null;
+        }
+    }
+
+    private static final class RpcResponseAdapter extends TypeAdapter<RpcResponse> {
+        private final Gson gson;
+
+        RpcResponseAdapter(Gson gson) {
+            this.gson = gson;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void write(JsonWriter out, RpcResponse response) throws IOException {
+            out.beginObject();
+            if (response.id != null) out.name("id").value(response.id);
+            if (response.result != null) {
+                out.name("result");
+                TypeAdapter<Object> adapter = (TypeAdapter<Object>) gson.getAdapter(response.result.getClass());
+                adapter.write(out, response.result);
+            }
+            if (response.error != null) out.name("error").value(response.error);
+            out.endObject();
+        }
+
+        @Override
+        public RpcResponse read(JsonReader in) throws IOException {
+            String id = null, error = null;
+            Object result = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id" -> id = nextStringOrNull(in);
+                    case "result" -> result = gson.getAdapter(Object.class).read(in);
+                    case "error" -> error = nextStringOrNull(in);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return new RpcResponse(id, result, error);
+        }
+    }
+
+    private static final class OutlineAckAdapter extends TypeAdapter<OutlineAck> {
+        private final TypeAdapter<OutlineSnapshot> snapshotAdapter;
+
+        OutlineAckAdapter(TypeAdapter<OutlineSnapshot> snapshotAdapter) {
+            this.snapshotAdapter = snapshotAdapter;
+        }
+
+        @Override
+        public void write(JsonWriter out, OutlineAck ack) throws IOException {
+            out.beginObject();
+            out.name("version").value(ack.version);
+            out.name("applied").value(ack.applied);
+            out.name("resync").value(ack.resync);
+            if (ack.error != null) out.name("error").value(ack.error);
+            if (ack.snapshot != null) {
+                out.name("snapshot");
+                snapshotAdapter.write(out, ack.snapshot);
+            }
+            out.endObject();
+        }
+
+        @Override
+        public OutlineAck read(JsonReader in) throws IOException {
+            OutlineAck ack = new OutlineAck();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "version" -> ack.version = in.nextLong();
+                    case "applied" -> ack.applied = in.nextInt();
+                    case "resync" -> ack.resync = in.nextBoolean();
+                    case "error" -> ack.error = nextStringOrNull(in);
+                    case "snapshot" -> ack.snapshot = snapshotAdapter.read(in);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return ack;
+        }
+    }
+
+    private static String nextStringOrNull(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextString();
+    }
+}
@@ -0,0 +1,44 @@
+package com.ririv.quickoutline.api.service;
+
+import com.ririv.quickoutline.service.WorkScheduler.Lane;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * RPC 方法的调度声明。
+ * ordered：同一文档（第一个参数）的 ordered 方法共用一个串行队列，按到达顺序逐个执行（如目录会话的增量操作），不同文档之间并发；
+ * maxConcurrency：非 ordered 方法同时执行的上限，未注册的方法不限制；
+ * lane：所属优先级，见 WorkScheduler，未注册的方法为 NORMAL。
+ */
+public class RpcMethodRegistry {
+
+    public static final int UNLIMITED = Integer.MAX_VALUE;
+
+    public record MethodSpec(String name, Lane lane, boolean ordered, int maxConcurrency) {
+        public MethodSpec {
+            if (maxConcurrency < 1) throw new IllegalArgumentException("maxConcurrency must be >= 1");
+        }
+    }
+
+    private final Map<String, MethodSpec> specs = new ConcurrentHashMap<>();
+
+    public RpcMethodRegistry ordered(String name, Lane lane) {
+        specs.put(name, new MethodSpec(name, lane, true, 1));
+        return this;
+    }
+
+    public RpcMethodRegistry concurrent(String name, Lane lane, int maxConcurrency) {
+        specs.put(name, new MethodSpec(name, lane, false, maxConcurrency));
+        return this;
+    }
+
+    public boolean contains(String name) {
+        return name != null && specs.containsKey(name);
+    }
+
+    public MethodSpec get(String name) {
+        MethodSpec spec = name == null ? null : specs.get(name);
+        return spec != null ? spec : new MethodSpec(name, Lane.NORMAL, false, UNLIMITED);
+    }
+}
@@ -1,27 +1,105 @@
 package com.ririv.quickoutline.api.service;
 
 import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.ririv.quickoutline.api.WebSocketSessionManager;
+import com.ririv.quickoutline.api.model.ExtractProgress;
+import com.ririv.quickoutline.api.model.OutlineOp;
 import com.ririv.quickoutline.api.model.RpcRequest;
 import com.ririv.quickoutline.api.model.RpcResponse;
+import com.ririv.quickoutline.service.WorkScheduler.Lane;
+import com.ririv.quickoutline.service.metrics.Metrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class RpcProcessor {
     private static final Logger log = LoggerFactory.getLogger(RpcProcessor.class);
     private final ApiService apiService;
-    private final Gson gson = new Gson();
+    private final WebSocketSessionManager sessions; // 为 null 时不推送事件
+    private final Gson gson = RpcJson.GSON;
+    private static final Type OUTLINE_OPS_TYPE = new TypeToken<List<OutlineOp>>() {}.getType();
+    static final String EXTRACT_PROGRESS = "extractProgress";
 
     public RpcProcessor(ApiService apiService) {
+        this(apiService, null);
+    }
+
+    public RpcProcessor(ApiService apiService, WebSocketSessionManager sessions) {
         this.apiService = apiService;
+        this.sessions = sessions;
+    }
+
+    /**
+     * 各方法的调度声明，见 RpcDispatcher
+     */
+    private final RpcMethodRegistry methods = new RpcMethodRegistry()
+            .concurrent("placeholder", Lane.INTERACTIVE, RpcMethodRegistry.UNLIMITED)
+            .concurrent("openDocument", Lane.NORMAL, RpcMethodRegistry.UNLIMITED)
+            .concurrent("closeDocument", Lane.INTERACTIVE, RpcMethodRegistry.UNLIMITED)
+            .concurrent("getPageSizes", Lane.INTERACTIVE, RpcMethodRegistry.UNLIMITED)
+            .concurrent("refreshDocument", Lane.BACKGROUND, 1)
+            .ordered("openOutlineSession", Lane.NORMAL)
+            .ordered("applyOutlineOps", Lane.INTERACTIVE)
+            .ordered("getOutlineSnapshot", Lane.INTERACTIVE)
+            .ordered("saveOutlineSession", Lane.NORMAL)
+            .ordered("closeOutlineSession", Lane.INTERACTIVE)
+            .concurrent("extractToc", Lane.BACKGROUND, 1) // 提取本身已按页并行，再并发只会争抢 CPU
+            .concurrent("stats", Lane.INTERACTIVE, RpcMethodRegistry.UNLIMITED)
+            .concurrent("startProfiling", Lane.INTERACTIVE, RpcMethodRegistry.UNLIMITED)
+            .concurrent("stopProfiling", Lane.NORMAL, RpcMethodRegistry.UNLIMITED);
+
+    public RpcMethodRegistry getMethods() {
+        return methods;
+    }
+
+    public RpcRequest parse(String jsonRequest) {
+        log.debug("Processing RPC request: {}", jsonRequest);
+        RpcRequest request = gson.fromJson(jsonRequest, RpcRequest.class);
+        if (request == null) throw new IllegalArgumentException("Empty request");
+        return request;
+    }
+
+    // 批量请求为 JSON 数组
+    public static boolean isBatch(String json) {
+        for (int i = 0; i < json.length(); i++) {
+            char c = json.charAt(i);
+            if (!Character.isWhitespace(c)) return c == '[';
+        }
+        return false;
+    }
+
+    public List<RpcRequest> parseBatch(String jsonBatch) {
+        log.debug("Processing RPC batch: {}", jsonBatch);
+        RpcRequest[] requests = gson.fromJson(jsonBatch, RpcRequest[].class);
+        if (requests == null || requests.length == 0) throw new IllegalArgumentException("Empty batch");
+        for (RpcRequest request : requests) {
+            if (request == null) throw new IllegalArgumentException("Null entry in batch");
+        }
+        return List.of(requests);
     }
 
     public String process(String jsonRequest) {
-        RpcRequest request = null;
+        RpcRequest request;
+        try {
+            request = parse(jsonRequest);
+        } catch (Exception e) {
+            log.error("RPC Error processing request: {}", jsonRequest, e);
+            return RpcJson.toJson(errorResponse(null, e));
+        }
+        return RpcJson.toJson(execute(request));
+    }
+
+    /**
+     * 执行请求，返回未序列化的响应，由调用方决定写到哪里（String 或 WebSocket 的 Buffer）
+     */
+    public RpcResponse execute(RpcRequest request) {
         try {
-            log.debug("Processing RPC request: {}", jsonRequest);
-            request = gson.fromJson(jsonRequest, RpcRequest.class);
-            if (request == null) throw new IllegalArgumentException("Empty request");
-            
             log.info("Executing method: {}", request.method);
             Object result = null;
 
@@ -31,14 +109,133 @@ public class RpcProcessor {
                     result = "OK";
                     break;
 
+                case "openDocument":
+                    result = apiService.openDocument(getString(request, 0));
+                    break;
+
+                case "closeDocument":
+                    apiService.closeDocument(getString(request, 0));
+                    result = "OK";
+                    break;
+
+                case "refreshDocument":
+                    result = apiService.refreshDocument(getString(request, 0));
+                    break;
+
+                case "getPageSizes":
+                    result = apiService.getPageSizes(getString(request, 0));
+                    break;
+
+                case "openOutlineSession":
+                    result = apiService.openOutlineSession(getString(request, 0), getInt(request, 1));
+                    break;
+
+                case "applyOutlineOps":
+                    result = apiService.applyOutlineOps(getString(request, 0), getLong(request, 1),
+                            gson.fromJson(gson.toJsonTree(request.params.get(2)), OUTLINE_OPS_TYPE));
+                    break;
+
+                case "getOutlineSnapshot":
+                    result = apiService.getOutlineSnapshot(getString(request, 0));
+                    break;
+
+                case "saveOutlineSession":
+                    apiService.saveOutlineSession(getString(request, 0), getString(request, 1), getInt(request, 2));
+                    result = "OK";
+                    break;
+
+                case "extractToc":
+                    result = extractToc(request, getString(request, 0));
+                    break;
+
+                case "closeOutlineSession":
+                    apiService.closeOutlineSession(getString(request, 0));
+                    result = "OK";
+                    break;
+
+                case "startProfiling":
+                    apiService.startProfiling(getInt(request, 0));
+                    result = "OK";
+                    break;
+
+                case "stopProfiling":
+                    result = apiService.stopProfiling();
+                    break;
+
+                case "stats":
+                    result = Metrics.global().snapshot();
+                    break;
+
                 default:
                     throw new IllegalArgumentException("Unknown method: " + request.method);
             }
-            return gson.toJson(RpcResponse.success(request.id, result));
+            return RpcResponse.success(request.id, result);
+        } catch (CancellationException e) {
+            log.info("RPC method {} cancelled: {}", request.method, e.getMessage());
+            return errorResponse(request.id, e);
         } catch (Exception e) {
-            log.error("RPC Error processing request: {}", jsonRequest, e);
-            String id = (request != null) ? request.id : null;
-            return gson.toJson(RpcResponse.error(id, e.getMessage()));
+            log.error("RPC Error processing method: {}", request.method, e);
+            return errorResponse(request.id, e);
+        }
+    }
+
+    /**
+     * 来自 WebSocket 会话的提取登记为该会话的任务，逐页进度只推送给它（EventChannel 按类型合并），
+     * 结束时（包括失败）推送一个必达的 finished 进度，之前合并中的进度不会晚于它到达。
+     * 会话断开后在下一页完成时中止提取，不再推送
+     */
+    private String extractToc(RpcRequest request, String filePath) {
+        if (sessions == null || request.sessionId == null) {
+            return apiService.extractToc(filePath);
+        }
+        String jobId = request.sessionId + "/" + request.id;
+        AtomicBoolean orphaned = new AtomicBoolean();
+        sessions.claimJob(jobId, request.sessionId, () -> orphaned.set(true));
+        AtomicInteger done = new AtomicInteger();
+        AtomicInteger total = new AtomicInteger();
+        try {
+            return apiService.extractToc(filePath, (pageDone, pageTotal) -> {
+                if (orphaned.get()) {
+                    throw new CancellationException("Session " + request.sessionId + " closed");
+                }
+                total.set(pageTotal);
+                int latest = done.accumulateAndGet(pageDone, Math::max); // 并行提取时进度可能乱序到达
+                sessions.sendProgress(jobId, EXTRACT_PROGRESS, new ExtractProgress(request.id, latest, pageTotal, false));
+            });
+        } finally {
+            if (!orphaned.get()) {
+                sessions.sendTerminalEvent(jobId, EXTRACT_PROGRESS, new ExtractProgress(request.id, done.get(), total.get(), true));
+            }
+            sessions.releaseJob(jobId);
+        }
+    }
+
+    public RpcResponse errorResponse(String id, Exception e) {
+        return RpcResponse.error(id, e.getMessage());
+    }
+
+    // Gson 把 params 中的数字解析为 Double
+    private static String getString(RpcRequest request, int index) {
+        Object value = getParam(request, index);
+        return value == null ? null : value.toString();
+    }
+
+    private static int getInt(RpcRequest request, int index) {
+        return (int) getLong(request, index);
+    }
+
+    private static long getLong(RpcRequest request, int index) {
+        Object value = getParam(request, index);
+        if (!(value instanceof Number number)) {
+            throw new IllegalArgumentException("Param " + index + " must be a number");
+        }
+        return number.longValue();
+    }
+
+    private static Object getParam(RpcRequest request, int index) {
+        if (request.params == null || index >= request.params.size()) {
+            return null;
         }
+        return request.params.get(index);
     }
-}
\ No newline at end of file
+}
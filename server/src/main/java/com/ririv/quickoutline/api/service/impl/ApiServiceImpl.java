@@ -1,18 +1,179 @@
 package com.ririv.quickoutline.api.service.impl;
 
+import com.ririv.quickoutline.api.model.DocumentChange;
+import com.ririv.quickoutline.api.model.DocumentInfo;
+import com.ririv.quickoutline.api.model.OutlineAck;
+import com.ririv.quickoutline.api.model.OutlineNode;
+import com.ririv.quickoutline.api.model.OutlineOp;
+import com.ririv.quickoutline.api.model.OutlineSnapshot;
 import com.ririv.quickoutline.api.service.ApiService;
+import com.ririv.quickoutline.pdfProcess.ExtractionProgress;
+import com.ririv.quickoutline.service.DocumentHandle;
+import com.ririv.quickoutline.service.DocumentRegistry;
+import com.ririv.quickoutline.service.ExtractionProfiler;
+import com.ririv.quickoutline.service.OutlineSession;
+import com.ririv.quickoutline.service.OutlineSessionService;
+import com.ririv.quickoutline.service.PdfOutlineService;
+import com.ririv.quickoutline.service.PdfTocExtractorService;
+import com.ririv.quickoutline.service.WorkScheduler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import jakarta.inject.Inject;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
 public class ApiServiceImpl implements ApiService {
     private static final Logger log = LoggerFactory.getLogger(ApiServiceImpl.class);
 
-
+    private final DocumentRegistry documentRegistry;
+    private final OutlineSessionService outlineSessionService;
+    private final PdfTocExtractorService pdfTocExtractorService;
+    private final ExtractionProfiler extractionProfiler = new ExtractionProfiler();
 
     @Inject
-    public ApiServiceImpl() {}
+    public ApiServiceImpl() {
+        this(new WorkScheduler());
+    }
+
+    public ApiServiceImpl(WorkScheduler scheduler) {
+        this(scheduler, new DocumentRegistry(DocumentRegistry.defaultBudget()));
+    }
+
+    public ApiServiceImpl(WorkScheduler scheduler, DocumentRegistry documentRegistry) {
+        this.documentRegistry = documentRegistry;
+        this.outlineSessionService = new OutlineSessionService(new PdfOutlineService(), documentRegistry);
+        this.pdfTocExtractorService = new PdfTocExtractorService(scheduler, documentRegistry);
+    }
+
+    @Override
+    public DocumentInfo openDocument(String filePath) throws IOException {
+        DocumentHandle handle = documentRegistry.open(filePath);
+        return new DocumentInfo(handle.getId(), handle.getFilePath(), handle.getPageCount());
+    }
+
+    @Override
+    public void closeDocument(String handle) {
+        documentRegistry.close(handle);
+    }
+
+    @Override
+    public DocumentChange refreshDocument(String handle) throws IOException {
+        DocumentHandle document = documentRegistry.get(handle);
+        long start = System.nanoTime();
+        DocumentHandle.Reload reload = documentRegistry.refresh(document);
+        if (reload == null) {
+            return null;
+        }
+        List<String> toc = null;
+        int reparsed = 0;
+        if (reload.previousPages() > 0) {
+            toc = pdfTocExtractorService.extract(document);
+            reparsed = reload.pageCount() - reload.reusedPages();
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        log.info("Document {} changed: {} pages reused, {} re-parsed in {} ms",
+                document.getFilePath(), reload.reusedPages(), reparsed, millis);
+        return new DocumentChange(handle, document.getFilePath(), reload.pageCount(), reload.reusedPages(), reparsed,
+                toc, millis);
+    }
+
+    @Override
+    public float[][] getPageSizes(String handle) throws IOException {
+        DocumentHandle document = documentRegistry.get(handle);
+        documentRegistry.acquire(document);
+        return document.getPageSizes();
+    }
+
+    @Override
+    public OutlineSnapshot openOutlineSession(String filePath, int offset) throws IOException {
+        return snapshotOf(outlineSessionService.open(filePath, offset));
+    }
+
+    /**
+     * 依次应用操作。基准版本与服务端不一致，或某个操作失败时（之前的操作仍然生效），
+     * 返回完整快照让前端重建；否则只返回新版本号。
+     */
+    @Override
+    public OutlineAck applyOutlineOps(String filePath, long baseVersion, List<OutlineOp> ops) {
+        OutlineSession session = outlineSessionService.get(filePath);
+        synchronized (session) { // 与会话内部方法共用同一把锁，保证一批操作之间不会穿插其他批次
+            if (session.getVersion() != baseVersion) {
+                log.info("Outline version mismatch for {}: client {}, server {}", filePath, baseVersion, session.getVersion());
+                return OutlineAck.resync(snapshotOf(session), 0, "Version mismatch");
+            }
+            int applied = 0;
+            try {
+                for (OutlineOp op : ops) {
+                    apply(session, op);
+                    applied++;
+                }
+            } catch (RuntimeException e) {
+                log.warn("Outline op #{} failed for {}: {}", applied, filePath, e.getMessage());
+                return OutlineAck.resync(snapshotOf(session), applied, e.getMessage());
+            }
+            return OutlineAck.ok(session.getVersion(), applied);
+        }
+    }
+
+    private static void apply(OutlineSession session, OutlineOp op) {
+        if (op == null || op.op == null) throw new IllegalArgumentException("Missing op");
+        switch (op.op) {
+            case "insert" -> session.insert(op.id, op.parentId, op.afterId, op.title, op.pageNum);
+            case "delete" -> session.delete(op.id);
+            case "move" -> session.move(op.id, op.parentId, op.afterId);
+            case "retitle" -> session.retitle(op.id, op.title);
+            case "setPage" -> session.setPage(op.id, op.pageNum);
+            case "indent" -> session.indent(op.id, op.lastId == null ? op.id : op.lastId, false);
+            case "outdent" -> session.indent(op.id, op.lastId == null ? op.id : op.lastId, true);
+            default -> throw new IllegalArgumentException("Unknown op: " + op.op);
+        }
+    }
+
+    @Override
+    public OutlineSnapshot getOutlineSnapshot(String filePath) {
+        return snapshotOf(outlineSessionService.get(filePath));
+    }
+
+    @Override
+    public void saveOutlineSession(String filePath, String destFilePath, int offset) throws IOException {
+        outlineSessionService.save(filePath, destFilePath, offset);
+    }
+
+    @Override
+    public void closeOutlineSession(String filePath) {
+        outlineSessionService.close(filePath);
+    }
+
+    @Override
+    public String extractToc(String filePath) {
+        return pdfTocExtractorService.extract(filePath);
+    }
+
+    @Override
+    public String extractToc(String filePath, ExtractionProgress progress) {
+        return pdfTocExtractorService.extract(filePath, progress);
+    }
+
+    @Override
+    public void startProfiling(int maxSeconds) {
+        extractionProfiler.start(maxSeconds);
+    }
 
+    @Override
+    public Map<String, Object> stopProfiling() throws IOException {
+        return extractionProfiler.stop();
+    }
 
+    private static OutlineSnapshot snapshotOf(OutlineSession session) {
+        return session.read(root -> {
+            List<OutlineNode> nodes = new ArrayList<>();
+            root.traverseWithLevel((bookmark, level) ->
+                    nodes.add(new OutlineNode(bookmark.getId(), bookmark.getTitle(), bookmark.getPageNum().orElse(null), level)));
+            return new OutlineSnapshot(session.getVersion(), nodes);
+        });
+    }
 }
@@ -1,16 +1,14 @@
 package com.ririv.quickoutline.model;
 
+import com.ririv.quickoutline.textProcess.OutlineTextCodec;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
-import java.util.UUID;
+import java.util.*;
 import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
 
 import static com.ririv.quickoutline.textProcess.StringConstants.FOUR_NORM_SPACE;
-import static com.ririv.quickoutline.textProcess.StringConstants.INDENT_UNIT;
 
 //一个顶级目录为一个bookmark
 public class Bookmark {
@@ -19,14 +17,31 @@ public class Bookmark {
 
     private String title; // 一般情况下 title with seq
     private Integer pageNum; //空为无页码
-    private final List<Bookmark> children = new ArrayList<>();
     private Bookmark parent;
-    private int level; // 0为root，1为顶层目录（since v1.0.3，此前版本中-1为root，0为顶层）
+    // 子节点以双向链表保存，前驱/后继、移动、删除都不需要在兄弟列表中查找下标
+    private Bookmark firstChild;
+    private Bookmark lastChild;
+    private Bookmark prevSibling;
+    private Bookmark nextSibling;
+    private int childCount;
+    private final List<Bookmark> children = new ChildrenView();
+    // 0为root，1为顶层目录（since v1.0.3，此前版本中-1为root，0为顶层）
+    // 只有树的顶层节点（无 parent）使用该字段；已挂在树上的节点的层级由结构推导，见 getLevel
+    private int level;
+    // 所在树的顶层节点（无 parent 时为自身），用于 O(1) 判断是否同树、定位 id 索引
+    private Bookmark treeTop = this;
     private List<Bookmark> linearBookmarkList; // root节点下将记录原始的线性Bookmark
     private final String id;
+    // id -> 节点 索引，只存在于树的顶层节点上，首次 findById 时建立，之后随 addChild/moveTo/remove 增量维护
+    private Map<String, Bookmark> idIndex;
 
     public Bookmark(String title, Integer pageNum, int level) {
-        this.id = UUID.randomUUID().toString(); // 为每个 Bookmark 生成唯一的 ID
+        this(BookmarkIdGenerator.nextId(), title, pageNum, level); // 为每个 Bookmark 生成唯一的 ID
+    }
+
+    // 使用已有的 id，例如前端新建节点时生成的 id
+    public Bookmark(String id, String title, Integer pageNum, int level) {
+        this.id = Objects.requireNonNull(id, "id");
         this.title = title;
         this.pageNum = pageNum;
         this.level = level;
@@ -65,10 +80,22 @@ public class Bookmark {
         return id;
     }
 
+    /**
+     * 层级按需由结构推导：顶层节点的 level + 到顶层的距离，为 O(深度)。
+     * 因此移动子树时不需要逐个更新子孙节点的层级。
+     * 批量获取层级请用 traverseWithLevel，遍历时顺带计算，每个节点 O(1)。
+     */
     public int getLevel() {
-        return level;
+        int depth = 0;
+        Bookmark top = this;
+        while (top.parent != null) {
+            top = top.parent;
+            depth++;
+        }
+        return top.level + depth;
     }
 
+    // 结构层级：到顶层节点的距离（根节点为0）
     public int calculateLevelByStructure() {
         int level = 0;
         Bookmark parent = this.getParent();
@@ -76,68 +103,206 @@ public class Bookmark {
             level++;
             parent = parent.getParent();
         }
-
-//         check
-        boolean res = level == this.level;
-        if (!res) {
-            if (this.level < 0) {
-                logger.info("{}, level（{}）小于0，实际层级({})", this.toString(), this.level, level);
-            } else {
-                logger.warn("{}, level（{}）与实际结构层级（{}）不符合", this.hashCode(), this.level, level);
-            }
-        }
         return level;
     }
 
 
     public void moveTo(Bookmark parent) {
-        if (this.parent != null) {
-            this.parent.getChildren().remove(this);
-        }
         parent.addChild(this);
     }
 
     public void moveTo(Bookmark parent, int index) {
-        if (this.parent != null) {
-            this.parent.getChildren().remove(this);
-        }
         parent.addChild(index, this);
     }
 
+    // 移动到 sibling 之前，成为其兄弟节点
+    public void moveBefore(Bookmark sibling) {
+        Bookmark newParent = requireParent(sibling);
+        if (sibling == this) return;
+        Bookmark top = prepareAttach(newParent);
+        newParent.linkBefore(this, sibling);
+        finishAttach(newParent, top);
+    }
+
+    // 移动到 sibling 之后，成为其兄弟节点
+    public void moveAfter(Bookmark sibling) {
+        Bookmark newParent = requireParent(sibling);
+        if (sibling == this) return;
+        Bookmark top = prepareAttach(newParent);
+        newParent.linkBefore(this, sibling.nextSibling);
+        finishAttach(newParent, top);
+    }
+
+    /**
+     * 从所在树中删除该节点（连同子树）。
+     * 删除本身为 O(1)，若所在树已建立 id 索引，另需 O(子树大小) 注销子树中的 id。
+     */
+    public void remove() {
+        if (parent == null) return;
+        Bookmark oldTop = treeTop;
+        this.level = getLevel(); // 成为独立子树的顶层后，保留原层级
+        parent.unlink(this);
+        detachSubtree(oldTop);
+    }
+
 
     public Bookmark getParent() {
         return parent;
     }
 
-    public void setParent(Bookmark parent) {
-        this.parent = parent;
-        if (parent != null) {
-            updateLevelRecursively(parent.getLevel());
+    // 防止忘记设置parent，增加addChild方法。child 若已在某棵树中，会先从原位置移除
+    public void addChild(Bookmark child) {
+        Bookmark top = child.prepareAttach(this);
+        linkBefore(child, null);
+        child.finishAttach(this, top);
+    }
+
+    public void addChild(int index, Bookmark child) {
+        // 与 List.remove 后再 add 的语义一致：child 原本就在本节点下时，下标按移除后的列表计算
+        int sizeAfterRemoval = child.parent == this ? childCount - 1 : childCount;
+        if (index < 0 || index > sizeAfterRemoval) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + sizeAfterRemoval);
         }
+        Bookmark top = child.prepareAttach(this);
+        linkBefore(child, index == childCount ? null : childAt(index));
+        child.finishAttach(this, top);
     }
 
-    private void updateLevelRecursively(int parentLevel) {
-        this.level = parentLevel + 1;
-        for (Bookmark child : this.getChildren()) {
-            child.updateLevelRecursively(this.level);
+    /**
+     * 挂到 newParent 下之前的准备：检查不会形成环，并把自身从原位置摘下。
+     * 同树内移动为 O(深度)（环检查），把独立的叶子节点挂到树上为 O(1)。
+     * @return 需要为子树更新 treeTop 及 id 索引的新顶层节点，同树移动时为 null
+     */
+    private Bookmark prepareAttach(Bookmark newParent) {
+        Bookmark newTop = newParent.treeTop;
+        if (newTop == this.treeTop) {
+            // 同一棵树：只有此时 newParent 才可能是自身的子孙
+            for (Bookmark p = newParent; p != null; p = p.parent) {
+                if (p == this) {
+                    throw new IllegalArgumentException("Cannot move a bookmark under itself or its descendant");
+                }
+            }
+            this.parent.unlink(this);
+            return null;
+        }
+        if (this.parent != null) {
+            Bookmark oldTop = this.treeTop;
+            this.parent.unlink(this);
+            detachSubtree(oldTop);
         }
+        // 原为独立的子树，其顶层索引随之作废
+        this.idIndex = null;
+        return newTop;
     }
 
-    // 防止忘记设置parent，增加addChild方法
-    public void addChild(Bookmark child) {
-        this.getChildren().add(child);
-        child.setParent(this);
+    /**
+     * @param newTop 需要为子树更新 treeTop 及 id 索引的顶层节点，为 null 表示同树移动，无需更新
+     */
+    private void finishAttach(Bookmark newParent, Bookmark newTop) {
+        this.parent = newParent;
+        if (newTop != null) {
+            Map<String, Bookmark> index = newTop.idIndex;
+            this.treeTop = newTop;
+            if (index != null) index.put(this.id, this);
+            forEachDescendant(0, (e, level) -> {
+                e.treeTop = newTop;
+                if (index != null) index.put(e.id, e);
+            });
+        }
     }
 
-    public void addChild(int index, Bookmark child) {
-        this.getChildren().add(index, child);
-        child.setParent(this);
+    // 子树（已从原树摘下）成为独立的树：更新 treeTop，并从原树的索引中注销
+    private void detachSubtree(Bookmark oldTop) {
+        Map<String, Bookmark> index = oldTop.idIndex;
+        this.treeTop = this;
+        if (index != null) index.remove(this.id);
+        forEachDescendant(0, (e, level) -> {
+            e.treeTop = this;
+            if (index != null) index.remove(e.id);
+        });
+    }
+
+    private void linkBefore(Bookmark child, Bookmark successor) {
+        Bookmark predecessor = successor == null ? lastChild : successor.prevSibling;
+        child.prevSibling = predecessor;
+        child.nextSibling = successor;
+        if (predecessor == null) firstChild = child;
+        else predecessor.nextSibling = child;
+        if (successor == null) lastChild = child;
+        else successor.prevSibling = child;
+        childCount++;
+    }
+
+    private void unlink(Bookmark child) {
+        Bookmark predecessor = child.prevSibling;
+        Bookmark successor = child.nextSibling;
+        if (predecessor == null) firstChild = successor;
+        else predecessor.nextSibling = successor;
+        if (successor == null) lastChild = predecessor;
+        else successor.prevSibling = predecessor;
+        child.prevSibling = null;
+        child.nextSibling = null;
+        child.parent = null;
+        childCount--;
+    }
+
+    // 从较近的一端开始查找
+    private Bookmark childAt(int index) {
+        Bookmark node;
+        if (index < childCount / 2) {
+            node = firstChild;
+            for (int i = 0; i < index; i++) node = node.nextSibling;
+        } else {
+            node = lastChild;
+            for (int i = childCount - 1; i > index; i--) node = node.prevSibling;
+        }
+        return node;
     }
 
+    private static Bookmark requireParent(Bookmark sibling) {
+        if (sibling.parent == null) {
+            throw new IllegalArgumentException("The root bookmark cannot have siblings");
+        }
+        return sibling.parent;
+    }
+
+
+    /**
+     * 在该节点所在的整棵树中按 id 查找。
+     * 首次调用时为整棵树建立索引，之后的查找为 O(1)。
+     */
+    public Bookmark findById(String id) {
+        Bookmark top = treeTop;
+        if (top.idIndex == null) {
+            Map<String, Bookmark> index = new HashMap<>();
+            index.put(top.id, top);
+            top.forEachDescendant(0, (e, level) -> index.put(e.id, e));
+            top.idIndex = index;
+        }
+        return top.idIndex.get(id);
+    }
+
+    // 只读视图，结构修改请使用 addChild / moveTo / moveBefore / moveAfter / remove
     public List<Bookmark> getChildren() {
         return children;
     }
 
+    public Bookmark getFirstChild() {
+        return firstChild;
+    }
+
+    public Bookmark getLastChild() {
+        return lastChild;
+    }
+
+    public Bookmark getPrevSibling() {
+        return prevSibling;
+    }
+
+    public Bookmark getNextSibling() {
+        return nextSibling;
+    }
+
     //得到该bookmark所属的列表,非子列表
     public List<Bookmark> getSiblingsList() {
         return this.getParent().getChildren();
@@ -145,11 +310,10 @@ public class Bookmark {
 
     public Bookmark getPre() {
         if (getParent() == null) return null; // 根节点没有前驱
-        int i = this.getSiblingsList().indexOf(this);
-        if (i > 0) {
-            Bookmark temp = this.getSiblingsList().get(i - 1);
-            while (temp.getChildren().size() != 0) {
-                temp = temp.getChildren().get(temp.getChildren().size() - 1);
+        if (prevSibling != null) {
+            Bookmark temp = prevSibling;
+            while (temp.lastChild != null) {
+                temp = temp.lastChild;
             }
             return temp;
         } else{
@@ -157,6 +321,77 @@ public class Bookmark {
         }
     }
 
+    /**
+     * 批量缩进：把 first 到 last 这一段连续的兄弟节点，移到 first 的前一个兄弟之下（追加为其最后的子节点）。
+     * 整段一次性拼接，耗时只与段长有关；层级由结构推导，子树无需更新。
+     */
+    public static void indent(Bookmark first, Bookmark last) {
+        Bookmark oldParent = requireParent(first);
+        int count = countRange(first, last);
+        Bookmark newParent = first.prevSibling;
+        if (newParent == null) {
+            throw new IllegalStateException("The first bookmark has no previous sibling to indent under");
+        }
+        oldParent.unlinkRange(first, last, count);
+        newParent.linkRangeBefore(first, last, count, null);
+    }
+
+    /**
+     * 批量反缩进：把 first 到 last 这一段连续的兄弟节点，移到其父节点之后，成为父节点的兄弟。
+     * 段之后的兄弟节点仍留在原父节点下。
+     */
+    public static void outdent(Bookmark first, Bookmark last) {
+        Bookmark oldParent = requireParent(first);
+        int count = countRange(first, last);
+        Bookmark newParent = oldParent.parent;
+        if (newParent == null) {
+            throw new IllegalStateException("Top level bookmarks cannot be outdented");
+        }
+        Bookmark successor = oldParent.nextSibling;
+        oldParent.unlinkRange(first, last, count);
+        newParent.linkRangeBefore(first, last, count, successor);
+    }
+
+    // 校验 first..last 为同一父节点下按顺序相连的一段，返回段长
+    private static int countRange(Bookmark first, Bookmark last) {
+        int count = 1;
+        Bookmark node = first;
+        while (node != last) {
+            node = node.nextSibling;
+            if (node == null) {
+                throw new IllegalArgumentException("Bookmarks are not a sibling range in order");
+            }
+            count++;
+        }
+        return count;
+    }
+
+    private void unlinkRange(Bookmark first, Bookmark last, int count) {
+        Bookmark predecessor = first.prevSibling;
+        Bookmark successor = last.nextSibling;
+        if (predecessor == null) firstChild = successor;
+        else predecessor.nextSibling = successor;
+        if (successor == null) lastChild = predecessor;
+        else successor.prevSibling = predecessor;
+        first.prevSibling = null;
+        last.nextSibling = null;
+        childCount -= count;
+    }
+
+    private void linkRangeBefore(Bookmark first, Bookmark last, int count, Bookmark successor) {
+        Bookmark predecessor = successor == null ? lastChild : successor.prevSibling;
+        first.prevSibling = predecessor;
+        last.nextSibling = successor;
+        if (predecessor == null) firstChild = first;
+        else predecessor.nextSibling = first;
+        if (successor == null) lastChild = last;
+        else successor.prevSibling = last;
+        for (Bookmark node = first; node != successor; node = node.nextSibling) {
+            node.parent = this;
+        }
+        childCount += count;
+    }
+
     public List<Bookmark> flattenToList() {
         List<Bookmark> linearList = new ArrayList<>();
         this.traverse(linearList::add);
@@ -177,38 +412,51 @@ public class Bookmark {
     }
 
 
-    //包含子节点
+    //包含子节点。大目录请用 OutlineTextCodec.write 直接写入 Writer
     public String toOutlineString() {
-        StringBuilder text = new StringBuilder();
-        traverse(e -> {
-            String pageNumStr = e.getPageNum().map(String::valueOf).orElse("");
-            buildLine(text, e.getLevel(),
-                    e.getTitle(), pageNumStr);
-        });
-
-        return text.toString();
+        return OutlineTextCodec.write(this);
     }
 
     private void traverse(Consumer<Bookmark> operate) {
-        recursiveTraverse(this, operate);
+        traverseWithLevel((e, level) -> operate.accept(e));
     }
 
-    /*    Note: 递归遍历， 设为static，防止人为错误地修改代码，以致于无限调用 子bookmark 中的此递归方法
+    /**
+     * 先序遍历自身（根节点除外）及所有子孙节点，同时给出各节点的层级
      */
-    private static void recursiveTraverse(Bookmark bookmark, Consumer<Bookmark> operate) {
-        if (!bookmark.isRoot()) { //非根节点时
-            operate.accept(bookmark);
+    public void traverseWithLevel(ObjIntConsumer<Bookmark> operate) {
+        int level = getLevel();
+        if (!isRoot()) {
+            operate.accept(this, level);
         }
-        if (bookmark.getChildren().size() != 0) { //不要使用isEmpty方法
-            for (Bookmark child : bookmark.getChildren()) {
-                recursiveTraverse(child, operate);
+        forEachDescendant(level, operate);
+    }
+
+    /*    Note: 非递归的先序遍历，沿 firstChild / nextSibling / parent 指针移动，不使用栈，
+              任意深度都不会栈溢出。遍历过程中不要修改树结构。
+     */
+    private void forEachDescendant(int selfLevel, ObjIntConsumer<Bookmark> operate) {
+        Bookmark node = this.firstChild;
+        int level = selfLevel + 1;
+        while (node != null) {
+            operate.accept(node, level);
+            if (node.firstChild != null) {
+                node = node.firstChild;
+                level++;
+                continue;
             }
+            while (node != this && node.nextSibling == null) {
+                node = node.parent;
+                level--;
+            }
+            if (node == this) break;
+            node = node.nextSibling;
         }
     }
 
     public static void buildLine(StringBuilder text, int level, String title, String pageNum) {
         if (level-1 < 0) throw new RuntimeException("level must be >=1");
-        text.append(INDENT_UNIT.repeat(level - 1)); //顶层为1，不要缩进
+        text.append(OutlineTextCodec.indent(level - 1)); //顶层为1，不要缩进
         text.append(title);
         text.append(FOUR_NORM_SPACE);
         text.append(pageNum);
@@ -227,25 +475,28 @@ public class Bookmark {
     public void buildTreeFromList() {
         if (!this.isRoot()) throw new RuntimeException("该方法仅用于根节点");
         else {
-            List<Bookmark> bookmarkList = this.getLinearBookmarkList();
-            Bookmark last = this;
-            for (var current : bookmarkList) {
-                last = addLinearlyToBookmarkTree(current, last);
-            }
+            addLinearlyToBookmarkTree(this, this.getLinearBookmarkList());
         }
     }
 
+    /**
+     * 一次遍历，把各节点的 level 字段同步为结构层级（节点被摘下成为独立子树时会用到该字段）
+     */
     public void updateLevelByStructureLevel() {
-        this.traverse(e -> e.level = e.calculateLevelByStructure());
+        int[] mismatches = {0};
+        this.traverseWithLevel((e, level) -> {
+            if (e.level != level) mismatches[0]++;
+            e.level = level;
+        });
+        if (mismatches[0] > 0) {
+            logger.debug("{} bookmark levels updated to match the structure", mismatches[0]);
+        }
     }
 
 
     public static Bookmark convertListToBookmarkTree(List<Bookmark> bookmarkList) {
         Bookmark rootBookmark = Bookmark.createRoot();
-        Bookmark last = rootBookmark;
-        for (var current : bookmarkList) {
-            last = addLinearlyToBookmarkTree(current, last);
-        }
+        addLinearlyToBookmarkTree(rootBookmark, bookmarkList);
         rootBookmark.setLinearBookmarkList(bookmarkList);
         return rootBookmark;
     }
@@ -254,24 +505,100 @@ public class Bookmark {
     //一定要设置parent
 
     /**
-     * @return currentBookmark - 但应使用last接受返回值，因为add完current，last就得更新了，current变为新的last
+     * 按各节点声明的 level 把线性列表挂到 root 下。
+     * 同级：作为上一节点的兄弟；更深：作为上一节点的子节点（不会跳级）；更浅：回到对应层级，可能跳级。
+     * path.get(i) 为当前路径上第 i 层的节点，每个节点 O(1) 定位父节点。
      */
-    private static Bookmark addLinearlyToBookmarkTree(Bookmark current, Bookmark last) {
-        int currentLevel = current.getLevel();
-        if (last.getLevel() == currentLevel) { //同级
-            last.getParent().addChild(current);
-        } else if (last.getLevel() < currentLevel) { //进入下一级，不会跳级
-            last.addChild(current);
-        } else { //回到上级，可能跳级
-            Bookmark parent = last.getParent(); //目前last所属层级的parent
-            for (int dif = last.getLevel() - currentLevel; dif != 0; dif--) { //实际current应属于的parent
-                parent = parent.getParent();
+    private static void addLinearlyToBookmarkTree(Bookmark root, List<Bookmark> bookmarkList) {
+        List<Bookmark> path = new ArrayList<>();
+        path.add(root);
+        for (var current : bookmarkList) {
+            int currentLevel = current.level;
+            if (currentLevel < 1) {
+                throw new IllegalArgumentException("level must be >=1: " + current);
             }
-            parent.addChild(current);
+            int lastLevel = path.size() - 1;
+            int parentLevel = Math.min(currentLevel - 1, lastLevel);
+            path.get(parentLevel).addChild(current);
+            path.subList(parentLevel + 1, path.size()).clear();
+            path.add(current);
         }
-
-        return current;
     }
 
+    private final class ChildrenView extends AbstractSequentialList<Bookmark> {
+        @Override
+        public int size() {
+            return childCount;
+        }
+
+        @Override
+        public Bookmark get(int index) {
+            Objects.checkIndex(index, childCount);
+            return childAt(index);
+        }
+
+        @Override
+        public ListIterator<Bookmark> listIterator(int index) {
+            if (index < 0 || index > childCount) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + childCount);
+            }
+            return new ListIterator<>() {
+                private Bookmark next = index == childCount ? null : childAt(index);
+                private int nextIndex = index;
+
+                @Override
+                public boolean hasNext() {
+                    return next != null;
+                }
+
+                @Override
+                public Bookmark next() {
+                    if (next == null) throw new NoSuchElementException();
+                    Bookmark current = next;
+                    next = current.nextSibling;
+                    nextIndex++;
+                    return current;
+                }
+
+                @Override
+                public boolean hasPrevious() {
+                    return nextIndex > 0;
+                }
+
+                @Override
+                public Bookmark previous() {
+                    if (nextIndex == 0) throw new NoSuchElementException();
+                    next = next == null ? lastChild : next.prevSibling;
+                    nextIndex--;
+                    return next;
+                }
+
+                @Override
+                public int nextIndex() {
+                    return nextIndex;
+                }
+
+                @Override
+                public int previousIndex() {
+                    return nextIndex - 1;
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException("Use Bookmark.remove()");
+                }
+
+                @Override
+                public void set(Bookmark bookmark) {
+                    throw new UnsupportedOperationException("Use Bookmark.moveTo()");
+                }
+
+                @Override
+                public void add(Bookmark bookmark) {
+                    throw new UnsupportedOperationException("Use Bookmark.addChild()");
+                }
+            };
+        }
+    }
 
-}
\ No newline at end of file
+}
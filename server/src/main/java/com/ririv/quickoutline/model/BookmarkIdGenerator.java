@@ -0,0 +1,37 @@
+package com.ririv.quickoutline.model;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bookmark id 生成器，替代 UUID.randomUUID()（经由 SecureRandom，且多线程下会竞争）。
+ * <p>
+ * id = 本次进程的随机前缀 + 36 进制递增序号，例如 "k3x9qz-1a"。
+ * 每个线程从全局计数器一次领取一段序号，段内自增不需要同步，因此无竞争。
+ * 随机前缀保证 sidecar 重启后生成的 id 不会与前端仍持有的旧 id 重复。
+ */
+final class BookmarkIdGenerator {
+
+    private static final int BLOCK_SIZE = 1024;
+
+    private static final String SESSION_PREFIX =
+            Integer.toUnsignedString(ThreadLocalRandom.current().nextInt(), 36) + "-";
+
+    private static final AtomicLong nextBlockStart = new AtomicLong();
+
+    // [0] 下一个可用序号，[1] 当前段的上界（不含）
+    private static final ThreadLocal<long[]> localRange = ThreadLocal.withInitial(() -> new long[2]);
+
+    private BookmarkIdGenerator() {
+    }
+
+    static String nextId() {
+        long[] range = localRange.get();
+        if (range[0] == range[1]) {
+            long start = nextBlockStart.getAndAdd(BLOCK_SIZE);
+            range[0] = start;
+            range[1] = start + BLOCK_SIZE;
+        }
+        return SESSION_PREFIX + Long.toString(range[0]++, 36);
+    }
+}
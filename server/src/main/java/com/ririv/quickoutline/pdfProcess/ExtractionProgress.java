@@ -0,0 +1,13 @@
+package com.ririv.quickoutline.pdfProcess;
+
+/**
+ * 目录提取的逐页进度，每页提取完成后调用，并行提取时可能在多个线程上并发调用（done 不保证按顺序到达）。
+ * 抛出 CancellationException 即中止整个提取，CancellationException 由提取方法原样抛出。
+ */
+@FunctionalInterface
+public interface ExtractionProgress {
+
+    ExtractionProgress NONE = (done, total) -> {};
+
+    void pageDone(int done, int total);
+}
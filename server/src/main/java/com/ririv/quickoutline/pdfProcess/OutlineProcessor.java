@@ -0,0 +1,25 @@
+package com.ririv.quickoutline.pdfProcess;
+
+import com.ririv.quickoutline.model.Bookmark;
+
+import java.io.IOException;
+
+public interface OutlineProcessor {
+
+    /**
+     * 读取 PDF 中已有的目录（书签），转换为 Bookmark 树
+     * @param srcFilePath PDF 路径
+     * @param offset 页码偏移量，结果页码 = 实际页码 - offset
+     * @return 根节点（Outlines），无目录时返回不含子节点的根节点
+     */
+    Bookmark getOutline(String srcFilePath, int offset) throws IOException;
+
+    /**
+     * 用 Bookmark 树替换 PDF 的目录，以增量更新的方式追加到文件末尾，不重写原有对象
+     * @param rootBookmark 根节点
+     * @param srcFilePath 源 PDF 路径
+     * @param destFilePath 目标路径，为 null 或与源路径相同时直接追加到源文件
+     * @param offset 页码偏移量，实际页码 = 书签页码 + offset
+     */
+    void setOutline(Bookmark rootBookmark, String srcFilePath, String destFilePath, int offset) throws IOException;
+}
@@ -0,0 +1,169 @@
+package com.ririv.quickoutline.pdfProcess.itextImpl;
+
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfPage;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.List;
+
+/**
+ * 目录提取各阶段的 JFR 事件，按流水线顺序：打开文档、解析内容流、文本块合并为行、行聚合为块、
+ * 计算主样式、逐页分析。未开启录制时 begin/end 只是读时钟，shouldCommit 为 false，不会填充字段。
+ * 用 ExtractionProfiler 或 jcmd JFR.start 录制。
+ */
+public final class ExtractionEvents {
+
+    public static final String CATEGORY = "QuickOutline";
+
+    private ExtractionEvents() {
+    }
+
+    public static final List<Class<? extends Event>> ALL = List.of(
+            PdfOpen.class, ContentParse.class, LineConversion.class,
+            BlockAggregation.class, DominantStyle.class, TocAnalysis.class);
+
+    @Name("quickoutline.PdfOpen")
+    @Label("PDF Open")
+    @Description("PdfReader and PdfDocument construction for one page task")
+    @Category({CATEGORY, "TOC Extraction"})
+    @StackTrace(false)
+    public static final class PdfOpen extends Event {
+        @Label("Page")
+        public int pageNum;
+        @Label("File Size")
+        @DataAmount
+        public long fileBytes;
+
+        public void finish(int pageNum, PdfDocument pdfDoc) {
+            end();
+            if (shouldCommit()) {
+                this.pageNum = pageNum;
+                this.fileBytes = pdfDoc.getReader().getFileLength();
+                commit();
+            }
+        }
+    }
+
+    @Name("quickoutline.ContentParse")
+    @Label("Content Parse")
+    @Description("PdfCanvasProcessor run over one page")
+    @Category({CATEGORY, "TOC Extraction"})
+    @StackTrace(false)
+    public static final class ContentParse extends Event {
+        @Label("Page")
+        public int pageNum;
+        @Label("Content Stream Size")
+        @Description("Encoded length of the page content streams")
+        @DataAmount
+        public long contentBytes;
+        @Label("Chunks")
+        public int chunkCount;
+
+        public void finish(int pageNum, PdfPage page, int chunkCount) {
+            end();
+            if (shouldCommit()) {
+                this.pageNum = pageNum;
+                long bytes = 0;
+                for (int i = 0; i < page.getContentStreamCount(); i++) {
+                    bytes += page.getContentStream(i).getLength();
+                }
+                this.contentBytes = bytes;
+                this.chunkCount = chunkCount;
+                commit();
+            }
+        }
+    }
+
+    @Name("quickoutline.LineConversion")
+    @Label("Line Conversion")
+    @Description("convertChunksToLines for one page")
+    @Category({CATEGORY, "TOC Extraction"})
+    @StackTrace(false)
+    public static final class LineConversion extends Event {
+        @Label("Page")
+        public int pageNum;
+        @Label("Chunks")
+        public int chunkCount;
+        @Label("Lines")
+        public int lineCount;
+
+        public void finish(int pageNum, int chunkCount, int lineCount) {
+            end();
+            if (shouldCommit()) {
+                this.pageNum = pageNum;
+                this.chunkCount = chunkCount;
+                this.lineCount = lineCount;
+                commit();
+            }
+        }
+    }
+
+    @Name("quickoutline.BlockAggregation")
+    @Label("Block Aggregation")
+    @Description("aggregateLinesIntoBlocks over the whole document")
+    @Category({CATEGORY, "TOC Extraction"})
+    @StackTrace(false)
+    public static final class BlockAggregation extends Event {
+        @Label("Lines")
+        public int lineCount;
+        @Label("Blocks")
+        public int blockCount;
+
+        public void finish(int lineCount, int blockCount) {
+            end();
+            if (shouldCommit()) {
+                this.lineCount = lineCount;
+                this.blockCount = blockCount;
+                commit();
+            }
+        }
+    }
+
+    @Name("quickoutline.DominantStyle")
+    @Label("Dominant Style")
+    @Description("findDominantStyle over the whole document")
+    @Category({CATEGORY, "TOC Extraction"})
+    @StackTrace(false)
+    public static final class DominantStyle extends Event {
+        @Label("Blocks")
+        public int blockCount;
+
+        public void finish(int blockCount) {
+            end();
+            if (shouldCommit()) {
+                this.blockCount = blockCount;
+                commit();
+            }
+        }
+    }
+
+    @Name("quickoutline.TocAnalysis")
+    @Label("TOC Analysis")
+    @Description("findTocBlocksInPage for one page")
+    @Category({CATEGORY, "TOC Extraction"})
+    @StackTrace(false)
+    public static final class TocAnalysis extends Event {
+        @Label("Page")
+        public int pageNum;
+        @Label("Blocks")
+        public int blockCount;
+        @Label("TOC Blocks")
+        public int tocBlockCount;
+
+        public void finish(int pageNum, int blockCount, int tocBlockCount) {
+            end();
+            if (shouldCommit()) {
+                this.pageNum = pageNum;
+                this.blockCount = blockCount;
+                this.tocBlockCount = tocBlockCount;
+                commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.ririv.quickoutline.pdfProcess.itextImpl;
+
+import com.itextpdf.kernel.pdf.*;
+import com.itextpdf.kernel.pdf.navigation.PdfExplicitDestination;
+import com.ririv.quickoutline.model.Bookmark;
+import com.ririv.quickoutline.pdfProcess.OutlineProcessor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+public class ItextOutlineProcessor implements OutlineProcessor {
+
+    private static final Logger log = LoggerFactory.getLogger(ItextOutlineProcessor.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Override
+    public Bookmark getOutline(String srcFilePath, int offset) throws IOException {
+        try (PdfDocument pdfDoc = new PdfDocument(new PdfReader(srcFilePath))) {
+            return readOutline(pdfDoc, offset);
+        }
+    }
+
+    /**
+     * 直接遍历 /Outlines 字典链（First/Next），不经过 PdfDocument.getOutlines。
+     * 页码通过一次性建立的 页对象号 -> 页码 索引解析，命名目标通过一次性展开的名称树解析，
+     * 因此整体为 O(页数 + 书签数)，而不是每个书签一次线性页查找。
+     */
+    public Bookmark readOutline(PdfDocument pdfDoc, int offset) {
+        Bookmark rootBookmark = Bookmark.createRoot();
+        PdfDictionary outlineRoot = pdfDoc.getCatalog().getPdfObject().getAsDictionary(PdfName.Outlines);
+        if (outlineRoot == null) {
+            return rootBookmark;
+        }
+
+        DestinationResolver resolver = new DestinationResolver(pdfDoc);
+
+        // 显式栈代替递归，避免深层目录导致栈溢出
+        Deque<Frame> stack = new ArrayDeque<>();
+        // 防止损坏文件中 Next/First 形成环导致死循环
+        Set<PdfDictionary> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        stack.push(new Frame(outlineRoot.getAsDictionary(PdfName.First), rootBookmark, 1));
+
+        while (!stack.isEmpty()) {
+            Frame frame = stack.peek();
+            PdfDictionary item = frame.next;
+            if (item == null) {
+                stack.pop();
+                continue;
+            }
+            if (!visited.add(item)) {
+                log.warn("Outline item visited twice, broken outline chain is truncated");
+                frame.next = null;
+                continue;
+            }
+            frame.next = item.getAsDictionary(PdfName.Next);
+
+            PdfString titleObj = item.getAsString(PdfName.Title);
+            String title = titleObj == null ? "" : titleObj.toUnicodeString();
+            int pageNum = resolver.resolvePageNum(getDestination(item));
+            Integer offsetPageNum = pageNum > 0 ? pageNum - offset : null;
+
+            Bookmark bookmark = new Bookmark(title, offsetPageNum, frame.level);
+            frame.parent.addChild(bookmark);
+
+            PdfDictionary first = item.getAsDictionary(PdfName.First);
+            if (first != null) {
+                stack.push(new Frame(first, bookmark, frame.level + 1));
+            }
+        }
+        return rootBookmark;
+    }
+
+    @Override
+    public void setOutline(Bookmark rootBookmark, String srcFilePath, String destFilePath, int offset) throws IOException {
+        Path src = Path.of(srcFilePath);
+        Path target = destFilePath == null ? src : Path.of(destFilePath);
+        if (!Files.exists(target) || !Files.isSameFile(src, target)) {
+            Files.copy(src, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        long originalLength = Files.size(target);
+
+        // 追加模式下 iText 会先把原文件原样写入 writer，再写入修改过的对象。
+        // 这里丢弃原文件部分，只保留增量（大小只与目录有关），
+        // 待文档关闭、读句柄释放后再一次性追加到文件末尾，中途失败不会破坏原文件
+        ByteArrayOutputStream increment = new ByteArrayOutputStream();
+        try (PdfDocument pdfDoc = new PdfDocument(
+                new PdfReader(target.toString()),
+                new PdfWriter(new SkipPrefixOutputStream(increment, originalLength)),
+                new StampingProperties().useAppendMode())) {
+            writeOutline(pdfDoc, rootBookmark, offset);
+        }
+
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(target, StandardOpenOption.APPEND), BUFFER_SIZE)) {
+            increment.writeTo(out);
+        }
+        log.info("Outline appended to {}: {} bytes increment on {} bytes file", target, increment.size(), originalLength);
+    }
+
+    /**
+     * 移除旧目录并按 Bookmark 树新建目录。旧的目录对象不再被引用，不会被重写。
+     */
+    public void writeOutline(PdfDocument pdfDoc, Bookmark rootBookmark, int offset) {
+        PdfCatalog catalog = pdfDoc.getCatalog();
+        catalog.getPdfObject().remove(PdfName.Outlines);
+        catalog.setModified();
+        PdfOutline rootOutline = pdfDoc.getOutlines(true);
+
+        int numberOfPages = pdfDoc.getNumberOfPages();
+        Deque<WriteFrame> stack = new ArrayDeque<>();
+        stack.push(new WriteFrame(rootBookmark.getChildren().iterator(), rootOutline));
+        while (!stack.isEmpty()) {
+            WriteFrame frame = stack.peek();
+            if (!frame.children.hasNext()) {
+                stack.pop();
+                continue;
+            }
+            Bookmark bookmark = frame.children.next();
+            PdfOutline outline = frame.parent.addOutline(bookmark.getTitle());
+
+            Optional<Integer> pageNum = bookmark.getPageNum().map(p -> p + offset);
+            if (pageNum.isPresent() && pageNum.get() >= 1 && pageNum.get() <= numberOfPages) {
+                outline.addDestination(PdfExplicitDestination.createFit(pdfDoc.getPage(pageNum.get())));
+            } else if (pageNum.isPresent()) {
+                log.warn("Page {} of bookmark '{}' is out of range (1-{}), destination omitted",
+                        pageNum.get(), bookmark.getTitle(), numberOfPages);
+            }
+
+            if (!bookmark.getChildren().isEmpty()) {
+                stack.push(new WriteFrame(bookmark.getChildren().iterator(), outline));
+            }
+        }
+    }
+
+    // 书签可用 /Dest 直接指定目标，也可用 /A 的 GoTo 动作指定
+    private static PdfObject getDestination(PdfDictionary item) {
+        PdfObject dest = item.get(PdfName.Dest);
+        if (dest != null) return dest;
+        PdfDictionary action = item.getAsDictionary(PdfName.A);
+        if (action != null && PdfName.GoTo.equals(action.getAsName(PdfName.S))) {
+            return action.get(PdfName.D);
+        }
+        return null;
+    }
+
+    private static final class Frame {
+        PdfDictionary next;
+        final Bookmark parent;
+        final int level; // 该层书签的层级
+
+        Frame(PdfDictionary next, Bookmark parent, int level) {
+            this.next = next;
+            this.parent = parent;
+            this.level = level;
+        }
+    }
+
+    private static final class WriteFrame {
+        final Iterator<Bookmark> children;
+        final PdfOutline parent;
+
+        WriteFrame(Iterator<Bookmark> children, PdfOutline parent) {
+            this.children = children;
+            this.parent = parent;
+        }
+    }
+
+    /**
+     * 丢弃前 skip 个字节，其余写入 delegate。
+     * 写入者（PdfWriter）仍按完整长度计算偏移量，因此增量中的 xref 偏移对追加后的文件是正确的。
+     */
+    private static final class SkipPrefixOutputStream extends OutputStream {
+        private final OutputStream delegate;
+        private long remainingToSkip;
+
+        SkipPrefixOutputStream(OutputStream delegate, long skip) {
+            this.delegate = delegate;
+            this.remainingToSkip = skip;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (remainingToSkip > 0) {
+                remainingToSkip--;
+            } else {
+                delegate.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (remainingToSkip > 0) {
+                int skipped = (int) Math.min(remainingToSkip, len);
+                remainingToSkip -= skipped;
+                off += skipped;
+                len -= skipped;
+            }
+            if (len > 0) {
+                delegate.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+
+    /**
+     * 目标解析器：页码索引与命名目标索引都只在构造时建立一次。
+     */
+    static final class DestinationResolver {
+        // 下标为页对象的对象号，值为页码（从1开始），0 表示不是页对象
+        private final int[] pageNumByObjNr;
+        private final Map<String, PdfObject> namedDests = new HashMap<>();
+
+        DestinationResolver(PdfDocument pdfDoc) {
+            int numberOfPages = pdfDoc.getNumberOfPages();
+            int[] index = new int[pdfDoc.getNumberOfPdfObjects() + 1];
+            for (int i = 1; i <= numberOfPages; i++) {
+                PdfIndirectReference ref = pdfDoc.getPage(i).getPdfObject().getIndirectReference();
+                if (ref == null) continue;
+                int objNr = ref.getObjNumber();
+                if (objNr >= index.length) {
+                    index = Arrays.copyOf(index, Math.max(objNr + 1, index.length * 2));
+                }
+                index[objNr] = i;
+            }
+            this.pageNumByObjNr = index;
+
+            // PDF 1.1 的 /Dests 字典
+            PdfDictionary catalog = pdfDoc.getCatalog().getPdfObject();
+            PdfDictionary legacyDests = catalog.getAsDictionary(PdfName.Dests);
+            if (legacyDests != null) {
+                for (PdfName key : legacyDests.keySet()) {
+                    namedDests.put(key.getValue(), legacyDests.get(key));
+                }
+            }
+            // PDF 1.2+ 的 /Names /Dests 名称树，getNames 会一次展开整个树
+            PdfDictionary names = catalog.getAsDictionary(PdfName.Names);
+            if (names != null && names.containsKey(PdfName.Dests)) {
+                for (Map.Entry<PdfString, PdfObject> entry : pdfDoc.getCatalog().getNameTree(PdfName.Dests).getNames().entrySet()) {
+                    namedDests.put(entry.getKey().getValue(), entry.getValue());
+                }
+            }
+        }
+
+        /**
+         * @return 页码（从1开始），无法解析时返回 -1
+         */
+        int resolvePageNum(PdfObject dest) {
+            dest = deref(dest);
+            if (dest == null) return -1;
+
+            if (dest.isString()) {
+                dest = deref(namedDests.get(((PdfString) dest).getValue()));
+            } else if (dest.isName()) {
+                dest = deref(namedDests.get(((PdfName) dest).getValue()));
+            }
+            if (dest != null && dest.isDictionary()) { // 命名目标的值可以是含 /D 的字典
+                dest = deref(((PdfDictionary) dest).get(PdfName.D));
+            }
+            if (dest == null || !dest.isArray() || ((PdfArray) dest).isEmpty()) return -1;
+
+            PdfObject page = ((PdfArray) dest).get(0, false);
+            if (page.isIndirectReference()) {
+                return pageNumOf(((PdfIndirectReference) page).getObjNumber());
+            }
+            if (page.isDictionary() && page.getIndirectReference() != null) {
+                return pageNumOf(page.getIndirectReference().getObjNumber());
+            }
+            if (page.isNumber()) { // 远程目标形式，页号从0开始
+                return ((PdfNumber) page).intValue() + 1;
+            }
+            return -1;
+        }
+
+        private int pageNumOf(int objNr) {
+            if (objNr < 0 || objNr >= pageNumByObjNr.length) return -1;
+            int pageNum = pageNumByObjNr[objNr];
+            return pageNum == 0 ? -1 : pageNum;
+        }
+
+        private static PdfObject deref(PdfObject obj) {
+            if (obj != null && obj.isIndirectReference()) {
+                return ((PdfIndirectReference) obj).getRefersTo();
+            }
+            return obj;
+        }
+    }
+}
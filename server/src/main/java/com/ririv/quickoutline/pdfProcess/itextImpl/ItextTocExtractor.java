@@ -1,21 +1,32 @@
 package com.ririv.quickoutline.pdfProcess.itextImpl;
 
+import com.itextpdf.kernel.font.PdfFont;
 import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfPage;
 import com.itextpdf.kernel.pdf.PdfReader;
 import com.itextpdf.kernel.pdf.canvas.parser.PdfCanvasProcessor;
+import com.ririv.quickoutline.pdfProcess.ExtractionProgress;
 import com.ririv.quickoutline.pdfProcess.TocExtractor;
 import com.ririv.quickoutline.pdfProcess.itextImpl.model.LineWithMetadata;
 import com.ririv.quickoutline.pdfProcess.itextImpl.model.Style;
 import com.ririv.quickoutline.pdfProcess.itextImpl.model.TextBlock;
+import com.ririv.quickoutline.pdfProcess.itextImpl.model.TextChunk;
+import com.ririv.quickoutline.service.metrics.Metrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -26,33 +37,81 @@ public class ItextTocExtractor implements TocExtractor {
     private static final Logger log = LoggerFactory.getLogger(ItextTocExtractor.class);
 
     private final String pdfPath;
+    private final ExecutorService executor; // 为 null 时每次提取自建线程池
+    private final Runnable checkpoint; // 每页开始前及页内每个文本块调用，供后台任务让出 CPU
+    private boolean deduplicatePages = true;
+    private ExtractionProgress progress = ExtractionProgress.NONE;
 
     public ItextTocExtractor(String pdfPath) {
+        this(pdfPath, null, () -> {});
+    }
+
+    public ItextTocExtractor(String pdfPath, ExecutorService executor, Runnable checkpoint) {
         this.pdfPath = pdfPath;
+        this.executor = executor;
+        this.checkpoint = checkpoint;
+    }
+
+    /**
+     * 是否复用内容相同页面的解析结果（见 PageDeduplicator），默认开启
+     */
+    public ItextTocExtractor deduplicatePages(boolean enabled) {
+        this.deduplicatePages = enabled;
+        return this;
     }
 
+    /**
+     * extract() 每提取完一页报告一次进度
+     */
+    public ItextTocExtractor progress(ExtractionProgress progress) {
+        this.progress = progress;
+        return this;
+    }
+
+    /**
+     * progress 抛出的 CancellationException 原样抛出
+     */
     @Override
     public List<String> extract() {
+        long start = System.nanoTime();
+        int pages;
         try (PdfDocument pdfDoc = new PdfDocument(new PdfReader(pdfPath))) {
-            return extract(1, pdfDoc.getNumberOfPages());
+            pages = pdfDoc.getNumberOfPages();
         } catch (IOException e) {
             log.error("Failed to read PDF for page count", e);
             return Collections.emptyList();
         }
+        List<String> result = extract(1, pages);
+        Metrics.global().recordExtraction(pages, System.nanoTime() - start);
+        return result;
     }
 
     private List<String> extract(int startPageNum, int endPageNum) {
-        int numThreads = Runtime.getRuntime().availableProcessors();
-        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        ExecutorService executor = this.executor != null
+                ? this.executor
+                : Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
 
         // --- 第一阶段: 并行提取所有页面的 TextBlock ---
-        List<TextBlock> allBlocks = extractTextBlocksInParallel(startPageNum, endPageNum, executor);
+        PageDeduplicator duplicates = deduplicatePages ? new PageDeduplicator() : null;
+        List<TextBlock> allBlocks;
+        try {
+            allBlocks = extractTextBlocksInParallel(startPageNum, endPageNum, executor, duplicates);
+        } catch (CancellationException e) {
+            if (executor != this.executor) executor.shutdownNow();
+            throw e;
+        }
+        if (duplicates != null) {
+            Metrics.global().recordDuplicatePages(duplicates.getDuplicatePages(), duplicates.getSavedNanos());
+        }
 
         // --- 第二阶段: 计算全局样式，然后并行分析 ---
         TocAnalyser tocAnalyser = new TocAnalyser();
 
         // 1. 计算全局 Dominant Style
+        ExtractionEvents.DominantStyle styleEvent = new ExtractionEvents.DominantStyle();
+        styleEvent.begin();
         Style dominantStyle = tocAnalyser.findDominantStyle(allBlocks);
+        styleEvent.finish(allBlocks.size());
 
         // 2. 按页码分组
         Map<Integer, List<TextBlock>> blocksByPage = allBlocks.stream()
@@ -60,8 +119,16 @@ public class ItextTocExtractor implements TocExtractor {
 
         // 3. 并行分析每个页面的 Block
         List<Callable<List<TextBlock>>> analysisTasks = new ArrayList<>();
-        for (List<TextBlock> pageBlocks : blocksByPage.values()) {
-            analysisTasks.add(() -> tocAnalyser.findTocBlocksInPage(pageBlocks, dominantStyle));
+        for (Map.Entry<Integer, List<TextBlock>> page : blocksByPage.entrySet()) {
+            List<TextBlock> pageBlocks = page.getValue();
+            analysisTasks.add(() -> {
+                checkpoint.run();
+                ExtractionEvents.TocAnalysis event = new ExtractionEvents.TocAnalysis();
+                event.begin();
+                List<TextBlock> tocBlocks = tocAnalyser.findTocBlocksInPage(pageBlocks, dominantStyle);
+                event.finish(page.getKey(), pageBlocks.size(), tocBlocks.size());
+                return tocBlocks;
+            });
         }
 
         // 4. 收集并格式化最终结果
@@ -78,22 +145,42 @@ public class ItextTocExtractor implements TocExtractor {
             Thread.currentThread().interrupt(); // Reset the interrupted status
         }
 
-        executor.shutdown();
+        if (executor != this.executor) {
+            executor.shutdown();
+        }
         return tocResult;
     }
 
-    private List<TextBlock> extractTextBlocksInParallel(int startPageNum, int endPageNum, ExecutorService executor) {
+    private List<TextBlock> extractTextBlocksInParallel(int startPageNum, int endPageNum, ExecutorService executor,
+                                                        PageDeduplicator duplicates) {
+        int total = endPageNum - startPageNum + 1;
+        AtomicInteger done = new AtomicInteger();
+        AtomicBoolean cancelled = new AtomicBoolean(); // 已取消时尚未开始的页面直接跳过
         List<Callable<List<LineWithMetadata>>> extractionTasks = IntStream.rangeClosed(startPageNum, endPageNum)
                 .mapToObj(pageNum -> (Callable<List<LineWithMetadata>>) () -> {
+                    if (cancelled.get()) throw new CancellationException();
+                    checkpoint.run();
+                    List<LineWithMetadata> lines;
                     // 每个线程创建自己的 PdfDocument 实例
+                    ExtractionEvents.PdfOpen openEvent = new ExtractionEvents.PdfOpen();
+                    openEvent.begin();
                     try (PdfDocument pdfDoc = new PdfDocument(new PdfReader(pdfPath))) {
-                        MetadataTextExtractionStrategy strategy = new MetadataTextExtractionStrategy();
-                        new PdfCanvasProcessor(strategy).processPageContent(pdfDoc.getPage(pageNum));
-                        return convertChunksToLines(strategy.getTextChunks(), pdfDoc.getPage(pageNum), pdfDoc);
+                        openEvent.finish(pageNum, pdfDoc);
+                        lines = extractPage(pdfDoc, pageNum, duplicates, new PageFingerprinter(), new IdentityHashMap<>());
+                    } catch (CancellationException e) {
+                        cancelled.set(true);
+                        throw e;
                     } catch (Exception e) {
                         log.error("Error extracting lines from page {}", pageNum, e);
-                        return Collections.emptyList();
+                        lines = Collections.emptyList();
                     }
+                    try {
+                        progress.pageDone(done.incrementAndGet(), total);
+                    } catch (CancellationException e) {
+                        cancelled.set(true);
+                        throw e;
+                    }
+                    return lines;
                 })
                 .collect(Collectors.toList());
 
@@ -103,11 +190,173 @@ public class ItextTocExtractor implements TocExtractor {
             for (Future<List<LineWithMetadata>> future : futures) {
                 allLines.addAll(future.get());
             }
-        } catch (InterruptedException | ExecutionException e) {
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof CancellationException cancellation) throw cancellation;
+            log.error("Error during parallel line extraction", e);
+        } catch (InterruptedException e) {
+            log.error("Error during parallel line extraction", e);
+            Thread.currentThread().interrupt(); // Reset the interrupted status
+        }
+
+        return aggregate(allLines);
+    }
+
+    private List<LineWithMetadata> extractPage(PdfDocument pdfDoc, int pageNum, PageDeduplicator duplicates,
+                                               PageFingerprinter fingerprinter, Map<PdfFont, String> fontNames) {
+        if (duplicates == null) {
+            return extractPage(pdfDoc, pageNum, checkpoint, fontNames);
+        }
+        return duplicates.extract(pdfDoc.getPage(pageNum), pageNum, fingerprinter,
+                () -> extractPage(pdfDoc, pageNum, checkpoint, fontNames));
+    }
+
+    /**
+     * 在调用方持有的 PdfDocument 上提取一页的行，供长期持有文档的调用方（如 DocumentRegistry）复用已解析的结构
+     * @param fontNames 字体名缓存，须与 pdfDoc 对应
+     */
+    public static List<LineWithMetadata> extractPage(PdfDocument pdfDoc, int pageNum, Runnable checkpoint,
+                                                     Map<PdfFont, String> fontNames) {
+        PdfPage page = pdfDoc.getPage(pageNum);
+
+        ExtractionEvents.ContentParse parseEvent = new ExtractionEvents.ContentParse();
+        parseEvent.begin();
+        MetadataTextExtractionStrategy strategy = new MetadataTextExtractionStrategy(checkpoint, fontNames);
+        new PdfCanvasProcessor(strategy).processPageContent(page);
+        List<TextChunk> chunks = strategy.getTextChunks();
+        parseEvent.finish(pageNum, page, chunks.size());
+
+        ExtractionEvents.LineConversion lineEvent = new ExtractionEvents.LineConversion();
+        lineEvent.begin();
+        List<LineWithMetadata> lines = convertChunksToLines(chunks, page, pdfDoc);
+        lineEvent.finish(pageNum, chunks.size(), lines.size());
+        return lines;
+    }
+
+    private static List<TextBlock> aggregate(List<LineWithMetadata> lines) {
+        ExtractionEvents.BlockAggregation event = new ExtractionEvents.BlockAggregation();
+        event.begin();
+        List<TextBlock> blocks = TextBlock.aggregateLinesIntoBlocks(lines);
+        event.finish(lines.size(), blocks.size());
+        return blocks;
+    }
+
+    /**
+     * 一页的行及其指纹（见 PageFingerprinter），见 {@link #extractPagesInParallel}
+     */
+    public record ParsedPage(int pageNum, String fingerprint, List<LineWithMetadata> lines) {
+    }
+
+    /**
+     * 并行提取指定页面的行，与 extract() 一样每个任务打开自己的 PdfDocument，内容相同的页面只解析一次。
+     * 用于自行缓存页面模型的调用方（如 DocumentHandle）：每页完成后在工作线程上调用 consumer，
+     * 解析失败的页面记录日志后跳过，不调用 consumer。checkpoint 或 consumer 抛出的 CancellationException 中止提取并原样抛出
+     */
+    public void extractPagesInParallel(int[] pageNums, Consumer<ParsedPage> consumer) {
+        ExecutorService executor = this.executor != null
+                ? this.executor
+                : Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        PageDeduplicator duplicates = new PageDeduplicator();
+        AtomicBoolean cancelled = new AtomicBoolean(); // 已取消时尚未开始的页面直接跳过
+        List<Callable<Void>> tasks = Arrays.stream(pageNums)
+                .mapToObj(pageNum -> (Callable<Void>) () -> {
+                    if (cancelled.get()) throw new CancellationException();
+                    try {
+                        checkpoint.run();
+                        ParsedPage parsed = null;
+                        ExtractionEvents.PdfOpen openEvent = new ExtractionEvents.PdfOpen();
+                        openEvent.begin();
+                        try (PdfDocument pdfDoc = new PdfDocument(new PdfReader(pdfPath))) {
+                            openEvent.finish(pageNum, pdfDoc);
+                            String fingerprint = new PageFingerprinter().fingerprint(pdfDoc.getPage(pageNum));
+                            List<LineWithMetadata> lines = duplicates.extract(fingerprint, pageNum,
+                                    () -> extractPage(pdfDoc, pageNum, checkpoint, new IdentityHashMap<>()));
+                            parsed = new ParsedPage(pageNum, fingerprint, lines);
+                        } catch (CancellationException e) {
+                            throw e;
+                        } catch (Exception e) {
+                            log.error("Error extracting lines from page {}", pageNum, e);
+                        }
+                        if (parsed != null) consumer.accept(parsed);
+                        return null;
+                    } catch (CancellationException e) {
+                        cancelled.set(true);
+                        throw e;
+                    }
+                })
+                .collect(Collectors.toList());
+
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof CancellationException cancellation) throw cancellation;
+            log.error("Error during parallel line extraction", e);
+        } catch (InterruptedException e) {
             log.error("Error during parallel line extraction", e);
             Thread.currentThread().interrupt(); // Reset the interrupted status
+        } finally {
+            if (executor != this.executor) executor.shutdownNow();
+        }
+        Metrics.global().recordDuplicatePages(duplicates.getDuplicatePages(), duplicates.getSavedNanos());
+    }
+
+    /**
+     * 在调用线程上顺序提取一段页面的行，整段只打开一次文档。
+     * 用于由调用方自行切分和调度页面的场景（如批量提取），结果交给 {@link #analyse} 。
+     * checkpoint 抛出的 CancellationException 原样抛出。
+     */
+    public List<LineWithMetadata> extractLines(int startPageNum, int endPageNum) throws IOException {
+        return extractLines(startPageNum, endPageNum, deduplicatePages ? new PageDeduplicator() : null);
+    }
+
+    /**
+     * @param duplicates 在同一文件的多段之间共享，可跨段复用相同页面；为 null 时不去重
+     */
+    public List<LineWithMetadata> extractLines(int startPageNum, int endPageNum, PageDeduplicator duplicates)
+            throws IOException {
+        List<LineWithMetadata> lines = new ArrayList<>();
+        ExtractionEvents.PdfOpen openEvent = new ExtractionEvents.PdfOpen();
+        openEvent.begin();
+        try (PdfDocument pdfDoc = new PdfDocument(new PdfReader(pdfPath))) {
+            openEvent.finish(startPageNum, pdfDoc);
+            Map<PdfFont, String> fontNames = new IdentityHashMap<>();
+            PageFingerprinter fingerprinter = new PageFingerprinter();
+            for (int pageNum = startPageNum; pageNum <= endPageNum; pageNum++) {
+                checkpoint.run();
+                try {
+                    lines.addAll(extractPage(pdfDoc, pageNum, duplicates, fingerprinter, fontNames));
+                } catch (CancellationException e) {
+                    throw e; // checkpoint 取消整段提取，不当作单页失败
+                } catch (Exception e) {
+                    log.error("Error extracting lines from page {}", pageNum, e);
+                }
+            }
         }
+        return lines;
+    }
 
-        return TextBlock.aggregateLinesIntoBlocks(allLines);
+    /**
+     * 第二阶段的顺序版本：lines 须按页码顺序排列，返回按页码顺序的目录文本块
+     */
+    public static List<String> analyse(List<LineWithMetadata> lines) {
+        List<TextBlock> allBlocks = aggregate(lines);
+        TocAnalyser tocAnalyser = new TocAnalyser();
+        ExtractionEvents.DominantStyle styleEvent = new ExtractionEvents.DominantStyle();
+        styleEvent.begin();
+        Style dominantStyle = tocAnalyser.findDominantStyle(allBlocks);
+        styleEvent.finish(allBlocks.size());
+
+        Map<Integer, List<TextBlock>> blocksByPage = allBlocks.stream()
+                .collect(Collectors.groupingBy(b -> b.getPrimaryLine().getPageNum(), TreeMap::new, Collectors.toList()));
+        List<String> tocResult = new ArrayList<>();
+        for (Map.Entry<Integer, List<TextBlock>> page : blocksByPage.entrySet()) {
+            ExtractionEvents.TocAnalysis event = new ExtractionEvents.TocAnalysis();
+            event.begin();
+            List<TextBlock> tocBlocks = tocAnalyser.findTocBlocksInPage(page.getValue(), dominantStyle);
+            event.finish(page.getKey(), page.getValue().size(), tocBlocks.size());
+            tocBlocks.stream().map(TextBlock::reconstructBlockWithSpaces).forEach(tocResult::add);
+        }
+        return tocResult;
     }
 }
@@ -11,16 +11,35 @@ import com.ririv.quickoutline.pdfProcess.itextImpl.model.TextChunk;
 
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public class MetadataTextExtractionStrategy implements ITextExtractionStrategy {
 
     private final List<TextChunk> textChunks = new ArrayList<>();
+    private final Runnable checkpoint; // 每个文本块调用一次，使后台提取在页内也能让出
+    // PdfFont -> 字体名。同一 PdfDocument 内 iText 按字体字典复用 PdfFont，可跨页共享，各文本块共用同一个字体名实例
+    private final Map<PdfFont, String> fontNames;
+
+    public MetadataTextExtractionStrategy() {
+        this(() -> {});
+    }
+
+    public MetadataTextExtractionStrategy(Runnable checkpoint) {
+        this(checkpoint, new IdentityHashMap<>());
+    }
+
+    public MetadataTextExtractionStrategy(Runnable checkpoint, Map<PdfFont, String> fontNames) {
+        this.checkpoint = checkpoint;
+        this.fontNames = fontNames;
+    }
 
     @Override
     public void eventOccurred(IEventData data, EventType type) {
         if (type.equals(EventType.RENDER_TEXT)) {
+            checkpoint.run();
             TextRenderInfo renderInfo = (TextRenderInfo) data;
             String text = renderInfo.getText();
             if (text == null || text.trim().isEmpty()) {
@@ -48,7 +67,8 @@ public class MetadataTextExtractionStrategy implements ITextExtractionStrategy {
                 skew = Math.pow(skewX, 2) + Math.pow(skewY, 2);
             }
 
-            textChunks.add(new TextChunk(text, x, y, width, font.getFontProgram().getFontNames().getFontName(), fontSize, singleSpaceWidth, skew));
+            String fontName = fontNames.computeIfAbsent(font, f -> f.getFontProgram().getFontNames().getFontName());
+            textChunks.add(new TextChunk(text, x, y, width, fontName, fontSize, singleSpaceWidth, skew));
         }
     }
 
@@ -0,0 +1,98 @@
+package com.ririv.quickoutline.pdfProcess.itextImpl;
+
+import com.itextpdf.kernel.pdf.PdfPage;
+import com.ririv.quickoutline.pdfProcess.itextImpl.model.LineWithMetadata;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 按页面指纹（见 PageFingerprinter）复用内容相同页面的提取结果，如空白页、分隔页、只引用同一个 Form XObject 的页面。
+ * 某个指纹第一次出现时正常解析，之后的页面复用其行，只改写页码。
+ * 指纹按内容计算，一个实例可以在多个线程、多个 PdfDocument 实例之间共享（对应同一个文件）；
+ * 同一指纹的页面正在别的线程上解析时等待其结果，而不是重复解析。
+ */
+public class PageDeduplicator {
+
+    private record Parsed(List<LineWithMetadata> lines, long nanos) {
+    }
+
+    private final ConcurrentHashMap<String, CompletableFuture<Parsed>> pages = new ConcurrentHashMap<>();
+    private final LongAdder parsedPages = new LongAdder();
+    private final LongAdder duplicatePages = new LongAdder();
+    private final LongAdder savedNanos = new LongAdder();
+
+    /**
+     * @param parse 解析该页，只在没有相同内容的页面时调用
+     */
+    public List<LineWithMetadata> extract(PdfPage page, int pageNum, PageFingerprinter fingerprinter,
+                                         Supplier<List<LineWithMetadata>> parse) {
+        return extract(fingerprinter.fingerprint(page), pageNum, parse);
+    }
+
+    /**
+     * @param fingerprint 调用方已算出的页面指纹
+     */
+    public List<LineWithMetadata> extract(String fingerprint, int pageNum, Supplier<List<LineWithMetadata>> parse) {
+        CompletableFuture<Parsed> mine = new CompletableFuture<>();
+        CompletableFuture<Parsed> existing = pages.putIfAbsent(fingerprint, mine);
+        if (existing == null) {
+            long start = System.nanoTime();
+            List<LineWithMetadata> lines;
+            try {
+                lines = parse.get();
+            } catch (Throwable e) { // 包括 iText 内部的 StackOverflowError 等，否则等待的线程永远阻塞
+                pages.remove(fingerprint, mine); // 让之后的相同页面自己解析
+                mine.completeExceptionally(e);
+                throw e;
+            }
+            parsedPages.increment();
+            mine.complete(new Parsed(lines, System.nanoTime() - start));
+            return lines;
+        }
+
+        Parsed source;
+        try {
+            source = existing.join();
+        } catch (CompletionException | CancellationException e) {
+            parsedPages.increment(); // 首个相同页面解析失败，单独解析本页
+            return parse.get();
+        }
+        duplicatePages.increment();
+        savedNanos.add(source.nanos());
+        return onPage(source.lines(), pageNum);
+    }
+
+    /**
+     * 把另一页的行改写到 pageNum 页，页码相同时原样返回
+     */
+    public static List<LineWithMetadata> onPage(List<LineWithMetadata> lines, int pageNum) {
+        if (lines.isEmpty() || lines.get(0).getPageNum() == pageNum) return lines;
+        List<LineWithMetadata> moved = new ArrayList<>(lines.size());
+        for (LineWithMetadata line : lines) {
+            moved.add(line.withPageNum(pageNum));
+        }
+        return moved;
+    }
+
+    public long getParsedPages() {
+        return parsedPages.sum();
+    }
+
+    public long getDuplicatePages() {
+        return duplicatePages.sum();
+    }
+
+    /**
+     * 复用结果省下的解析时间，按被复用页面自身的解析耗时估算
+     */
+    public long getSavedNanos() {
+        return savedNanos.sum();
+    }
+}
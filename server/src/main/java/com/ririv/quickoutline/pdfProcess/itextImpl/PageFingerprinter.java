@@ -0,0 +1,158 @@
+package com.ririv.quickoutline.pdfProcess.itextImpl;
+
+import com.itextpdf.kernel.geom.Rectangle;
+import com.itextpdf.kernel.pdf.PdfArray;
+import com.itextpdf.kernel.pdf.PdfBoolean;
+import com.itextpdf.kernel.pdf.PdfDictionary;
+import com.itextpdf.kernel.pdf.PdfIndirectReference;
+import com.itextpdf.kernel.pdf.PdfName;
+import com.itextpdf.kernel.pdf.PdfNumber;
+import com.itextpdf.kernel.pdf.PdfObject;
+import com.itextpdf.kernel.pdf.PdfPage;
+import com.itextpdf.kernel.pdf.PdfStream;
+import com.itextpdf.kernel.pdf.PdfString;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 页面指纹：内容流的原始字节、（含继承的）资源字典递归展开后的内容（字体、XObject 等，含其流字节）、页面尺寸和旋转。
+ * 指纹相同的两页文本提取结果相同（页码除外）。图片和嵌入字体程序不影响提取出的文本，只计入其字典，不读取字节，
+ * 否则图片页和嵌入大字体的页面上，计算指纹的代价会接近甚至超过解析本身。
+ * 间接对象按内容而不是对象号计算，重新保存导致的对象重新编号不影响指纹；
+ * 同一实例内算过的间接对象会被缓存，多页共享的字体、XObject 只读取一次。实例只对应一个 PdfDocument，非线程安全。
+ */
+public class PageFingerprinter {
+
+    private static final byte[] CYCLE = {'@'}; // 正在计算的间接对象再次出现（循环引用）
+    private static final Set<PdfName> FONT_PROGRAMS = Set.of(PdfName.FontFile, PdfName.FontFile2, PdfName.FontFile3);
+
+    private final Map<PdfIndirectReference, byte[]> digests = new HashMap<>();
+
+    public String fingerprint(PdfPage page) {
+        MessageDigest md = newDigest();
+        PdfDictionary pageDict = page.getPdfObject();
+        update(md, pageDict.get(PdfName.Contents, false));
+        update(md, page.getResources().getPdfObject());
+        Rectangle size = page.getPageSize();
+        updateFloat(md, size.getX());
+        updateFloat(md, size.getY());
+        updateFloat(md, size.getWidth());
+        updateFloat(md, size.getHeight());
+        updateFloat(md, page.getRotation());
+        return HexFormat.of().formatHex(md.digest());
+    }
+
+    private void update(MessageDigest md, PdfObject object) {
+        if (object == null) {
+            md.update((byte) 'n');
+            return;
+        }
+        PdfIndirectReference ref = object instanceof PdfIndirectReference r ? r : object.getIndirectReference();
+        if (ref == null) {
+            updateDirect(md, object);
+            return;
+        }
+        byte[] digest = digests.get(ref);
+        if (digest == null) {
+            digests.put(ref, CYCLE);
+            MessageDigest inner = newDigest();
+            updateDirect(inner, object instanceof PdfIndirectReference r ? r.getRefersTo() : object);
+            digest = inner.digest();
+            digests.put(ref, digest);
+        }
+        md.update((byte) 'r');
+        md.update(digest);
+    }
+
+    private void updateDirect(MessageDigest md, PdfObject object) {
+        if (object == null) {
+            md.update((byte) 'n');
+        } else if (object instanceof PdfStream stream) {
+            md.update((byte) 's');
+            updateDictionary(md, stream, true);
+            if (!PdfName.Image.equals(stream.getAsName(PdfName.Subtype))) {
+                byte[] bytes = stream.getBytes(false);
+                updateInt(md, bytes.length);
+                md.update(bytes);
+            }
+        } else if (object instanceof PdfDictionary dict) {
+            md.update((byte) 'd');
+            updateDictionary(md, dict, false);
+        } else if (object instanceof PdfArray array) {
+            md.update((byte) 'a');
+            updateInt(md, array.size());
+            for (int i = 0; i < array.size(); i++) {
+                update(md, array.get(i, false));
+            }
+        } else if (object instanceof PdfName name) {
+            md.update((byte) '/');
+            updateString(md, name.getValue());
+        } else if (object instanceof PdfString string) {
+            md.update((byte) '(');
+            byte[] bytes = string.getValueBytes();
+            updateInt(md, bytes.length);
+            md.update(bytes);
+        } else if (object instanceof PdfNumber number) {
+            md.update((byte) '#');
+            long bits = Double.doubleToLongBits(number.getValue());
+            updateInt(md, (int) (bits >>> 32));
+            updateInt(md, (int) bits);
+        } else if (object instanceof PdfBoolean bool) {
+            md.update((byte) (bool.getValue() ? 'T' : 'F'));
+        } else {
+            md.update((byte) '?');
+            updateString(md, object.toString());
+        }
+    }
+
+    // 键按名称排序，与字典内的存放顺序无关；Parent 指回页面树，Length 随压缩变化且已由流字节体现
+    private void updateDictionary(MessageDigest md, PdfDictionary dict, boolean stream) {
+        List<PdfName> keys = new ArrayList<>(dict.keySet());
+        keys.sort(null);
+        updateInt(md, keys.size());
+        for (PdfName key : keys) {
+            if (PdfName.Parent.equals(key) || (stream && PdfName.Length.equals(key))) continue;
+            updateString(md, key.getValue());
+            if (FONT_PROGRAMS.contains(key) && dict.get(key) instanceof PdfStream fontProgram) {
+                // 字体程序只在字体描述符中引用，字体描述符本身已按间接对象缓存
+                md.update((byte) 'f');
+                updateDictionary(md, fontProgram, false);
+            } else {
+                update(md, dict.get(key, false));
+            }
+        }
+    }
+
+    private static void updateString(MessageDigest md, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        updateInt(md, bytes.length);
+        md.update(bytes);
+    }
+
+    private static void updateFloat(MessageDigest md, float value) {
+        updateInt(md, Float.floatToIntBits(value));
+    }
+
+    private static void updateInt(MessageDigest md, int value) {
+        md.update((byte) (value >>> 24));
+        md.update((byte) (value >>> 16));
+        md.update((byte) (value >>> 8));
+        md.update((byte) value);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // 每个 JDK 都必须提供 SHA-256
+        }
+    }
+}
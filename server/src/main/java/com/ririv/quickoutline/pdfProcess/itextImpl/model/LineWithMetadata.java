@@ -38,4 +38,10 @@ public class LineWithMetadata {
     public Rectangle getPageSize() { return pageSize; }
     public double getSkew() { return skew; }
     public List<TextChunk> getChunks() { return chunks; }
+
+    // 内容相同的另一页上的同一行（见 PageDeduplicator），文本块共用
+    public LineWithMetadata withPageNum(int pageNum) {
+        if (pageNum == this.pageNum) return this;
+        return new LineWithMetadata(textContent, x, y, width, style, pageNum, pageSize, skew, chunks);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,83 @@
+package com.ririv.quickoutline.server;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParser;
+import com.ririv.quickoutline.service.Warmup;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.WebSocket;
+import io.vertx.core.http.WebSocketClient;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * CDS 训练运行（--cds-training）的工作负载：像前端一样连上自己，
+ * 通过 WebSocket 调用常用 RPC（含一次整本提取）并请求 /metrics，
+ * 使这些路径上加载的类都进入 -XX:ArchiveClassesAtExit 生成的归档。
+ */
+final class CdsTraining {
+
+    private static final long TIMEOUT_SECONDS = 60;
+
+    private CdsTraining() {
+    }
+
+    static void run(Vertx vertx, int port) throws Exception {
+        Path pdf = Files.createTempFile("quickoutline-cds", ".pdf");
+        try {
+            Files.write(pdf, Warmup.samplePdf());
+            String path = pdf.toString();
+            call(vertx, port, "", List.of(
+                    request("1", "stats"),
+                    request("2", "extractToc", path),
+                    request("3", "openOutlineSession", path, 0),
+                    request("4", "getOutlineSnapshot", path),
+                    request("5", "closeOutlineSession", path)));
+            call(vertx, port, "?format=binary", List.of(request("6", "stats")));
+
+            HttpClient http = vertx.createHttpClient();
+            http.request(HttpMethod.GET, port, "127.0.0.1", "/metrics")
+                    .compose(req -> req.send().compose(resp -> resp.body()))
+                    .toCompletionStage().toCompletableFuture()
+                    .get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            http.close();
+        } finally {
+            Files.deleteIfExists(pdf);
+        }
+    }
+
+    private static String request(String id, String method, Object... params) {
+        return new Gson().toJson(Map.of("id", id, "method", method, "params", List.of(params)));
+    }
+
+    // 发送请求并等全部响应到达；未设置 coalesceMs 时每个响应一条消息
+    private static void call(Vertx vertx, int port, String query, List<String> requests) throws Exception {
+        WebSocketClient client = vertx.createWebSocketClient();
+        AtomicInteger remaining = new AtomicInteger(requests.size());
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        WebSocket ws = client.connect(port, "127.0.0.1", "/ws/tauri" + query)
+                .toCompletionStage().toCompletableFuture()
+                .get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        ws.textMessageHandler(text -> {
+            if (JsonParser.parseString(text).getAsJsonObject().has("id") && remaining.decrementAndGet() == 0) {
+                done.complete(null); // 没有 id 的是推送事件
+            }
+        });
+        ws.binaryMessageHandler(buffer -> {
+            if (remaining.decrementAndGet() == 0) done.complete(null);
+        });
+        for (String request : requests) {
+            ws.writeTextMessage(request);
+        }
+        done.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        ws.close();
+        client.close();
+    }
+}
@@ -1,19 +1,56 @@
 package com.ririv.quickoutline.server;
 
 import com.ririv.quickoutline.api.WebSocketSessionManager;
+import com.ririv.quickoutline.api.model.DocumentChange;
 import com.ririv.quickoutline.api.service.ApiService;
+import com.ririv.quickoutline.api.service.RpcDispatcher;
 import com.ririv.quickoutline.api.service.RpcProcessor;
 import com.ririv.quickoutline.api.WebSocketRpcHandler;
 import com.ririv.quickoutline.api.service.impl.ApiServiceImpl;
+import com.ririv.quickoutline.service.BatchExtractor;
+import com.ririv.quickoutline.service.DocumentRegistry;
+import com.ririv.quickoutline.service.DocumentWatcher;
+import com.ririv.quickoutline.service.Warmup;
+import com.ririv.quickoutline.service.WorkScheduler;
+import com.ririv.quickoutline.service.metrics.Metrics;
+import io.vertx.core.Context;
 import io.vertx.core.Vertx;
 import io.vertx.core.http.HttpServer;
 
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 public class SidecarApp {
-    public static void main(String[] args) throws IOException {
+    // 预热轮数：实测样本目录页的提取耗时约在 50 轮后不再下降（单核约 1.2 s）
+    private static final int WARMUP_ROUNDS = 50;
+    // 启动后需空闲这么久才开始预热，前端连接后的初始请求不会与预热争抢
+    private static final long WARMUP_IDLE_MILLIS = 1000;
+    // 文件变化后等待写入结束的时间
+    private static final long DOCUMENT_WATCH_DEBOUNCE_MILLIS = 300;
+    private static final String BATCH_USAGE =
+            "Usage: --extract <files|dirs>... [--output file] [--checkpoint file] [--threads N]";
+
+    public static void main(String[] args) throws Exception {
+        if (Arrays.asList(args).contains("--extract")) {
+            System.exit(runBatchExtraction(args));
+        }
+
         // Parse arguments
         int port = 0;
+        boolean cdsTraining = false;
         for (int i = 0; i < args.length; i++) {
             if ("--port".equals(args[i]) && i + 1 < args.length) {
                 try {
@@ -21,40 +58,53 @@ public class SidecarApp {
                 } catch (NumberFormatException e) {
                     System.err.println("Invalid port number: " + args[i + 1]);
                 }
+            } else if ("--cds-training".equals(args[i])) {
+                cdsTraining = true;
             }
         }
 
+        // 启动顺序以尽早输出端口为目标：先只加载 Vert.x 和 HTTP 服务器，监听成功即输出端口，
+        // 之后再初始化 RPC 栈，iText 与字体在后台线程预热。
+        // RPC 栈就绪前到达的 WebSocket 连接先暂停读取，就绪后再接管，请求不会丢失
         Vertx vertx = Vertx.vertx();
+        Metrics metrics = Metrics.global();
+        CompletableFuture<WebSocketRpcHandler> rpcHandler = new CompletableFuture<>();
 
-        // 1. 初始化服务
-        // 2. Initialize State and Managers
-        WebSocketSessionManager sessionManager = new WebSocketSessionManager();
-
-        // 3. 初始化 API 实现
-        ApiService apiService = new ApiServiceImpl();
-
-        // 4. 初始化 RPC 处理器
-        RpcProcessor rpcProcessor = new RpcProcessor(apiService);
-        
-        // 5. 初始化 WebSocket 处理器
-        WebSocketRpcHandler tauriHandler = new WebSocketRpcHandler(rpcProcessor, sessionManager);
-
-        // 6. 创建 HTTP 服务器
+        // 1. 创建 HTTP 服务器
         HttpServer server = vertx.createHttpServer();
 
-        // 6. 配置 WebSocket 处理器
+        // 2. 配置 WebSocket 处理器
         server.webSocketHandler(ws -> {
-            if (ws.path().equals("/ws/tauri")) {
-                tauriHandler.handle(ws);
-            } else {
+            if (!ws.path().equals("/ws/tauri")) {
                 ws.close((short) 1003, "Invalid WebSocket path");
+                return;
+            }
+            WebSocketRpcHandler handler = rpcHandler.getNow(null);
+            if (handler != null) {
+                handler.handle(ws);
+                return;
             }
+            ws.pause();
+            Context context = Vertx.currentContext();
+            rpcHandler.thenAccept(h -> context.runOnContext(v -> {
+                if (!ws.isClosed()) {
+                    h.handle(ws);
+                    ws.resume();
+                }
+            }));
         });
 
-        // 7. 配置 HTTP 请求处理器
+        // 3. 配置 HTTP 请求处理器
         server.requestHandler(req -> {
             String path = req.path();
 
+            if ("/metrics".equals(path)) {
+                req.response()
+                   .putHeader("content-type", "text/plain; version=0.0.4; charset=utf-8")
+                   .end(metrics.toPrometheus());
+                return;
+            }
+
             // Default Handler
             if (req.headers().get("Upgrade") == null || !req.headers().get("Upgrade").equalsIgnoreCase("websocket")) {
                 req.response()
@@ -63,15 +113,155 @@ public class SidecarApp {
             }
         });
 
-        // 8. 监听端口
-        server.listen(port)
-            .onSuccess(s -> {
-                System.out.println("{\"port\": " + s.actualPort() + "}");
-            })
-            .onFailure(err -> {
-                System.err.println("Failed to bind: " + err.getMessage());
-                System.exit(1);
-            });
+        // 4. 监听端口，成功后立即输出
+        int actualPort;
+        try {
+            actualPort = server.listen(port).toCompletionStage().toCompletableFuture().get().actualPort();
+        } catch (ExecutionException e) {
+            System.err.println("Failed to bind: " + e.getCause().getMessage());
+            System.exit(1);
+            return;
+        }
+        System.out.println("{\"port\": " + actualPort + "}");
+        System.out.flush();
+        long startupMillis = millisSinceJvmStart();
+        metrics.gauge("quickoutline_startup_port_millis", "Milliseconds from JVM start to port announcement",
+                () -> startupMillis);
+
+        // 5. 初始化 API 实现与 RPC 处理器
+        WebSocketSessionManager sessionManager = new WebSocketSessionManager();
+        WorkScheduler workScheduler = new WorkScheduler();
+        if (Boolean.parseBoolean(System.getProperty("quickoutline.warmup", "true"))) {
+            Warmup.startInBackground(workScheduler, Integer.getInteger("quickoutline.warmup.rounds", WARMUP_ROUNDS),
+                    WARMUP_IDLE_MILLIS);
+        }
+        DocumentRegistry documentRegistry = new DocumentRegistry(DocumentRegistry.defaultBudget());
+        ApiService apiService = new ApiServiceImpl(workScheduler, documentRegistry);
+        DocumentWatcher documentWatcher = DocumentWatcher.start(documentRegistry, workScheduler.getBackgroundExecutor(), handle -> {
+            DocumentChange change = apiService.refreshDocument(handle.getId());
+            if (change != null) {
+                sessionManager.sendEvent("documentChanged", change);
+            }
+        }, DOCUMENT_WATCH_DEBOUNCE_MILLIS);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                documentWatcher.close();
+            } catch (IOException e) {
+                System.err.println("Failed to stop document watcher: " + e.getMessage());
+            }
+        }, "sidecar-shutdown"));
+        RpcProcessor rpcProcessor = new RpcProcessor(apiService, sessionManager);
+        RpcDispatcher rpcDispatcher = new RpcDispatcher(rpcProcessor, workScheduler);
+        metrics.gauge("quickoutline_background_queue_length", "Tasks waiting in the background pool",
+                workScheduler::getBackgroundQueueLength);
+        metrics.gauge("quickoutline_background_active_threads", "Background threads running a task",
+                workScheduler::getBackgroundActiveCount);
+        metrics.gauge("quickoutline_background_yields", "Times background work yielded to interactive calls",
+                workScheduler::getYieldCount);
+        metrics.gauge("quickoutline_documents_open", "Documents opened through openDocument",
+                documentRegistry::getOpenCount);
+        metrics.gauge("quickoutline_documents_loaded_bytes", "Estimated heap held by parsed documents",
+                documentRegistry::getLoadedBytes);
+        metrics.gauge("quickoutline_document_cache_hits", "Document uses served by already parsed state",
+                documentRegistry::getHits);
+        metrics.gauge("quickoutline_document_cache_misses", "Document uses that had to (re)parse the file",
+                documentRegistry::getMisses);
+        metrics.gauge("quickoutline_document_evictions", "Documents unloaded to stay within the memory budget",
+                documentRegistry::getEvictions);
+        metrics.gauge("quickoutline_websocket_sessions", "Connected WebSocket clients",
+                sessionManager::getSessionCount);
+
+        // 6. 初始化 WebSocket 处理器，接管等待中的连接
+        rpcHandler.complete(new WebSocketRpcHandler(rpcDispatcher, sessionManager));
+
+        // CDS 训练运行：跑完代表性工作负载后退出，JVM 退出时写出归档
+        if (cdsTraining) {
+            CdsTraining.run(vertx, actualPort);
+            System.exit(0);
+        }
+    }
+
+    // 进程启动时间不可用时退化为 JVM 运行时间
+    private static long millisSinceJvmStart() {
+        return ProcessHandle.current().info().startInstant()
+                .map(start -> Duration.between(start, Instant.now()).toMillis())
+                .orElseGet(() -> ManagementFactory.getRuntimeMXBean().getUptime());
+    }
+
+    /**
+     * 无界面批量提取，不启动 Vert.x：
+     * --extract &lt;文件或目录...&gt; [--output 文件] [--checkpoint 清单] [--threads N]
+     * 结果为 JSON Lines，默认写到标准输出；统计信息写到标准错误
+     */
+    static int runBatchExtraction(String[] args) throws IOException {
+        List<Path> inputs = new ArrayList<>();
+        Path output = null;
+        Path checkpoint = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--extract" -> {
+                    while (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                        inputs.add(Path.of(args[++i]));
+                    }
+                }
+                case "--output", "--checkpoint" -> {
+                    String option = args[i];
+                    String value = optionValue(args, i++);
+                    if (value == null) {
+                        System.err.println("Missing file for " + option);
+                        System.err.println(BATCH_USAGE);
+                        return 2;
+                    }
+                    if ("--output".equals(option)) {
+                        output = Path.of(value);
+                    } else {
+                        checkpoint = Path.of(value);
+                    }
+                }
+                case "--threads" -> {
+                    try {
+                        threads = Integer.parseInt(args[++i]);
+                    } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                        System.err.println("Invalid thread count");
+                        return 2;
+                    }
+                }
+                default -> {
+                    System.err.println("Unknown option: " + args[i]);
+                    return 2;
+                }
+            }
+        }
+        if (inputs.isEmpty()) {
+            System.err.println(BATCH_USAGE);
+            return 2;
+        }
+
+        List<Path> files = BatchExtractor.collectPdfs(inputs);
+        BatchExtractor extractor = new BatchExtractor(Math.max(1, threads), BatchExtractor.DEFAULT_CHUNK_PAGES);
+        // 追加写入，配合清单在中断后续跑
+        try (Writer out = output == null
+                ? new OutputStreamWriter(System.out, StandardCharsets.UTF_8)
+                : Files.newBufferedWriter(output, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            BatchExtractor.Summary summary = extractor.run(files, out, checkpoint);
+            System.err.printf("%d documents, %d pages in %.1f s (%.1f pages/s), %d skipped, %d failed%n",
+                    summary.documents(), summary.pages(), summary.nanos() / 1e9, summary.pagesPerSecond(),
+                    summary.skipped(), summary.failed());
+            return summary.failed() == 0 ? 0 : 1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 130;
+        }
+    }
+
+    // 选项的取值：缺失或是另一个选项时返回 null
+    private static String optionValue(String[] args, int optionIndex) {
+        if (optionIndex + 1 >= args.length || args[optionIndex + 1].startsWith("--")) {
+            return null;
+        }
+        return args[optionIndex + 1];
     }
 
     private static void handleImageRequest(io.vertx.core.http.HttpServerRequest req, String path, String prefix, boolean cacheable, java.util.function.Function<Integer, java.util.concurrent.CompletableFuture<byte[]>> provider) {
@@ -0,0 +1,307 @@
+package com.ririv.quickoutline.service;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfReader;
+import com.ririv.quickoutline.pdfProcess.itextImpl.ItextTocExtractor;
+import com.ririv.quickoutline.pdfProcess.itextImpl.PageDeduplicator;
+import com.ririv.quickoutline.pdfProcess.itextImpl.model.LineWithMetadata;
+import com.ririv.quickoutline.service.metrics.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+
+/**
+ * 批量提取多个 PDF 的目录，不经过 HTTP/WebSocket。
+ * <p>
+ * 每个文档按 chunkPages 页切成若干段，所有文档的段在同一个线程池上执行，
+ * 协调线程在活动文档之间轮流提交段，因此大文件不会让其余文件一直等待。
+ * 同时活动的文档数有上限，内存中只保留这些文档已提取的行。
+ * 一个文档的所有段完成后，在线程池上做第二阶段分析并写出一行 JSON（JSON Lines）。
+ * <p>
+ * 可选的清单文件记录已完成的文档（路径、大小、修改时间），再次运行时跳过未变化的文档，
+ * 清单在结果写出并 flush 之后才追加，中断后重跑不会丢结果。
+ */
+public class BatchExtractor {
+    private static final Logger log = LoggerFactory.getLogger(BatchExtractor.class);
+
+    public static final int DEFAULT_CHUNK_PAGES = 16;
+
+    public record Summary(int documents, int skipped, int failed, long pages, long nanos) {
+        public double pagesPerSecond() {
+            return nanos == 0 ? 0 : pages / (nanos / 1e9);
+        }
+    }
+
+    // JSON Lines 的一行；error 不为 null 时 toc 为 null
+    private record Result(String file, Integer pages, List<String> toc, Long millis, String error) {
+    }
+
+    private final int threads;
+    private final int chunkPages;
+    private final int maxActiveDocuments;
+    private final Gson gson = new GsonBuilder().disableHtmlEscaping().create();
+
+    public BatchExtractor(int threads, int chunkPages) {
+        if (threads < 1 || chunkPages < 1) throw new IllegalArgumentException("threads and chunkPages must be >= 1");
+        this.threads = threads;
+        this.chunkPages = chunkPages;
+        this.maxActiveDocuments = threads * 2;
+    }
+
+    /**
+     * 展开目录（递归查找 .pdf），按路径排序并去重
+     */
+    public static List<Path> collectPdfs(List<Path> inputs) throws IOException {
+        TreeSet<Path> files = new TreeSet<>();
+        for (Path input : inputs) {
+            if (Files.isDirectory(input)) {
+                try (Stream<Path> walk = Files.walk(input)) {
+                    walk.filter(Files::isRegularFile)
+                            .filter(p -> p.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".pdf"))
+                            .forEach(p -> files.add(p.toAbsolutePath().normalize()));
+                }
+            } else if (Files.isRegularFile(input)) {
+                files.add(input.toAbsolutePath().normalize());
+            } else {
+                throw new IOException("No such file or directory: " + input);
+            }
+        }
+        return new ArrayList<>(files);
+    }
+
+    /**
+     * @param manifest 清单文件，为 null 时不记录也不跳过
+     */
+    public Summary run(List<Path> files, Writer out, Path manifest) throws IOException, InterruptedException {
+        Set<String> done = manifest != null && Files.exists(manifest)
+                ? new HashSet<>(Files.readAllLines(manifest, StandardCharsets.UTF_8))
+                : new HashSet<>();
+        Deque<Path> pending = new ArrayDeque<>();
+        int skipped = 0;
+        for (Path file : files) {
+            if (done.contains(manifestEntry(file))) {
+                skipped++;
+            } else {
+                pending.add(file);
+            }
+        }
+        log.info("Batch extraction: {} documents, {} already done", pending.size(), skipped);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "batch-extract");
+            thread.setDaemon(true);
+            return thread;
+        });
+        BufferedWriter manifestWriter = manifest == null ? null : Files.newBufferedWriter(manifest, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        long start = System.nanoTime();
+        Coordinator coordinator = new Coordinator(pool, pending, out, manifestWriter);
+        try {
+            coordinator.run();
+        } finally {
+            pool.shutdownNow();
+            if (manifestWriter != null) manifestWriter.close();
+        }
+        long nanos = System.nanoTime() - start;
+        return new Summary(coordinator.completed, skipped, coordinator.failed, coordinator.pages, nanos);
+    }
+
+    private static String manifestEntry(Path file) throws IOException {
+        return file.toAbsolutePath().normalize() + "\t" + Files.size(file) + "\t" + Files.getLastModifiedTime(file).toMillis();
+    }
+
+    private final class Document {
+        final Path file;
+        final long start = System.nanoTime();
+        ItextTocExtractor extractor;
+        final PageDeduplicator duplicates = new PageDeduplicator(); // 各段共享，跨段复用相同页面
+        int pages;
+        List<LineWithMetadata>[] chunkLines;
+        int nextChunk; // 下一个待提交的段
+        int remainingChunks;
+        String error;
+
+        Document(Path file) {
+            this.file = file;
+        }
+
+        boolean hasUnsubmittedChunks() {
+            return error == null && chunkLines != null && nextChunk < chunkLines.length;
+        }
+    }
+
+    /**
+     * 只在协调线程上修改状态；工作线程通过 events 队列回报完成情况
+     */
+    private final class Coordinator {
+        final ExecutorService pool;
+        final Deque<Path> pending;
+        final Writer out;
+        final BufferedWriter manifestWriter;
+        final Deque<Document> active = new ArrayDeque<>(); // 轮转顺序
+        final BlockingQueue<Runnable> events = new LinkedBlockingQueue<>();
+        int inFlight; // 已提交未完成的任务数，上限为线程数，保证轮转在提交时生效
+        int completed;
+        int failed;
+        long pages;
+
+        Coordinator(ExecutorService pool, Deque<Path> pending, Writer out, BufferedWriter manifestWriter) {
+            this.pool = pool;
+            this.pending = pending;
+            this.out = out;
+            this.manifestWriter = manifestWriter;
+        }
+
+        void run() throws InterruptedException, IOException {
+            while (true) {
+                while (active.size() < maxActiveDocuments && !pending.isEmpty()) {
+                    admit(pending.poll());
+                }
+                while (inFlight < threads && submitNextChunk()) {
+                    // 轮流提交各文档的下一段
+                }
+                if (inFlight == 0 && active.isEmpty() && pending.isEmpty()) break;
+                events.take().run();
+            }
+        }
+
+        // 在工作线程上读取页数，完成后再开始切段
+        void admit(Path file) {
+            Document doc = new Document(file);
+            active.add(doc);
+            submit(doc, () -> {
+                try (PdfDocument pdfDoc = new PdfDocument(new PdfReader(file.toString()))) {
+                    int count = pdfDoc.getNumberOfPages();
+                    return () -> onOpened(doc, count, null);
+                } catch (Throwable e) {
+                    return () -> onOpened(doc, 0, e);
+                }
+            });
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        void onOpened(Document doc, int pageCount, Throwable e) {
+            if (e != null) {
+                fail(doc, e);
+                return;
+            }
+            doc.pages = pageCount;
+            doc.extractor = new ItextTocExtractor(doc.file.toString());
+            int chunks = (pageCount + chunkPages - 1) / chunkPages;
+            doc.chunkLines = new List[chunks];
+            doc.remainingChunks = chunks;
+            if (chunks == 0) analyse(doc);
+        }
+
+        boolean submitNextChunk() {
+            for (int i = 0; i < active.size(); i++) {
+                Document doc = active.poll();
+                active.add(doc); // 无论是否提交都移到队尾
+                if (!doc.hasUnsubmittedChunks()) continue;
+                int chunk = doc.nextChunk++;
+                int first = chunk * chunkPages + 1;
+                int last = Math.min(doc.pages, first + chunkPages - 1);
+                submit(doc, () -> {
+                    try {
+                        List<LineWithMetadata> lines = doc.extractor.extractLines(first, last, doc.duplicates);
+                        return () -> onChunkDone(doc, chunk, lines, null);
+                    } catch (Throwable e) {
+                        return () -> onChunkDone(doc, chunk, null, e);
+                    }
+                });
+                return true;
+            }
+            return false;
+        }
+
+        void onChunkDone(Document doc, int chunk, List<LineWithMetadata> lines, Throwable e) {
+            if (doc.error != null) return; // 已失败，剩余段的结果丢弃
+            if (e != null) {
+                fail(doc, e);
+                return;
+            }
+            doc.chunkLines[chunk] = lines;
+            if (--doc.remainingChunks == 0) analyse(doc);
+        }
+
+        void analyse(Document doc) {
+            List<LineWithMetadata> lines = new ArrayList<>();
+            for (List<LineWithMetadata> chunk : doc.chunkLines) lines.addAll(chunk);
+            doc.chunkLines = null;
+            submit(doc, () -> {
+                try {
+                    List<String> toc = ItextTocExtractor.analyse(lines);
+                    return () -> finish(doc, toc);
+                } catch (Throwable e) {
+                    return () -> fail(doc, e);
+                }
+            });
+        }
+
+        void finish(Document doc, List<String> toc) {
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - doc.start);
+            write(doc, new Result(doc.file.toString(), doc.pages, toc, millis, null));
+            completed++;
+            pages += doc.pages;
+            Metrics.global().recordExtraction(doc.pages, System.nanoTime() - doc.start);
+            Metrics.global().recordDuplicatePages(doc.duplicates.getDuplicatePages(), doc.duplicates.getSavedNanos());
+        }
+
+        void fail(Document doc, Throwable e) {
+            if (doc.error != null) return;
+            doc.error = e.getMessage() != null ? e.getMessage() : e.toString(); // 如 StackOverflowError 没有 message
+            log.warn("Batch extraction failed for {}", doc.file, e);
+            write(doc, new Result(doc.file.toString(), null, null, null, doc.error));
+            failed++;
+        }
+
+        // 失败的文档也写入清单，重跑时不再重试；需要重试时删除清单中的对应行
+        void write(Document doc, Result result) {
+            active.remove(doc);
+            try {
+                out.write(gson.toJson(result));
+                out.write('\n');
+                out.flush();
+                if (manifestWriter != null) {
+                    manifestWriter.write(manifestEntry(doc.file));
+                    manifestWriter.newLine();
+                    manifestWriter.flush();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        // 任务在工作线程上执行，返回的回调交回协调线程；任务抛出任何异常（包括 Error，如 iText 解析深层嵌套内容时的
+        // StackOverflowError）都记为该文档失败，保证每个任务都回报一次，inFlight 能归零
+        void submit(Document doc, Callable<Runnable> task) {
+            inFlight++;
+            pool.execute(() -> {
+                Runnable callback;
+                try {
+                    callback = task.call();
+                } catch (Throwable e) {
+                    callback = () -> fail(doc, e);
+                }
+                Runnable done = callback;
+                events.add(() -> {
+                    inFlight--;
+                    done.run();
+                });
+            });
+        }
+    }
+}
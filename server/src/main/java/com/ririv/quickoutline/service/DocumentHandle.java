@@ -0,0 +1,348 @@
+package com.ririv.quickoutline.service;
+
+import com.itextpdf.kernel.font.PdfFont;
+import com.itextpdf.kernel.geom.Rectangle;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfReader;
+import com.ririv.quickoutline.pdfProcess.itextImpl.ItextTocExtractor;
+import com.ririv.quickoutline.pdfProcess.itextImpl.PageDeduplicator;
+import com.ririv.quickoutline.pdfProcess.itextImpl.PageFingerprinter;
+import com.ririv.quickoutline.pdfProcess.itextImpl.model.LineWithMetadata;
+import com.ririv.quickoutline.pdfProcess.itextImpl.model.TextChunk;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * DocumentRegistry 中的一个已打开文档。已解析的状态包括只读的 PdfDocument、页面尺寸表、
+ * 字体名缓存和各页提取出的行（页面模型），可被 DocumentRegistry 整体释放（淘汰），
+ * 下次使用时重新加载；文件在磁盘上变化（大小或修改时间）后同样重新加载。
+ * 每页提取时同时记录页面指纹（见 PageFingerprinter）：同一文档中内容相同的页面只解析一次；
+ * 因文件变化重新加载时，与之前某页指纹相同的页面（包括移动了位置的页面）沿用其页面模型，只有变化的页面需要重新解析。
+ * PdfDocument 不是线程安全的，所有访问都在本对象的锁内进行，按页加锁，长时间提取期间其他调用可以插入。
+ */
+public class DocumentHandle {
+
+    /**
+     * 一次（重新）加载的结果
+     * @param previousPages 加载前缓存了页面模型的页数，为 0 表示之前没有提取过（或已被淘汰）
+     * @param reusedPages 新文档中与之前某页指纹相同、沿用其页面模型的页数
+     */
+    public record Reload(int pageCount, int previousPages, int reusedPages) {
+    }
+
+    /**
+     * 尚未缓存页面模型的页码，generation 用于 {@link #cacheParsedPage} 判断期间文件是否被关闭或重新加载
+     */
+    record Uncached(long generation, int[] pageNums) {
+    }
+
+    /**
+     * 改写本文档文件的操作，见 {@link #write}
+     */
+    @FunctionalInterface
+    public interface IORunnable {
+        void run() throws IOException;
+    }
+
+    // 内存估算用的粗略常数：文档结构按对象数估算，页面模型按行和文本块估算
+    private static final long BASE_BYTES = 64 * 1024;
+    private static final long BYTES_PER_PDF_OBJECT = 96;
+    private static final long BYTES_PER_FONT = 32 * 1024;
+    private static final long BYTES_PER_LINE = 160;
+    private static final long BYTES_PER_CHUNK = 96;
+
+    private final String id;
+    private final String filePath;
+    private int refCount = 1; // 由 DocumentRegistry 在其锁内维护
+
+    private PdfDocument pdfDoc; // 为 null 表示未加载（尚未使用或已被淘汰）
+    private long generation; // 每次关闭文件加一
+    private long loadedSize;
+    private long loadedModified;
+    private long writtenSize = -1; // 本进程最近一次写入后的文件状态，见 recordOwnWrite
+    private volatile boolean writing; // 本进程正在改写文件，无锁读取，见 isWriting
+    private long writtenModified;
+    private float[][] pageSizes; // [页码 - 1] = {宽, 高}
+    private Map<PdfFont, String> fontNames;
+    private List<LineWithMetadata>[] pageLines; // [页码 - 1]，为 null 表示该页尚未提取
+    private String[] pageFingerprints; // 与 pageLines 对应
+    private Map<String, Integer> pageByFingerprint; // 指纹 -> 已有页面模型的页（页码 - 1）
+    private PageFingerprinter fingerprinter; // 缓存本文档已计算的间接对象摘要
+    private long structureBytes;
+    private long modelBytes;
+    private volatile long estimatedBytes; // 无锁读取，供 DocumentRegistry 计算总量
+
+    DocumentHandle(String id, String filePath) {
+        this.id = id;
+        this.filePath = filePath;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    int retain() {
+        return ++refCount;
+    }
+
+    int releaseRef() {
+        return --refCount;
+    }
+
+    /**
+     * 未加载或文件已变化时（重新）加载
+     * @return 是否命中（无需加载）
+     */
+    synchronized boolean ensureLoaded() throws IOException {
+        return reloadIfChanged() == null;
+    }
+
+    /**
+     * 未加载或文件已变化时（重新）加载，之前缓存的页面模型按指纹沿用
+     * @return 无需加载时返回 null
+     */
+    synchronized Reload reloadIfChanged() throws IOException {
+        Path path = Path.of(filePath);
+        long size = Files.size(path);
+        long modified = Files.getLastModifiedTime(path).toMillis();
+        if (pdfDoc != null && size == loadedSize && modified == loadedModified) {
+            return null;
+        }
+        List<LineWithMetadata>[] previousLines = pageLines;
+        String[] previousFingerprints = pageFingerprints;
+        unload();
+        PdfDocument doc = new PdfDocument(new PdfReader(filePath));
+        int pages = doc.getNumberOfPages();
+        float[][] sizes = new float[pages][];
+        for (int i = 1; i <= pages; i++) {
+            Rectangle pageSize = doc.getPage(i).getPageSize();
+            sizes[i - 1] = new float[]{pageSize.getWidth(), pageSize.getHeight()};
+        }
+        this.pdfDoc = doc;
+        this.loadedSize = size;
+        this.loadedModified = modified;
+        this.pageSizes = sizes;
+        this.fontNames = new IdentityHashMap<>();
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        List<LineWithMetadata>[] lines = new List[pages];
+        this.pageLines = lines;
+        this.pageFingerprints = new String[pages];
+        this.pageByFingerprint = new HashMap<>();
+        this.fingerprinter = new PageFingerprinter();
+        this.structureBytes = BASE_BYTES + doc.getNumberOfPdfObjects() * BYTES_PER_PDF_OBJECT + pages * 16L;
+        this.modelBytes = 0;
+
+        int previousPages = 0;
+        int reusedPages = 0;
+        if (previousLines != null) {
+            Map<String, List<LineWithMetadata>> previousByFingerprint = new HashMap<>();
+            for (int i = 0; i < previousLines.length; i++) {
+                if (previousLines[i] == null) continue;
+                previousPages++;
+                previousByFingerprint.putIfAbsent(previousFingerprints[i], previousLines[i]);
+            }
+            for (int i = 0; i < pages && previousPages > 0; i++) {
+                String fingerprint = fingerprinter.fingerprint(doc.getPage(i + 1));
+                List<LineWithMetadata> same = previousByFingerprint.get(fingerprint);
+                if (same != null) {
+                    cachePage(i, fingerprint, List.copyOf(PageDeduplicator.onPage(same, i + 1)));
+                    reusedPages++;
+                }
+            }
+        }
+        updateEstimate();
+        return new Reload(pages, previousPages, reusedPages);
+    }
+
+    /**
+     * 本进程改写文件：关闭文件、写入、记录写入后的文件状态，整个过程持有本对象的锁，
+     * 其他线程的访问等写入完成后再按指纹重新加载，不会读到写了一半的文件
+     */
+    synchronized void write(IORunnable writer) throws IOException {
+        writing = true;
+        try {
+            closeFile();
+            writer.run();
+            recordOwnWrite();
+        } finally {
+            writing = false;
+        }
+    }
+
+    /**
+     * 本进程是否正在改写文件。不加锁，写入期间也能立即返回
+     */
+    boolean isWriting() {
+        return writing;
+    }
+
+    /**
+     * 记录本进程写入后的文件大小和修改时间
+     */
+    private void recordOwnWrite() {
+        try {
+            Path path = Path.of(filePath);
+            writtenSize = Files.size(path);
+            writtenModified = Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            writtenSize = -1;
+        }
+    }
+
+    /**
+     * 文件当前的状态是否正是本进程最近一次写入的结果（之后没有被其他程序修改）
+     */
+    synchronized boolean isOwnWrite() {
+        if (writtenSize < 0) return false;
+        try {
+            Path path = Path.of(filePath);
+            return Files.size(path) == writtenSize && Files.getLastModifiedTime(path).toMillis() == writtenModified;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public synchronized boolean isLoaded() {
+        return pdfDoc != null;
+    }
+
+    public synchronized int getPageCount() throws IOException {
+        return loaded().getNumberOfPages();
+    }
+
+    public synchronized float[][] getPageSizes() throws IOException {
+        loaded();
+        return pageSizes.clone();
+    }
+
+    /**
+     * 在锁内使用已加载的 PdfDocument（只读）
+     */
+    public synchronized <T> T read(Function<PdfDocument, T> reader) throws IOException {
+        return reader.apply(loaded());
+    }
+
+    /**
+     * 一页的页面模型，未提取过时在本文档上提取并缓存。提取中途被淘汰时重新加载
+     */
+    synchronized List<LineWithMetadata> pageLines(int pageNum, Runnable checkpoint) throws IOException {
+        PdfDocument doc = loaded();
+        List<LineWithMetadata> lines = pageLines[pageNum - 1];
+        if (lines == null) {
+            String fingerprint = fingerprinter.fingerprint(doc.getPage(pageNum));
+            Integer same = pageByFingerprint.get(fingerprint);
+            lines = same != null
+                    ? List.copyOf(PageDeduplicator.onPage(pageLines[same], pageNum))
+                    : List.copyOf(ItextTocExtractor.extractPage(doc, pageNum, checkpoint, fontNames));
+            cachePage(pageNum - 1, fingerprint, lines);
+            updateEstimate();
+        }
+        return lines;
+    }
+
+    synchronized Uncached uncachedPages() throws IOException {
+        loaded();
+        return new Uncached(generation, IntStream.rangeClosed(1, pageLines.length)
+                .filter(pageNum -> pageLines[pageNum - 1] == null).toArray());
+    }
+
+    /**
+     * 缓存在锁外（另开 PdfDocument）解析的一页；取得 generation 之后文件被关闭或重新加载过时丢弃
+     */
+    synchronized void cacheParsedPage(long generation, ItextTocExtractor.ParsedPage parsed) {
+        int index = parsed.pageNum() - 1;
+        if (generation != this.generation || pageLines == null || pageLines[index] != null) return;
+        cachePage(index, parsed.fingerprint(), List.copyOf(parsed.lines()));
+        updateEstimate();
+    }
+
+    private void cachePage(int index, String fingerprint, List<LineWithMetadata> lines) {
+        pageLines[index] = lines;
+        pageFingerprints[index] = fingerprint;
+        pageByFingerprint.putIfAbsent(fingerprint, index);
+        modelBytes += estimateBytes(lines);
+    }
+
+    /**
+     * 只丢弃页面模型，保留文档结构
+     */
+    synchronized void trimPageModels() {
+        if (pageLines == null) return;
+        Arrays.fill(pageLines, null);
+        Arrays.fill(pageFingerprints, null);
+        pageByFingerprint.clear();
+        modelBytes = 0;
+        updateEstimate();
+    }
+
+    /**
+     * 释放全部已解析状态，句柄仍然有效
+     */
+    synchronized void unload() {
+        closeFile();
+        pageLines = null;
+        pageFingerprints = null;
+        pageByFingerprint = null;
+        modelBytes = 0;
+        updateEstimate();
+    }
+
+    /**
+     * 关闭文件（文件即将被改写时），只保留页面模型及其指纹，下次加载时按指纹沿用
+     */
+    synchronized void closeFile() {
+        if (pdfDoc != null) {
+            pdfDoc.close();
+        }
+        pdfDoc = null;
+        generation++;
+        pageSizes = null;
+        fontNames = null;
+        fingerprinter = null;
+        structureBytes = 0;
+        updateEstimate();
+    }
+
+    /**
+     * 已解析状态占用堆内存的粗略估计
+     */
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    // 解析过的字体（含字形宽度表等）随 PdfDocument 常驻，按字体个数估算
+    private void updateEstimate() {
+        long fonts = fontNames == null ? 0 : fontNames.size() * BYTES_PER_FONT;
+        estimatedBytes = structureBytes + fonts + modelBytes;
+    }
+
+    // acquire 之后、加锁之前可能被其他线程的 enforceBudget 淘汰，此时就地重新加载
+    private PdfDocument loaded() throws IOException {
+        if (pdfDoc == null) ensureLoaded();
+        return pdfDoc;
+    }
+
+    private static long estimateBytes(List<LineWithMetadata> lines) {
+        long bytes = 0;
+        for (LineWithMetadata line : lines) {
+            bytes += BYTES_PER_LINE + line.getTextContent().length() * 2L;
+            for (TextChunk chunk : line.getChunks()) {
+                bytes += BYTES_PER_CHUNK + chunk.getText().length() * 2L;
+            }
+        }
+        return bytes;
+    }
+}
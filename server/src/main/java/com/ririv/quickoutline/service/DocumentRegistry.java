@@ -0,0 +1,221 @@
+package com.ririv.quickoutline.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 已打开文档的注册表。前端 open 得到句柄，之后的提取、目录读写、页面查询都复用句柄上已解析的状态，close 后释放。
+ * 同一文件重复 open 返回同一句柄（引用计数）。所有句柄已解析状态的估算总量超过预算时，按最近最少使用的顺序淘汰，
+ * 被淘汰的句柄仍然有效，下次使用时重新加载。
+ * 锁顺序：先注册表后句柄；持有句柄锁时不调用注册表。
+ */
+public class DocumentRegistry {
+    private static final Logger log = LoggerFactory.getLogger(DocumentRegistry.class);
+
+    /**
+     * 句柄创建和移除的通知（如 DocumentWatcher 据此监视文件），在注册表锁外调用
+     */
+    public interface Listener {
+        void opened(DocumentHandle handle);
+
+        void closed(DocumentHandle handle);
+    }
+
+    private final long budgetBytes;
+    private final LinkedHashMap<String, DocumentHandle> handles = new LinkedHashMap<>(16, 0.75f, true); // 访问顺序，最旧在前
+    private final Map<String, DocumentHandle> byPath = new HashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    public DocumentRegistry(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * -Dquickoutline.documents.budgetMb 指定，默认最大堆的四分之一
+     */
+    public static long defaultBudget() {
+        Long mb = Long.getLong("quickoutline.documents.budgetMb");
+        return mb != null ? mb * 1024 * 1024 : Runtime.getRuntime().maxMemory() / 4;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * 打开文档并加载，同一文件已打开时增加引用计数并返回原句柄
+     */
+    public DocumentHandle open(String filePath) throws IOException {
+        String key = toKey(filePath);
+        DocumentHandle handle;
+        boolean created = false;
+        synchronized (this) {
+            handle = byPath.get(key);
+            if (handle != null) {
+                handle.retain();
+                handles.get(handle.getId()); // 更新访问顺序
+            } else {
+                handle = new DocumentHandle(UUID.randomUUID().toString(), key);
+                handles.put(handle.getId(), handle);
+                byPath.put(key, handle);
+                created = true;
+            }
+        }
+        if (created) {
+            for (Listener listener : listeners) listener.opened(handle);
+        }
+        try {
+            acquire(handle);
+        } catch (IOException e) {
+            close(handle.getId());
+            throw e;
+        }
+        return handle;
+    }
+
+    public synchronized DocumentHandle get(String handleId) {
+        DocumentHandle handle = handles.get(handleId);
+        if (handle == null) {
+            throw new IllegalArgumentException("Unknown document handle: " + handleId);
+        }
+        return handle;
+    }
+
+    /**
+     * 该文件已打开时返回其句柄，否则返回 null；不影响访问顺序
+     */
+    public synchronized DocumentHandle findByPath(String filePath) {
+        return byPath.get(toKey(filePath));
+    }
+
+    /**
+     * 减少引用计数，归零时释放并移除句柄
+     */
+    public void close(String handleId) {
+        DocumentHandle handle;
+        synchronized (this) {
+            handle = handles.get(handleId);
+            if (handle == null || handle.releaseRef() > 0) return;
+            handles.remove(handleId);
+            byPath.remove(handle.getFilePath());
+        }
+        handle.unload();
+        for (Listener listener : listeners) listener.closed(handle);
+    }
+
+    /**
+     * 本进程改写文件：该文件已打开时在句柄锁内关闭文件并写入（见 DocumentHandle#write），
+     * 记录写入后的文件状态，DocumentWatcher 据此忽略这次变化；页面模型留待下次使用时按指纹沿用
+     */
+    public void write(String filePath, DocumentHandle.IORunnable writer) throws IOException {
+        DocumentHandle handle = findByPath(filePath);
+        if (handle != null) {
+            handle.write(writer);
+        } else {
+            writer.run();
+        }
+    }
+
+    /**
+     * 使用句柄前调用：确保已加载（文件变化时重新加载），记为最近使用，必要时淘汰其他句柄
+     */
+    public void acquire(DocumentHandle handle) throws IOException {
+        refresh(handle);
+    }
+
+    /**
+     * 同 acquire，返回重新加载的结果
+     * @return 无需加载时返回 null
+     */
+    public DocumentHandle.Reload refresh(DocumentHandle handle) throws IOException {
+        DocumentHandle.Reload reload = handle.reloadIfChanged();
+        if (reload == null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        synchronized (this) {
+            handles.get(handle.getId());
+        }
+        enforceBudget(handle);
+        return reload;
+    }
+
+    /**
+     * 超出预算时从最旧的句柄开始释放，keep 除外；只剩 keep 仍超出时丢弃它的页面模型
+     */
+    public void enforceBudget(DocumentHandle keep) {
+        List<DocumentHandle> victims = new ArrayList<>();
+        synchronized (this) {
+            long total = 0;
+            for (DocumentHandle handle : handles.values()) {
+                total += handle.getEstimatedBytes();
+            }
+            Iterator<DocumentHandle> eldestFirst = handles.values().iterator();
+            while (total > budgetBytes && eldestFirst.hasNext()) {
+                DocumentHandle handle = eldestFirst.next();
+                long bytes = handle.getEstimatedBytes();
+                if (handle == keep || bytes == 0) continue;
+                victims.add(handle);
+                total -= bytes;
+            }
+        }
+        // 在注册表锁外释放：句柄可能正被长时间提取占用
+        for (DocumentHandle victim : victims) {
+            log.info("Evicting document {} ({} KB)", victim.getFilePath(), victim.getEstimatedBytes() / 1024);
+            victim.unload();
+            evictions.increment();
+        }
+        if (keep != null && keep.getEstimatedBytes() > budgetBytes) {
+            keep.trimPageModels();
+        }
+    }
+
+    public synchronized int getOpenCount() {
+        return handles.size();
+    }
+
+    public synchronized long getLoadedBytes() {
+        long total = 0;
+        for (DocumentHandle handle : handles.values()) {
+            total += handle.getEstimatedBytes();
+        }
+        return total;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    private static String toKey(String filePath) {
+        return Path.of(filePath).toAbsolutePath().normalize().toString();
+    }
+}
@@ -0,0 +1,162 @@
+package com.ririv.quickoutline.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * 用 WatchService 监视已打开文档所在的目录，文件变化后通知 listener。
+ * 编辑器保存往往是多次写入（或写临时文件再改名），同一文件在 debounceMillis 内没有新事件后才通知一次。
+ * 本进程自己写入造成的变化（见 DocumentRegistry#write）不通知，写入期间到期的通知推迟到写入完成后再判断。
+ * listener 在 executor 上执行，监视线程只负责收集事件。用 {@link #start} 创建，用完 close。
+ */
+public class DocumentWatcher implements DocumentRegistry.Listener, AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(DocumentWatcher.class);
+
+    public interface ChangeListener {
+        void changed(DocumentHandle handle) throws IOException;
+    }
+
+    private final DocumentRegistry registry;
+    private final Executor executor;
+    private final ChangeListener listener;
+    private final long debounceMillis;
+    private final WatchService watchService;
+    private final Thread thread;
+
+    private final Map<Path, WatchKey> keys = new HashMap<>(); // 目录 -> 监视键，在 this 锁内访问
+    private final Map<Path, Integer> documentsPerDir = new HashMap<>();
+    private final Map<Path, Long> pending = new HashMap<>(); // 文件 -> 通知时间（纳秒），只在监视线程访问
+
+    private DocumentWatcher(DocumentRegistry registry, Executor executor, ChangeListener listener,
+                            long debounceMillis) throws IOException {
+        this.registry = registry;
+        this.executor = executor;
+        this.listener = listener;
+        this.debounceMillis = debounceMillis;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.thread = Thread.ofPlatform().daemon().name("document-watcher").unstarted(this::run);
+    }
+
+    /**
+     * 创建并开始监视，之后 open 的文档自动加入监视
+     */
+    public static DocumentWatcher start(DocumentRegistry registry, Executor executor, ChangeListener listener,
+                                        long debounceMillis) throws IOException {
+        DocumentWatcher watcher = new DocumentWatcher(registry, executor, listener, debounceMillis);
+        registry.addListener(watcher);
+        watcher.thread.start();
+        return watcher;
+    }
+
+    @Override
+    public synchronized void opened(DocumentHandle handle) {
+        Path dir = Path.of(handle.getFilePath()).getParent();
+        if (dir == null) return;
+        if (documentsPerDir.merge(dir, 1, Integer::sum) > 1) return;
+        try {
+            keys.put(dir, dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY));
+        } catch (IOException | ClosedWatchServiceException e) {
+            log.warn("Cannot watch {}: {}", dir, e.getMessage()); // 仍可由 refreshDocument 手动刷新
+        }
+    }
+
+    @Override
+    public synchronized void closed(DocumentHandle handle) {
+        Path dir = Path.of(handle.getFilePath()).getParent();
+        if (dir == null) return;
+        Integer remaining = documentsPerDir.computeIfPresent(dir, (d, n) -> n > 1 ? n - 1 : null);
+        if (remaining == null) {
+            WatchKey key = keys.remove(dir);
+            if (key != null) key.cancel();
+        }
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                WatchKey key = pending.isEmpty()
+                        ? watchService.take()
+                        : watchService.poll(Math.max(0, nextDeadline() - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (key != null) {
+                    collect(key);
+                }
+                fireDue();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // 关闭
+        }
+    }
+
+    private void collect(WatchKey key) {
+        Path dir = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                log.warn("Watch events overflowed in {}, some changes may be missed", dir);
+                continue;
+            }
+            Path file = dir.resolve((Path) event.context());
+            if (registry.findByPath(file.toString()) != null) {
+                pending.put(file, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(debounceMillis));
+            }
+        }
+        key.reset();
+    }
+
+    private long nextDeadline() {
+        long next = Long.MAX_VALUE;
+        for (long deadline : pending.values()) {
+            next = Math.min(next, deadline);
+        }
+        return next;
+    }
+
+    private void fireDue() {
+        long now = System.nanoTime();
+        for (Iterator<Map.Entry<Path, Long>> it = pending.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Path, Long> entry = it.next();
+            if (entry.getValue() > now) continue;
+            DocumentHandle handle = registry.findByPath(entry.getKey().toString());
+            if (handle != null && handle.isWriting()) { // 本进程的写入尚未完成，写完后再判断
+                entry.setValue(now + TimeUnit.MILLISECONDS.toNanos(debounceMillis));
+                continue;
+            }
+            it.remove();
+            if (handle == null || handle.isOwnWrite()) continue; // 已关闭，或是本进程自己写入的
+            try {
+                executor.execute(() -> {
+                    try {
+                        listener.changed(handle);
+                    } catch (Exception e) {
+                        // 文件可能仍在写入，写完后的下一个事件会再次触发
+                        log.warn("Failed to refresh changed document {}: {}", handle.getFilePath(), e.getMessage());
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                return; // 正在关闭
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        registry.removeListener(this);
+        watchService.close();
+        thread.interrupt();
+    }
+}
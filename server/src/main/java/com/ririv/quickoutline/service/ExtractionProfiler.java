@@ -0,0 +1,116 @@
+package com.ririv.quickoutline.service;
+
+import com.ririv.quickoutline.pdfProcess.itextImpl.ExtractionEvents;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import jdk.jfr.ValueDescriptor;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 录制 ExtractionEvents 并汇总为各阶段的次数、耗时和计数字段之和，用于在用户机器上定位提取慢在哪一步。
+ * 同一时间只有一个录制；录制有时长和大小上限，忘记 stop 也会自行停止。
+ */
+public class ExtractionProfiler {
+    private static final Logger log = LoggerFactory.getLogger(ExtractionProfiler.class);
+
+    public static final int MAX_SECONDS = 600;
+    private static final long MAX_SIZE_BYTES = 64L * 1024 * 1024;
+
+    private Recording recording;
+
+    public synchronized void start(int maxSeconds) {
+        if (recording != null) {
+            throw new IllegalStateException("Profiling is already running");
+        }
+        int seconds = Math.clamp(maxSeconds, 1, MAX_SECONDS);
+        Recording r = new Recording();
+        r.setName("quickoutline-extraction");
+        for (Class<? extends Event> eventClass : ExtractionEvents.ALL) {
+            r.enable(eventClass).withThreshold(Duration.ZERO);
+        }
+        r.setDuration(Duration.ofSeconds(seconds));
+        r.setMaxSize(MAX_SIZE_BYTES);
+        r.start();
+        recording = r;
+        log.info("Extraction profiling started for at most {} s", seconds);
+    }
+
+    /**
+     * 停止录制并返回汇总：{ durationMs, stages: { 阶段名: { count, totalMs, maxMs, 各计数字段之和 } } }，
+     * 阶段按流水线顺序排列
+     */
+    public synchronized Map<String, Object> stop() throws IOException {
+        if (recording == null) {
+            throw new IllegalStateException("Profiling is not running");
+        }
+        Recording r = recording;
+        recording = null;
+        Path file = Files.createTempFile("quickoutline-", ".jfr");
+        try {
+            if (r.getState() == RecordingState.RUNNING) {
+                r.stop();
+            }
+            r.dump(file);
+            return summarize(file, r.getStartTime() == null || r.getStopTime() == null
+                    ? 0 : Duration.between(r.getStartTime(), r.getStopTime()).toMillis());
+        } finally {
+            r.close();
+            Files.deleteIfExists(file);
+        }
+    }
+
+    public synchronized boolean isRunning() {
+        return recording != null;
+    }
+
+    static Map<String, Object> summarize(Path file, long durationMillis) throws IOException {
+        Map<String, Map<String, Number>> stages = new LinkedHashMap<>();
+        for (Class<? extends Event> eventClass : ExtractionEvents.ALL) {
+            stages.put(stageName(EventType.getEventType(eventClass).getName()), newStage());
+        }
+        for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+            Map<String, Number> stage = stages.get(stageName(event.getEventType().getName()));
+            if (stage == null) continue;
+            double millis = event.getDuration().toNanos() / 1e6;
+            stage.merge("count", 1L, (a, b) -> a.longValue() + b.longValue());
+            stage.merge("totalMs", millis, (a, b) -> a.doubleValue() + b.doubleValue());
+            stage.merge("maxMs", millis, (a, b) -> Math.max(a.doubleValue(), b.doubleValue()));
+            for (ValueDescriptor field : event.getFields()) {
+                String name = field.getName();
+                if (name.equals("pageNum") || !(field.getTypeName().equals("int") || field.getTypeName().equals("long"))) {
+                    continue;
+                }
+                stage.merge(name, event.getLong(name), (a, b) -> a.longValue() + b.longValue());
+            }
+        }
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("durationMs", durationMillis);
+        summary.put("stages", stages);
+        return summary;
+    }
+
+    private static Map<String, Number> newStage() {
+        Map<String, Number> stage = new LinkedHashMap<>();
+        stage.put("count", 0L);
+        stage.put("totalMs", 0.0);
+        stage.put("maxMs", 0.0);
+        return stage;
+    }
+
+    // quickoutline.ContentParse -> ContentParse
+    private static String stageName(String eventName) {
+        return eventName.substring(eventName.lastIndexOf('.') + 1);
+    }
+}
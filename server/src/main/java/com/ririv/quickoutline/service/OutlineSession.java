@@ -0,0 +1,104 @@
+package com.ririv.quickoutline.service;
+
+import com.ririv.quickoutline.model.Bookmark;
+
+import java.util.function.Function;
+
+/**
+ * 一个文档的目录编辑会话：服务端持有 Bookmark 树，前端只发送增量操作。
+ * 每成功应用一个操作，版本号加一；前端据此判断自己的副本是否与服务端一致。
+ * 方法均为同步方法，同一会话的操作按到达顺序串行执行。
+ */
+public class OutlineSession {
+
+    private final String documentKey;
+    private final Bookmark root;
+    private long version;
+
+    OutlineSession(String documentKey, Bookmark root) {
+        this.documentKey = documentKey;
+        this.root = root;
+    }
+
+    public String getDocumentKey() {
+        return documentKey;
+    }
+
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * 在锁内读取当前树，保证读到的是某个版本的完整状态
+     */
+    public synchronized <T> T read(Function<Bookmark, T> reader) {
+        return reader.apply(root);
+    }
+
+    /**
+     * 新建节点，插入到 parentId 之下、afterId 之后
+     * @param parentId 为 null 表示顶层
+     * @param afterId 为 null 表示插入为第一个子节点
+     */
+    public synchronized long insert(String id, String parentId, String afterId, String title, Integer pageNum) {
+        if (root.findById(id) != null) {
+            throw new IllegalArgumentException("Bookmark id already exists: " + id);
+        }
+        Bookmark parent = parentId == null ? root : require(parentId);
+        place(new Bookmark(id, title, pageNum, parent.getLevel() + 1), parent, afterId);
+        return ++version;
+    }
+
+    public synchronized long delete(String id) {
+        require(id).remove();
+        return ++version;
+    }
+
+    public synchronized long move(String id, String parentId, String afterId) {
+        Bookmark bookmark = require(id);
+        place(bookmark, parentId == null ? root : require(parentId), afterId);
+        return ++version;
+    }
+
+    public synchronized long retitle(String id, String title) {
+        require(id).setTitle(title);
+        return ++version;
+    }
+
+    public synchronized long setPage(String id, Integer pageNum) {
+        require(id).setPageNum(pageNum);
+        return ++version;
+    }
+
+    /**
+     * 批量缩进/反缩进一段连续的兄弟节点
+     */
+    public synchronized long indent(String firstId, String lastId, boolean outdent) {
+        if (outdent) {
+            Bookmark.outdent(require(firstId), require(lastId));
+        } else {
+            Bookmark.indent(require(firstId), require(lastId));
+        }
+        return ++version;
+    }
+
+    private void place(Bookmark bookmark, Bookmark parent, String afterId) {
+        if (afterId == null) {
+            parent.addChild(0, bookmark);
+            return;
+        }
+        Bookmark after = require(afterId);
+        if (after.getParent() != parent) {
+            throw new IllegalArgumentException("Bookmark " + afterId + " is not a child of " + parent.getId());
+        }
+        bookmark.moveAfter(after);
+    }
+
+    private Bookmark require(String id) {
+        Bookmark bookmark = root.findById(id);
+        if (bookmark == null || bookmark == root) {
+            throw new IllegalArgumentException("Unknown bookmark id: " + id);
+        }
+        return bookmark;
+    }
+}
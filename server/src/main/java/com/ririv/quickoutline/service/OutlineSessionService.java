@@ -0,0 +1,83 @@
+package com.ririv.quickoutline.service;
+
+import com.ririv.quickoutline.model.Bookmark;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按文档管理目录编辑会话，会话以规范化后的绝对路径为键
+ */
+public class OutlineSessionService {
+
+    private final PdfOutlineService pdfOutlineService;
+    private final DocumentRegistry registry; // 为 null 时每次从头打开文档
+    private final Map<String, OutlineSession> sessions = new ConcurrentHashMap<>();
+
+    public OutlineSessionService(PdfOutlineService pdfOutlineService) {
+        this(pdfOutlineService, null);
+    }
+
+    public OutlineSessionService(PdfOutlineService pdfOutlineService, DocumentRegistry registry) {
+        this.pdfOutlineService = pdfOutlineService;
+        this.registry = registry;
+    }
+
+    /**
+     * 打开（或重新打开）会话，从 PDF 中读取已有目录
+     */
+    public OutlineSession open(String filePath, int offset) throws IOException {
+        String key = toKey(filePath);
+        DocumentHandle handle = registry == null ? null : registry.findByPath(filePath);
+        Bookmark root;
+        if (handle != null) { // 文档已打开，直接在已解析的结构上读取
+            registry.acquire(handle);
+            root = pdfOutlineService.readOutline(handle, offset);
+        } else {
+            root = pdfOutlineService.getOutline(filePath, offset);
+        }
+        OutlineSession session = new OutlineSession(key, root);
+        sessions.put(key, session);
+        return session;
+    }
+
+    public OutlineSession get(String filePath) {
+        OutlineSession session = sessions.get(toKey(filePath));
+        if (session == null) {
+            throw new IllegalStateException("No outline session for " + filePath);
+        }
+        return session;
+    }
+
+    public void save(String filePath, String destFilePath, int offset) throws IOException {
+        OutlineSession session = get(filePath);
+        // 目标文件（为 null 时覆盖源文件）可能正是某个已打开的文档
+        String written = destFilePath != null ? destFilePath : filePath;
+        // 写文件期间持有会话锁，避免写入中途的树被修改；已打开的目标文档在写入期间不会被重新加载
+        IOException[] error = {null};
+        session.read(root -> {
+            try {
+                DocumentHandle.IORunnable write = () -> pdfOutlineService.setOutline(root, filePath, destFilePath, offset);
+                if (registry != null) {
+                    registry.write(written, write);
+                } else {
+                    write.run();
+                }
+            } catch (IOException e) {
+                error[0] = e;
+            }
+            return null;
+        });
+        if (error[0] != null) throw error[0];
+    }
+
+    public void close(String filePath) {
+        sessions.remove(toKey(filePath));
+    }
+
+    private static String toKey(String filePath) {
+        return Path.of(filePath).toAbsolutePath().normalize().toString();
+    }
+}
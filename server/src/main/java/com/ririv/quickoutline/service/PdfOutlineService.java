@@ -0,0 +1,30 @@
+package com.ririv.quickoutline.service;
+
+import com.ririv.quickoutline.model.Bookmark;
+import com.ririv.quickoutline.pdfProcess.itextImpl.ItextOutlineProcessor;
+
+import java.io.IOException;
+
+public class PdfOutlineService {
+
+    private final ItextOutlineProcessor outlineProcessor = new ItextOutlineProcessor();
+
+    public Bookmark getOutline(String srcFilePath, int offset) throws IOException {
+        return outlineProcessor.getOutline(srcFilePath, offset);
+    }
+
+    /**
+     * 从已打开的文档读取目录
+     */
+    public Bookmark readOutline(DocumentHandle handle, int offset) throws IOException {
+        return handle.read(pdfDoc -> outlineProcessor.readOutline(pdfDoc, offset));
+    }
+
+    public String getOutlineAsString(String srcFilePath, int offset) throws IOException {
+        return getOutline(srcFilePath, offset).toOutlineString();
+    }
+
+    public void setOutline(Bookmark rootBookmark, String srcFilePath, String destFilePath, int offset) throws IOException {
+        outlineProcessor.setOutline(rootBookmark, srcFilePath, destFilePath, offset);
+    }
+}
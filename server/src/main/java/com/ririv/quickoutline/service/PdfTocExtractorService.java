@@ -1,18 +1,102 @@
 package com.ririv.quickoutline.service;
 
+import com.ririv.quickoutline.pdfProcess.ExtractionProgress;
 import com.ririv.quickoutline.pdfProcess.TocExtractor;
 import com.ririv.quickoutline.pdfProcess.itextImpl.ItextTocExtractor;
+import com.ririv.quickoutline.pdfProcess.itextImpl.model.LineWithMetadata;
+import com.ririv.quickoutline.service.metrics.Metrics;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class PdfTocExtractorService {
 
+   private final WorkScheduler scheduler; // 为 null 时提取器自建线程池
+   private final DocumentRegistry registry; // 为 null 时每次从头打开文档
+
+   public PdfTocExtractorService() {
+       this(null);
+   }
+
+   // 在调度器的后台线程池上提取，交互调用执行时按页让出
+   public PdfTocExtractorService(WorkScheduler scheduler) {
+       this(scheduler, null);
+   }
+
+   public PdfTocExtractorService(WorkScheduler scheduler, DocumentRegistry registry) {
+       this.scheduler = scheduler;
+       this.registry = registry;
+   }
+
    public String extract(String pdfPath){
+       return extract(pdfPath, ExtractionProgress.NONE);
+   }
+
+   /**
+    * progress 抛出的 CancellationException 原样抛出，其他异常时返回空字符串
+    */
+   public String extract(String pdfPath, ExtractionProgress progress) {
        try {
-           TocExtractor tocExtractor = new ItextTocExtractor(pdfPath);
+           DocumentHandle handle = registry == null ? null : registry.findByPath(pdfPath);
+           if (handle != null) {
+               registry.acquire(handle);
+               return String.join("\n", extract(handle, progress));
+           }
+           TocExtractor tocExtractor = (scheduler == null
+                   ? new ItextTocExtractor(pdfPath)
+                   : new ItextTocExtractor(pdfPath, scheduler.getBackgroundExecutor(), scheduler::checkpoint))
+                   .progress(progress);
            return String.join("\n", tocExtractor.extract());
+       } catch (CancellationException e) {
+           throw e;
        } catch (Exception e) { // Catch broader exceptions during processing
            e.printStackTrace();
            return "";
        }
    }
 
+   /**
+    * 在已打开（已 acquire）的文档上提取：复用已解析的文档结构和缓存的页面模型，只解析尚未提取过的页面，
+    * 再对全部页面重新分析。尚未提取过的页面多于一页时先在后台线程池上并行解析（各自打开 PdfDocument）并放入缓存，
+    * 之后在调用线程上按页读取；PdfDocument 不是线程安全的，句柄上的文档只在其锁内顺序访问。
+    */
+   public List<String> extract(DocumentHandle handle) throws IOException {
+       return extract(handle, ExtractionProgress.NONE);
+   }
+
+   public List<String> extract(DocumentHandle handle, ExtractionProgress progress) throws IOException {
+       long start = System.nanoTime();
+       Runnable checkpoint = scheduler == null ? () -> {} : scheduler::checkpoint;
+       int pages = handle.getPageCount();
+       boolean parsedInParallel = parseUncachedInParallel(handle, pages, progress);
+       List<LineWithMetadata> lines = new ArrayList<>();
+       for (int pageNum = 1; pageNum <= pages; pageNum++) {
+           checkpoint.run();
+           lines.addAll(handle.pageLines(pageNum, checkpoint));
+           if (!parsedInParallel) progress.pageDone(pageNum, pages);
+       }
+       List<String> toc = ItextTocExtractor.analyse(lines);
+       Metrics.global().recordExtraction(pages, System.nanoTime() - start);
+       registry.enforceBudget(handle); // 新提取的页面模型计入预算
+       return toc;
+   }
+
+   // 已缓存的页面计为已完成，之后每解析完一页报告一次进度
+   private boolean parseUncachedInParallel(DocumentHandle handle, int pages, ExtractionProgress progress) throws IOException {
+       DocumentHandle.Uncached uncached = handle.uncachedPages();
+       if (uncached.pageNums().length < 2) return false;
+       AtomicInteger done = new AtomicInteger(pages - uncached.pageNums().length);
+       ItextTocExtractor extractor = scheduler == null
+               ? new ItextTocExtractor(handle.getFilePath())
+               : new ItextTocExtractor(handle.getFilePath(), scheduler.getBackgroundExecutor(), scheduler::checkpoint);
+       extractor.extractPagesInParallel(uncached.pageNums(), parsed -> {
+           handle.cacheParsedPage(uncached.generation(), parsed);
+           progress.pageDone(done.incrementAndGet(), pages);
+       });
+       return true;
+   }
+
 }
@@ -0,0 +1,146 @@
+package com.ririv.quickoutline.service;
+
+import com.itextpdf.io.font.constants.StandardFonts;
+import com.itextpdf.kernel.font.PdfFont;
+import com.itextpdf.kernel.font.PdfFontFactory;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.kernel.pdf.canvas.PdfCanvas;
+import com.ririv.quickoutline.pdfProcess.itextImpl.ItextTocExtractor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 启动后在后台预热 iText：生成一个很小的 PDF（含标准字体与 CJK 字体），再反复走提取流程，
+ * 使字体、解析器等类的加载、初始化和 JIT 编译不落在第一次真实请求上。
+ * 样本文档同时用作 CDS 训练运行的工作负载。
+ */
+public final class Warmup {
+    private static final Logger log = LoggerFactory.getLogger(Warmup.class);
+
+    private static final int TOC_LINES = 30;
+    private static final int SAMPLE_PAGES = 2;
+
+    private Warmup() {
+    }
+
+    /**
+     * 两页的样本：第一页为点引导线目录，第二页为正文（含 CJK 标题）
+     */
+    public static byte[] samplePdf() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PdfDocument pdfDoc = new PdfDocument(new PdfWriter(out))) {
+            PdfFont latin = PdfFontFactory.createFont(StandardFonts.HELVETICA);
+            PdfFont cjk = PdfFontFactory.createFont("STSong-Light", "UniGB-UCS2-H");
+
+            PdfCanvas toc = new PdfCanvas(pdfDoc.addNewPage());
+            toc.beginText().setFontAndSize(latin, 11).moveText(72, 780);
+            for (int i = 1; i <= TOC_LINES; i++) {
+                toc.moveText(0, -20).showText("Chapter " + i + " Warm up " + ".".repeat(40) + " " + (i * 3));
+            }
+            toc.endText();
+
+            // CJK 字体只放在第二页：读取时解析 CMap 较慢，反复预热只提取第一页
+            PdfCanvas body = new PdfCanvas(pdfDoc.addNewPage());
+            body.beginText().setFontAndSize(cjk, 16).moveText(72, 800).showText("正文").endText();
+            body.beginText().setFontAndSize(latin, 10).moveText(72, 780);
+            for (int i = 0; i < 40; i++) {
+                body.moveText(0, -14).showText("Body text line " + i + " of the warm-up document.");
+            }
+            body.endText();
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 在调用线程上执行一次样本提取
+     * @return 提取出的目录行数
+     */
+    public static int runOnce(Path samplePdf) throws IOException {
+        return runOnce(samplePdf, SAMPLE_PAGES, () -> {});
+    }
+
+    /**
+     * @param pages 提取前几页
+     * @param checkpoint 每页及页内每个文本块调用，抛出 CancellationException 即中止
+     */
+    public static int runOnce(Path samplePdf, int pages, Runnable checkpoint) throws IOException {
+        ItextTocExtractor extractor = new ItextTocExtractor(samplePdf.toString(), null, checkpoint);
+        List<String> toc = ItextTocExtractor.analyse(extractor.extractLines(1, pages));
+        return toc.size();
+    }
+
+    /**
+     * 等进程空闲 idleMillis（期间没有请求到达、也没有未完成的请求）后，在后台线程池上把样本反复走完整个提取流程，
+     * 让解析、行转换和分析的热点方法在真实请求前完成 JIT 编译。
+     * 开始后任何请求到达（见 {@link WorkScheduler#requestArrived()}）即在下一个让出点中止且不再重启，
+     * 后台线程随即交还给真实工作。
+     * @return 完成的轮数
+     */
+    public static CompletableFuture<Integer> startInBackground(WorkScheduler scheduler, int rounds, long idleMillis) {
+        CompletableFuture<Integer> result = new CompletableFuture<>();
+        Thread.ofVirtual().name("warmup-idle").start(() -> {
+            long requestsAtStart;
+            try {
+                do {
+                    requestsAtStart = scheduler.getRequestCount();
+                    Thread.sleep(idleMillis);
+                } while (scheduler.getRequestCount() != requestsAtStart || !scheduler.isIdle());
+            } catch (InterruptedException e) {
+                result.complete(0);
+                return;
+            }
+            long seen = requestsAtStart;
+            try {
+                scheduler.getBackgroundExecutor().execute(() -> result.complete(run(scheduler, rounds, seen)));
+            } catch (RejectedExecutionException e) {
+                result.complete(0); // 调度器已关闭
+            }
+        });
+        return result;
+    }
+
+    private static int run(WorkScheduler scheduler, int rounds, long requestsAtStart) {
+        Runnable checkpoint = () -> {
+            if (scheduler.getRequestCount() != requestsAtStart) {
+                throw new CancellationException("Real work arrived");
+            }
+        };
+        long start = System.nanoTime();
+        Path file = null;
+        int completed = 0;
+        try {
+            checkpoint.run();
+            file = Files.createTempFile("quickoutline-warmup", ".pdf");
+            Files.write(file, samplePdf());
+            while (completed < rounds) {
+                checkpoint.run();
+                // 第一轮完整提取，加载全部类和字体；之后只重复目录页，让热点方法被编译
+                runOnce(file, completed == 0 ? SAMPLE_PAGES : 1, checkpoint);
+                completed++;
+            }
+            log.info("Warm-up finished: {} rounds in {} ms", completed, (System.nanoTime() - start) / 1_000_000);
+        } catch (CancellationException e) {
+            log.info("Warm-up cancelled by incoming request after {} rounds", completed);
+        } catch (Exception e) {
+            log.warn("Warm-up failed", e);
+        } finally {
+            if (file != null) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException ignored) {
+                }
+            }
+        }
+        return completed;
+    }
+}
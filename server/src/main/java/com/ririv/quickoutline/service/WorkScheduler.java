@@ -0,0 +1,139 @@
+package com.ririv.quickoutline.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * sidecar 内的优先级调度：
+ * <ul>
+ *     <li>INTERACTIVE：界面直接等待的调用（目录编辑、简单查询），执行期间后台任务让出 CPU</li>
+ *     <li>NORMAL：普通调用，不做额外处理</li>
+ *     <li>BACKGROUND：整本提取、预热、批处理等，在低优先级的后台线程池上执行，
+ *     并在每个工作单元（如一页）开始前调用 {@link #checkpoint()}</li>
+ * </ul>
+ * 后台线程池比 CPU 核数少一个线程，保证总有一个核可以响应交互调用。
+ */
+public class WorkScheduler {
+    private static final Logger log = LoggerFactory.getLogger(WorkScheduler.class);
+
+    public enum Lane {
+        INTERACTIVE, NORMAL, BACKGROUND
+    }
+
+    // 单次让出的最长时间，交互调用持续不断时后台任务仍能推进
+    private static final long MAX_YIELD_MILLIS = 50;
+
+    private final AtomicInteger activeInteractive = new AtomicInteger();
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicInteger requestsInFlight = new AtomicInteger();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition interactiveIdle = lock.newCondition();
+    private final LongAdder yields = new LongAdder();
+    private final ThreadPoolExecutor backgroundExecutor;
+
+    public WorkScheduler() {
+        this(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+    }
+
+    public WorkScheduler(int backgroundThreads) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread thread = new Thread(r, "background-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        };
+        this.backgroundExecutor = new ThreadPoolExecutor(backgroundThreads, backgroundThreads,
+                0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), factory);
+    }
+
+    public ExecutorService getBackgroundExecutor() {
+        return backgroundExecutor;
+    }
+
+    public void enterInteractive() {
+        activeInteractive.incrementAndGet();
+    }
+
+    public void exitInteractive() {
+        if (activeInteractive.decrementAndGet() == 0) {
+            lock.lock();
+            try {
+                interactiveIdle.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 后台任务的让出点：有交互调用在执行时等待其结束（最多 MAX_YIELD_MILLIS），否则立即返回
+     */
+    public void checkpoint() {
+        if (activeInteractive.get() == 0) return;
+        yields.increment();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(MAX_YIELD_MILLIS);
+        lock.lock();
+        try {
+            long remaining;
+            while (activeInteractive.get() > 0 && (remaining = deadline - System.nanoTime()) > 0) {
+                interactiveIdle.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 每个外部请求到达时调用（不分 Lane），预热等可丢弃的后台任务据此在真实工作到来时停止。
+     * 与 {@link #requestFinished()} 成对调用
+     */
+    public void requestArrived() {
+        requestCount.incrementAndGet();
+        requestsInFlight.incrementAndGet();
+    }
+
+    public void requestFinished() {
+        requestsInFlight.decrementAndGet();
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    // 没有已到达但未完成的请求
+    public boolean isIdle() {
+        return requestsInFlight.get() == 0;
+    }
+
+    // 后台线程池中等待执行的任务数（如整本提取中尚未开始的页）
+    public int getBackgroundQueueLength() {
+        return backgroundExecutor.getQueue().size();
+    }
+
+    public int getBackgroundActiveCount() {
+        return backgroundExecutor.getActiveCount();
+    }
+
+    public long getYieldCount() {
+        return yields.sum();
+    }
+
+    public void shutdown() {
+        log.debug("Background executor shutting down, {} yields so far", yields.sum());
+        backgroundExecutor.shutdownNow();
+    }
+}
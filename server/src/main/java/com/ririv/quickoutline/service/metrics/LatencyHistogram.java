@@ -0,0 +1,77 @@
+package com.ririv.quickoutline.service.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 固定桶的延迟直方图。记录只有一次桶查找和两次 LongAdder 自增，
+ * 多线程并发记录时不加锁、不分配对象。读取时各计数器分别求和，不保证是同一时刻的快照。
+ */
+public final class LatencyHistogram {
+
+    // 桶上界（毫秒），最后还有一个 +Inf 桶
+    static final double[] BOUNDS_MILLIS = {1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000};
+    private static final long[] BOUNDS_NANOS = new long[BOUNDS_MILLIS.length];
+
+    static {
+        for (int i = 0; i < BOUNDS_MILLIS.length; i++) {
+            BOUNDS_NANOS[i] = (long) (BOUNDS_MILLIS[i] * 1_000_000);
+        }
+    }
+
+    private final LongAdder[] buckets = new LongAdder[BOUNDS_MILLIS.length + 1];
+    private final LongAdder sumNanos = new LongAdder();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        int i = 0;
+        while (i < BOUNDS_NANOS.length && nanos > BOUNDS_NANOS[i]) i++;
+        buckets[i].increment();
+        sumNanos.add(nanos);
+    }
+
+    /**
+     * @return 各桶（非累计）的计数，长度为 BOUNDS_MILLIS.length + 1
+     */
+    public long[] bucketCounts() {
+        long[] counts = new long[buckets.length];
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return counts;
+    }
+
+    public long count() {
+        long count = 0;
+        for (LongAdder bucket : buckets) count += bucket.sum();
+        return count;
+    }
+
+    public double sumSeconds() {
+        return sumNanos.sum() / (double) TimeUnit.SECONDS.toNanos(1);
+    }
+
+    /**
+     * 按桶上界估算分位数（毫秒），落在 +Inf 桶时返回最大的有限上界；没有记录时返回 0
+     */
+    public double percentileMillis(double quantile) {
+        long[] counts = bucketCounts();
+        long total = 0;
+        for (long c : counts) total += c;
+        if (total == 0) return 0;
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return BOUNDS_MILLIS[Math.min(i, BOUNDS_MILLIS.length - 1)];
+            }
+        }
+        return BOUNDS_MILLIS[BOUNDS_MILLIS.length - 1];
+    }
+}
@@ -0,0 +1,215 @@
+package com.ririv.quickoutline.service.metrics;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * sidecar 的运行指标：各 RPC 方法的延迟直方图、执行中/排队中的请求数、错误数，
+ * 整本提取的吞吐量，以及注册的队列长度等 gauge 和 JVM 内存/GC。
+ * 热路径上只有 LongAdder 自增；JVM 数据和 gauge 在导出时才读取。
+ * 以 Prometheus 文本格式导出（HTTP /metrics），或导出为 Map（RPC stats）。
+ */
+public final class Metrics {
+
+    private static final Metrics GLOBAL = new Metrics();
+
+    // 方法名来自客户端，超过上限后的新名字统一记为 OTHER_METHOD，避免指标无限增长
+    private static final int MAX_METHODS = 256;
+    static final String OTHER_METHOD = "other";
+
+    private final Map<String, MethodStats> methods = new ConcurrentHashMap<>();
+    private final Map<String, Gauge> gauges = new ConcurrentHashMap<>();
+    private final LongAdder extractions = new LongAdder();
+    private final LongAdder extractedPages = new LongAdder();
+    private final LongAdder extractionNanos = new LongAdder();
+    private final LongAdder duplicatePages = new LongAdder();
+    private final LongAdder duplicateSavedNanos = new LongAdder();
+
+    public static Metrics global() {
+        return GLOBAL;
+    }
+
+    public static final class MethodStats {
+        public final LatencyHistogram latency = new LatencyHistogram();
+        public final LongAdder errors = new LongAdder();
+        public final LongAdder inFlight = new LongAdder();
+        public final LongAdder queued = new LongAdder();
+    }
+
+    private record Gauge(String help, LongSupplier supplier) {
+    }
+
+    public MethodStats method(String name) {
+        if (name == null) name = OTHER_METHOD;
+        MethodStats stats = methods.get(name);
+        if (stats != null) return stats;
+        if (methods.size() >= MAX_METHODS) name = OTHER_METHOD;
+        return methods.computeIfAbsent(name, k -> new MethodStats());
+    }
+
+    /**
+     * 注册一个导出时才读取的 gauge，同名的后注册者覆盖先注册者
+     */
+    public void gauge(String name, String help, LongSupplier supplier) {
+        gauges.put(name, new Gauge(help, supplier));
+    }
+
+    public void recordExtraction(int pages, long nanos) {
+        extractions.increment();
+        extractedPages.add(pages);
+        extractionNanos.add(nanos);
+    }
+
+    /**
+     * 复用相同页面解析结果的页数及估算省下的解析时间，见 PageDeduplicator
+     */
+    public void recordDuplicatePages(long pages, long savedNanos) {
+        duplicatePages.add(pages);
+        duplicateSavedNanos.add(savedNanos);
+    }
+
+    public String toPrometheus() {
+        StringBuilder out = new StringBuilder(4096);
+        Map<String, MethodStats> sorted = new TreeMap<>(methods);
+
+        header(out, "quickoutline_rpc_duration_seconds", "histogram", "RPC execution time, excluding queueing");
+        for (Map.Entry<String, MethodStats> e : sorted.entrySet()) {
+            String label = "method=\"" + escape(e.getKey()) + "\"";
+            LatencyHistogram histogram = e.getValue().latency;
+            long[] counts = histogram.bucketCounts();
+            long cumulative = 0;
+            for (int i = 0; i < counts.length; i++) {
+                cumulative += counts[i];
+                String le = i < LatencyHistogram.BOUNDS_MILLIS.length
+                        ? Double.toString(LatencyHistogram.BOUNDS_MILLIS[i] / 1000) : "+Inf";
+                out.append("quickoutline_rpc_duration_seconds_bucket{").append(label)
+                        .append(",le=\"").append(le).append("\"} ").append(cumulative).append('\n');
+            }
+            sample(out, "quickoutline_rpc_duration_seconds_sum{" + label + "}", histogram.sumSeconds());
+            sample(out, "quickoutline_rpc_duration_seconds_count{" + label + "}", cumulative);
+        }
+        header(out, "quickoutline_rpc_errors_total", "counter", "RPC calls that returned an error");
+        sorted.forEach((m, s) -> sample(out, "quickoutline_rpc_errors_total{method=\"" + escape(m) + "\"}", s.errors.sum()));
+        header(out, "quickoutline_rpc_in_flight", "gauge", "RPC calls currently executing");
+        sorted.forEach((m, s) -> sample(out, "quickoutline_rpc_in_flight{method=\"" + escape(m) + "\"}", s.inFlight.sum()));
+        header(out, "quickoutline_rpc_queued", "gauge", "RPC calls waiting for their document's ordered queue or a concurrency permit");
+        sorted.forEach((m, s) -> sample(out, "quickoutline_rpc_queued{method=\"" + escape(m) + "\"}", s.queued.sum()));
+
+        header(out, "quickoutline_extractions_total", "counter", "Completed whole-document TOC extractions");
+        sample(out, "quickoutline_extractions_total", extractions.sum());
+        header(out, "quickoutline_extracted_pages_total", "counter", "Pages processed by TOC extraction");
+        sample(out, "quickoutline_extracted_pages_total", extractedPages.sum());
+        header(out, "quickoutline_extraction_seconds_total", "counter", "Wall time spent in TOC extraction");
+        sample(out, "quickoutline_extraction_seconds_total", extractionNanos.sum() / 1e9);
+        header(out, "quickoutline_duplicate_pages_total", "counter", "Pages whose parse was reused from an identical page");
+        sample(out, "quickoutline_duplicate_pages_total", duplicatePages.sum());
+        header(out, "quickoutline_duplicate_saved_seconds_total", "counter", "Estimated parse time saved by reusing identical pages");
+        sample(out, "quickoutline_duplicate_saved_seconds_total", duplicateSavedNanos.sum() / 1e9);
+
+        new TreeMap<>(gauges).forEach((name, gauge) -> {
+            header(out, name, "gauge", gauge.help());
+            sample(out, name, gauge.supplier().getAsLong());
+        });
+
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        MemoryUsage nonHeap = ManagementFactory.getMemoryMXBean().getNonHeapMemoryUsage();
+        header(out, "quickoutline_jvm_memory_used_bytes", "gauge", "JVM memory in use");
+        sample(out, "quickoutline_jvm_memory_used_bytes{area=\"heap\"}", heap.getUsed());
+        sample(out, "quickoutline_jvm_memory_used_bytes{area=\"nonheap\"}", nonHeap.getUsed());
+        header(out, "quickoutline_jvm_memory_committed_bytes", "gauge", "JVM memory committed by the OS");
+        sample(out, "quickoutline_jvm_memory_committed_bytes{area=\"heap\"}", heap.getCommitted());
+        sample(out, "quickoutline_jvm_memory_committed_bytes{area=\"nonheap\"}", nonHeap.getCommitted());
+        header(out, "quickoutline_jvm_memory_max_bytes", "gauge", "JVM maximum heap, -1 if undefined");
+        sample(out, "quickoutline_jvm_memory_max_bytes{area=\"heap\"}", heap.getMax());
+        header(out, "quickoutline_jvm_gc_collections_total", "counter", "GC runs per collector");
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            sample(out, "quickoutline_jvm_gc_collections_total{gc=\"" + escape(gc.getName()) + "\"}", gc.getCollectionCount());
+        }
+        header(out, "quickoutline_jvm_gc_seconds_total", "counter", "Accumulated GC time per collector");
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            sample(out, "quickoutline_jvm_gc_seconds_total{gc=\"" + escape(gc.getName()) + "\"}", gc.getCollectionTime() / 1000.0);
+        }
+        header(out, "quickoutline_jvm_threads", "gauge", "Live platform threads");
+        sample(out, "quickoutline_jvm_threads", ManagementFactory.getThreadMXBean().getThreadCount());
+        return out.toString();
+    }
+
+    /**
+     * 供 RPC stats 返回的摘要，延迟为按桶估算的毫秒数
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> rpc = new TreeMap<>();
+        methods.forEach((name, s) -> {
+            Map<String, Object> m = new LinkedHashMap<>();
+            long count = s.latency.count();
+            m.put("count", count);
+            m.put("errors", s.errors.sum());
+            m.put("inFlight", s.inFlight.sum());
+            m.put("queued", s.queued.sum());
+            m.put("meanMs", count == 0 ? 0 : s.latency.sumSeconds() * 1000 / count);
+            m.put("p50Ms", s.latency.percentileMillis(0.5));
+            m.put("p99Ms", s.latency.percentileMillis(0.99));
+            rpc.put(name, m);
+        });
+
+        Map<String, Object> extraction = new LinkedHashMap<>();
+        long nanos = extractionNanos.sum();
+        extraction.put("extractions", extractions.sum());
+        extraction.put("pages", extractedPages.sum());
+        extraction.put("seconds", nanos / 1e9);
+        extraction.put("pagesPerSecond", nanos == 0 ? 0 : extractedPages.sum() / (nanos / 1e9));
+        extraction.put("duplicatePages", duplicatePages.sum());
+        extraction.put("duplicateSavedSeconds", duplicateSavedNanos.sum() / 1e9);
+
+        Map<String, Object> gaugeValues = new TreeMap<>();
+        gauges.forEach((name, gauge) -> gaugeValues.put(name, gauge.supplier().getAsLong()));
+
+        Map<String, Object> jvm = new LinkedHashMap<>();
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        jvm.put("heapUsedBytes", heap.getUsed());
+        jvm.put("heapCommittedBytes", heap.getCommitted());
+        jvm.put("heapMaxBytes", heap.getMax());
+        long gcCount = 0;
+        long gcMillis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCount += Math.max(0, gc.getCollectionCount());
+            gcMillis += Math.max(0, gc.getCollectionTime());
+        }
+        jvm.put("gcCount", gcCount);
+        jvm.put("gcSeconds", TimeUnit.MILLISECONDS.toNanos(gcMillis) / 1e9);
+
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("rpc", rpc);
+        snapshot.put("extraction", extraction);
+        snapshot.put("gauges", gaugeValues);
+        snapshot.put("jvm", jvm);
+        return snapshot;
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String series, long value) {
+        out.append(series).append(' ').append(value).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String series, double value) {
+        out.append(series).append(' ').append(value).append('\n');
+    }
+
+    // Prometheus 标签值需要转义 \ " 和换行
+    static String escape(String value) {
+        if (value.indexOf('\\') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) return value;
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
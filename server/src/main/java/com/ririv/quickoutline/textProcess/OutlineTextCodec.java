@@ -0,0 +1,177 @@
+package com.ririv.quickoutline.textProcess;
+
+import com.ririv.quickoutline.model.Bookmark;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.ririv.quickoutline.textProcess.StringConstants.FOUR_NORM_SPACE;
+import static com.ririv.quickoutline.textProcess.StringConstants.INDENT_UNIT;
+
+/**
+ * 目录文本与 Bookmark 树之间的双向转换，格式与 Bookmark.toOutlineString 相同：
+ * <pre>
+ * 标题    页码
+ * \t子标题    页码
+ * </pre>
+ * 每行以 INDENT_UNIT 的个数表示层级（顶层不缩进），标题与页码之间的分隔符为
+ * FOUR_NORM_SPACE，解析时也接受任意个 ONE_SPACE_REGEX 字符（含全角空格）。
+ * 读写都是流式单遍处理，不对每行使用正则。
+ */
+public final class OutlineTextCodec {
+
+    private static final int CACHED_INDENTS = 32;
+    private static final String[] INDENTS = new String[CACHED_INDENTS];
+
+    static {
+        for (int i = 0; i < CACHED_INDENTS; i++) {
+            INDENTS[i] = INDENT_UNIT.repeat(i);
+        }
+    }
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private OutlineTextCodec() {
+    }
+
+    public static String indent(int count) {
+        return count < CACHED_INDENTS ? INDENTS[count] : INDENT_UNIT.repeat(count);
+    }
+
+    /**
+     * 把 bookmark（根节点除外）及其子孙写为目录文本
+     */
+    public static void write(Bookmark bookmark, Appendable out) throws IOException {
+        try {
+            bookmark.traverseWithLevel((e, level) -> {
+                try {
+                    writeLine(out, level, e.getTitle(), e.getPageNum().orElse(null));
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    public static String write(Bookmark bookmark) {
+        StringBuilder text = new StringBuilder();
+        try {
+            write(bookmark, text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringBuilder 不会抛出
+        }
+        return text.toString();
+    }
+
+    public static void writeLine(Appendable out, int level, String title, Integer pageNum) throws IOException {
+        if (level - 1 < 0) throw new IllegalArgumentException("level must be >=1");
+        int indentCount = level - 1; //顶层为1，不要缩进
+        if (indentCount < CACHED_INDENTS) {
+            out.append(INDENTS[indentCount]);
+        } else {
+            for (int i = 0; i < indentCount; i++) out.append(INDENT_UNIT);
+        }
+        out.append(title);
+        out.append(FOUR_NORM_SPACE);
+        if (pageNum != null) out.append(Integer.toString(pageNum));
+        out.append('\n');
+    }
+
+    /**
+     * 单遍读取目录文本，构建 Bookmark 树（根节点的 linearBookmarkList 为解析出的线性列表）
+     */
+    public static Bookmark read(Reader in) throws IOException {
+        List<Bookmark> bookmarks = new ArrayList<>();
+        char[] buffer = new char[BUFFER_SIZE];
+        StringBuilder line = new StringBuilder(128);
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            int lineStart = 0;
+            for (int i = 0; i < n; i++) {
+                if (buffer[i] == '\n') {
+                    line.append(buffer, lineStart, i - lineStart);
+                    addLine(line, bookmarks);
+                    line.setLength(0);
+                    lineStart = i + 1;
+                }
+            }
+            line.append(buffer, lineStart, n - lineStart);
+        }
+        addLine(line, bookmarks);
+        return Bookmark.convertListToBookmarkTree(bookmarks);
+    }
+
+    private static void addLine(CharSequence line, List<Bookmark> bookmarks) {
+        Bookmark bookmark = parseLine(line);
+        if (bookmark != null) bookmarks.add(bookmark);
+    }
+
+    /**
+     * @return 解析出的未挂到树上的 Bookmark，空行返回 null
+     */
+    public static Bookmark parseLine(CharSequence line) {
+        int end = line.length();
+        while (end > 0 && isSeparator(line.charAt(end - 1))) end--; // 同时去掉 \r
+
+        int indentLength = INDENT_UNIT.length();
+        int start = 0;
+        int indentCount = 0;
+        while (start + indentLength <= end && startsWith(line, start, INDENT_UNIT)) {
+            start += indentLength;
+            indentCount++;
+        }
+        while (start < end && isSeparator(line.charAt(start))) start++;
+        if (start == end) return null;
+
+        // 末尾的数字串（可带负号）且前面有分隔符时，视为页码
+        int tokenStart = end;
+        while (tokenStart > start && isDigit(line.charAt(tokenStart - 1))) tokenStart--;
+        if (tokenStart < end && tokenStart > start && line.charAt(tokenStart - 1) == '-') tokenStart--;
+
+        Integer pageNum = null;
+        int titleEnd = end;
+        if (tokenStart < end && tokenStart > start && isSeparator(line.charAt(tokenStart - 1))) {
+            pageNum = parseInt(line, tokenStart, end);
+            if (pageNum != null) {
+                titleEnd = tokenStart;
+                while (titleEnd > start && isSeparator(line.charAt(titleEnd - 1))) titleEnd--;
+            }
+        }
+        String title = line.subSequence(start, titleEnd).toString();
+        return new Bookmark(title, pageNum, indentCount + 1);
+    }
+
+    // 等价于 ONE_SPACE_REGEX：\s 或全角空格
+    static boolean isSeparator(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r' || c == '　';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean startsWith(CharSequence s, int offset, String prefix) {
+        for (int i = 0; i < prefix.length(); i++) {
+            if (s.charAt(offset + i) != prefix.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    // 溢出或只有负号时返回 null
+    private static Integer parseInt(CharSequence s, int start, int end) {
+        boolean negative = s.charAt(start) == '-';
+        int i = negative ? start + 1 : start;
+        if (i == end) return null;
+        long value = 0;
+        for (; i < end; i++) {
+            value = value * 10 + (s.charAt(i) - '0');
+            if (value > Integer.MAX_VALUE) return null;
+        }
+        return (int) (negative ? -value : value);
+    }
+}
@@ -1,5 +1,7 @@
 module quickoutline {
     requires java.desktop;
+    requires java.management;
+    requires jdk.jfr;
     requires jakarta.inject;
 
     requires org.slf4j;
@@ -0,0 +1,102 @@
+package com.ririv.quickoutline.api;
+
+import com.google.gson.JsonParser;
+import com.ririv.quickoutline.api.model.OutlineAck;
+import com.ririv.quickoutline.api.model.OutlineNode;
+import com.ririv.quickoutline.api.model.OutlineSnapshot;
+import com.ririv.quickoutline.api.model.RpcResponse;
+import com.ririv.quickoutline.api.service.RpcJson;
+import io.vertx.core.buffer.Buffer;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryRpcCodecTest {
+
+    private static OutlineSnapshot snapshot(int count) {
+        List<OutlineNode> nodes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            nodes.add(new OutlineNode("id-" + i, "第" + i + "节 Section " + i, i % 5 == 0 ? null : i - 3, 1 + i % 4));
+        }
+        return new OutlineSnapshot(7, nodes);
+    }
+
+    // 以 JSON 形式比较，两种编码语义一致
+    private static void assertSameJson(RpcResponse expected, RpcResponse actual) {
+        assertEquals(JsonParser.parseString(RpcJson.toJson(expected)), JsonParser.parseString(RpcJson.toJson(actual)));
+    }
+
+    @Test
+    void roundTripsEveryMessageType() {
+        OutlineSnapshot snapshot = snapshot(50);
+        snapshot.nodes.add(new OutlineNode("empty", "", Integer.MIN_VALUE, 1));
+        snapshot.nodes.add(new OutlineNode("null-title", null, Integer.MAX_VALUE, 2));
+        List<RpcResponse> responses = List.of(
+                RpcResponse.success("s", snapshot),
+                RpcResponse.success("t", "目录\n📖 text"),
+                RpcResponse.error("e", "failed"),
+                RpcResponse.success("a", OutlineAck.ok(12, 3)),
+                RpcResponse.success("r", OutlineAck.resync(snapshot(3), 1, "Version mismatch")),
+                RpcResponse.success("j", Map.of("other", List.of(1, 2))),
+                RpcResponse.success(null, ""));
+
+        Buffer frame = Buffer.buffer();
+        for (RpcResponse response : responses) {
+            BinaryRpcCodec.encode(response, frame);
+        }
+        List<RpcResponse> decoded = BinaryRpcCodec.decode(frame);
+        assertEquals(responses.size(), decoded.size());
+        for (int i = 0; i < responses.size(); i++) {
+            assertSameJson(responses.get(i), decoded.get(i));
+        }
+        assertInstanceOf(OutlineSnapshot.class, decoded.get(0).result);
+    }
+
+    /**
+     * 大目录快照与确认消息：JSON 与二进制编码的编码耗时、解码耗时与大小
+     */
+    @Test
+    @Tag("benchmark")
+    void benchmarkJsonVsBinary() {
+        Map<String, RpcResponse> cases = Map.of(
+                "snapshot 60k nodes", RpcResponse.success("1", snapshot(60_000)),
+                "resync ack 5k nodes", RpcResponse.success("2", OutlineAck.resync(snapshot(5_000), 0, "Version mismatch")));
+        for (Map.Entry<String, RpcResponse> entry : cases.entrySet()) {
+            RpcResponse response = entry.getValue();
+            long[] json = new long[3];
+            long[] binary = new long[3];
+            for (int round = 0; round < 30; round++) {
+                boolean measure = round >= 10;
+                long start = System.nanoTime();
+                Buffer jsonBuffer = WebSocketRpcHandler.serialize(List.of(response), false);
+                long encoded = System.nanoTime();
+                JsonParser.parseString(jsonBuffer.toString());
+                long decoded = System.nanoTime();
+                if (measure) {
+                    json[0] += encoded - start;
+                    json[1] += decoded - encoded;
+                    json[2] = jsonBuffer.length();
+                }
+
+                start = System.nanoTime();
+                Buffer binaryBuffer = WebSocketRpcHandler.serializeBinary(List.of(response));
+                encoded = System.nanoTime();
+                BinaryRpcCodec.decode(binaryBuffer);
+                decoded = System.nanoTime();
+                if (measure) {
+                    binary[0] += encoded - start;
+                    binary[1] += decoded - encoded;
+                    binary[2] = binaryBuffer.length();
+                }
+            }
+            System.out.printf("%s: json encode %.2f ms, decode %.2f ms, %d bytes; binary encode %.2f ms, decode %.2f ms, %d bytes (%.1fx smaller)%n",
+                    entry.getKey(), json[0] / 20 / 1e6, json[1] / 20 / 1e6, json[2],
+                    binary[0] / 20 / 1e6, binary[1] / 20 / 1e6, binary[2], json[2] / (double) binary[2]);
+        }
+    }
+}
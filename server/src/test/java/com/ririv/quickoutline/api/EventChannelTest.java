@@ -0,0 +1,106 @@
+package com.ririv.quickoutline.api;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.WebSocket;
+import io.vertx.core.http.WebSocketClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventChannelTest {
+
+    private Vertx vertx;
+    private WebSocketClient wsClient;
+    private int port;
+    private CompletableFuture<EventChannel> channel;
+
+    @BeforeEach
+    void startServer() {
+        vertx = Vertx.vertx();
+        channel = new CompletableFuture<>();
+        port = vertx.createHttpServer().webSocketHandler(ws -> {
+            ws.setWriteQueueMaxSize(64 * 1024);
+            channel.complete(new EventChannel(ws, Vertx.currentContext(), 20));
+        }).listen(0).await().actualPort();
+        wsClient = vertx.createWebSocketClient();
+    }
+
+    @AfterEach
+    void stopServer() {
+        vertx.close().await();
+    }
+
+    private List<JsonObject> connect(List<JsonObject> received, WebSocket[] socket) {
+        socket[0] = wsClient.connect(port, "127.0.0.1", "/").await();
+        socket[0].textMessageHandler(text -> received.add(JsonParser.parseString(text).getAsJsonObject()));
+        return received;
+    }
+
+    private static void awaitTerminal(List<JsonObject> received, String type) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(20);
+        while (received.stream().noneMatch(e -> e.get("type").getAsString().equals(type))) {
+            assertTrue(System.nanoTime() < deadline, "terminal event not delivered");
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void progressIsMergedAndPrecedesTerminalEvent() throws Exception {
+        List<JsonObject> received = connect(new CopyOnWriteArrayList<>(), new WebSocket[1]);
+        EventChannel events = channel.get(5, TimeUnit.SECONDS);
+
+        int pages = 20_000;
+        for (int page = 1; page <= pages; page++) {
+            events.progress("extract-progress", Map.of("page", page, "total", pages));
+        }
+        events.sendTerminal("extract-done", Map.of("title", "a \"quoted\" <title>\n"));
+        awaitTerminal(received, "extract-done");
+
+        List<JsonObject> progress = received.stream().filter(e -> e.get("type").getAsString().equals("extract-progress")).toList();
+        assertTrue(progress.size() < 100, "progress not merged: " + progress.size());
+        assertEquals(pages, progress.get(progress.size() - 1).getAsJsonObject("payload").get("page").getAsInt());
+        JsonObject last = received.get(received.size() - 1);
+        assertEquals("extract-done", last.get("type").getAsString());
+        assertEquals("a \"quoted\" <title>\n", last.getAsJsonObject("payload").get("title").getAsString());
+        assertTrue(events.getMergedCount() > pages - 100);
+    }
+
+    @Test
+    void slowReaderDropsNormalEventsButKeepsTerminalOnes() throws Exception {
+        WebSocket[] socket = new WebSocket[1];
+        List<JsonObject> received = connect(new CopyOnWriteArrayList<>(), socket);
+        EventChannel events = channel.get(5, TimeUnit.SECONDS);
+        socket[0].pause(); // 客户端停止读取，服务端写队列逐渐写满
+
+        String filler = "x".repeat(16 * 1024);
+        int total = 5_000;
+        for (int i = 0; i < total; i++) {
+            events.send("page-model", Map.of("page", i, "data", filler));
+            if (i % 1000 == 0) {
+                events.sendTerminal("checkpoint-" + i, i);
+            }
+        }
+        events.sendTerminal("done", total);
+        Thread.sleep(500);
+        socket[0].resume();
+
+        awaitTerminal(received, "done");
+        assertTrue(events.getDroppedCount() > 0, "expected drops under backpressure");
+        for (int i = 0; i < total; i += 1000) {
+            String type = "checkpoint-" + i;
+            assertTrue(received.stream().anyMatch(e -> e.get("type").getAsString().equals(type)), type + " missing");
+        }
+        long pageModels = received.stream().filter(e -> e.get("type").getAsString().equals("page-model")).count();
+        assertEquals(total - events.getDroppedCount(), pageModels);
+    }
+}
@@ -0,0 +1,434 @@
+package com.ririv.quickoutline.api;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfWriter;
+import com.ririv.quickoutline.api.model.OutlineAck;
+import com.ririv.quickoutline.api.model.OutlineNode;
+import com.ririv.quickoutline.api.model.OutlineSnapshot;
+import com.ririv.quickoutline.api.model.RpcResponse;
+import com.ririv.quickoutline.api.service.RpcDispatcher;
+import com.ririv.quickoutline.api.service.RpcProcessor;
+import com.ririv.quickoutline.api.service.impl.ApiServiceImpl;
+import com.ririv.quickoutline.pdfProcess.ExtractionProgress;
+import com.ririv.quickoutline.pdfProcess.SyntheticPdfGenerator;
+import com.ririv.quickoutline.service.WorkScheduler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.WebSocket;
+import io.vertx.core.http.WebSocketClient;
+import io.vertx.core.http.WebSocketClientOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WebSocketRpcHandlerTest {
+
+    private static final String LARGE_RESULT = "large-result";
+    private final Gson gson = new Gson();
+    private Vertx vertx;
+    private WebSocketClient wsClient; // 需要持有引用，否则客户端被 GC 时会关闭连接
+    private WorkScheduler scheduler;
+    private RpcDispatcher dispatcher;
+    private WebSocketSessionManager sessions;
+    private int port;
+    private volatile CountDownLatch extractionGate;
+    private final List<String> cancelledExtractions = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void startServer() throws Exception {
+        vertx = Vertx.vertx();
+        scheduler = new WorkScheduler(1);
+        ApiServiceImpl api = new ApiServiceImpl(scheduler) {
+            @Override
+            public String extractToc(String filePath) {
+                return filePath.equals(LARGE_RESULT) ? largeToc() : super.extractToc(filePath);
+            }
+
+            @Override
+            public String extractToc(String filePath, ExtractionProgress progress) {
+                if (filePath.equals(LARGE_RESULT)) {
+                    return largeToc();
+                }
+                CountDownLatch gate = extractionGate;
+                try {
+                    return super.extractToc(filePath, gate == null ? progress : (done, total) -> {
+                        progress.pageDone(done, total);
+                        awaitQuietly(gate); // 每页完成后停住，直到测试放行
+                    });
+                } catch (CancellationException e) {
+                    cancelledExtractions.add(filePath);
+                    throw e;
+                }
+            }
+        };
+        sessions = new WebSocketSessionManager();
+        dispatcher = new RpcDispatcher(new RpcProcessor(api, sessions), scheduler);
+        WebSocketRpcHandler handler = new WebSocketRpcHandler(dispatcher, sessions);
+        HttpServer server = vertx.createHttpServer().webSocketHandler(handler);
+        port = server.listen(0).await().actualPort();
+        wsClient = vertx.createWebSocketClient(new WebSocketClientOptions().setMaxMessageSize(64 * 1024 * 1024));
+    }
+
+    @AfterEach
+    void stopServer() {
+        vertx.close().await();
+        dispatcher.close();
+        scheduler.shutdown();
+    }
+
+    private record Client(WebSocket ws, BlockingQueue<String> frames) {
+        // 收集 count 个响应，返回收到的帧数
+        int awaitResponses(int count, List<JsonElement> responses) throws InterruptedException {
+            int frameCount = 0;
+            while (responses.size() < count) {
+                String frame = frames.poll(10, TimeUnit.SECONDS);
+                assertNotNull(frame, "timed out waiting for responses");
+                frameCount++;
+                JsonElement json = JsonParser.parseString(frame);
+                if (json.isJsonArray()) {
+                    json.getAsJsonArray().forEach(responses::add);
+                } else {
+                    responses.add(json);
+                }
+            }
+            return frameCount;
+        }
+    }
+
+    private Client connect(String uri) {
+        BlockingQueue<String> frames = new LinkedBlockingQueue<>();
+        WebSocket ws = wsClient.connect(port, "127.0.0.1", uri).await();
+        ws.textMessageHandler(frames::add);
+        return new Client(ws, frames);
+    }
+
+    private String request(String id, String method, Object... params) {
+        return gson.toJson(Map.of("id", id, "method", method, "params", Arrays.asList(params)));
+    }
+
+    /**
+     * 打开文档时前端发出的一组请求：打开目录会话、取快照，以及若干简单查询
+     */
+    private List<String> documentOpenSequence(String pdf, int round) {
+        List<String> requests = new ArrayList<>();
+        requests.add(request(round + "-open", "openOutlineSession", pdf, 0));
+        requests.add(request(round + "-snapshot", "getOutlineSnapshot", pdf));
+        for (int i = 0; i < 8; i++) {
+            requests.add(request(round + "-q" + i, "placeholder"));
+        }
+        return requests;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Path createPdf(Path dir) {
+        Path file = dir.resolve("doc.pdf");
+        try (PdfDocument pdfDoc = new PdfDocument(new PdfWriter(file.toString()))) {
+            pdfDoc.addNewPage();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        return file;
+    }
+
+    @Test
+    void batchIsAnsweredInOneFrameInRequestOrder(@TempDir Path dir) throws Exception {
+        String pdf = createPdf(dir).toString();
+        Client client = connect("/ws/tauri");
+        List<String> requests = documentOpenSequence(pdf, 0);
+        client.ws().writeTextMessage("[" + String.join(",", requests) + "]").await();
+
+        List<JsonElement> responses = new ArrayList<>();
+        assertEquals(1, client.awaitResponses(requests.size(), responses));
+        for (int i = 0; i < requests.size(); i++) {
+            String expectedId = JsonParser.parseString(requests.get(i)).getAsJsonObject().get("id").getAsString();
+            assertEquals(expectedId, responses.get(i).getAsJsonObject().get("id").getAsString());
+            assertTrue(responses.get(i).getAsJsonObject().get("error") == null);
+        }
+    }
+
+    @Test
+    void singleResponsesAreCoalescedWithinWindow() throws Exception {
+        Client client = connect("/ws/tauri?coalesceMs=50");
+        for (int i = 0; i < 5; i++) {
+            client.ws().writeTextMessage(request("q" + i, "placeholder")).await();
+        }
+        List<JsonElement> responses = new ArrayList<>();
+        assertTrue(client.awaitResponses(5, responses) < 5);
+    }
+
+    @Test
+    void emptyOrMalformedBatchGetsError() throws Exception {
+        Client client = connect("/ws/tauri");
+        client.ws().writeTextMessage("[]").await();
+        List<JsonElement> responses = new ArrayList<>();
+        client.awaitResponses(1, responses);
+        assertEquals("Empty batch", responses.get(0).getAsJsonObject().get("error").getAsString());
+    }
+
+    // 约 5 MB 的目录文本，含中文、全角空格与 emoji
+    private static String largeToc() {
+        StringBuilder toc = new StringBuilder();
+        for (int i = 0; toc.length() < 3_600_000; i++) {
+            toc.append("第").append(i).append("章　Chapter \"").append(i).append("\" \uD83D\uDCD6 <").append(i).append(">\n");
+        }
+        return toc.toString();
+    }
+
+    private static OutlineSnapshot largeSnapshot() {
+        List<OutlineNode> nodes = new ArrayList<>();
+        for (int i = 0; i < 60_000; i++) {
+            nodes.add(new OutlineNode("id-" + i, "第" + i + "节 Section " + i + " of the document", i % 3 == 0 ? null : i, 1 + i % 4));
+        }
+        return new OutlineSnapshot(42, nodes);
+    }
+
+    @Test
+    void streamingSerializationMatchesReflectiveGson() {
+        String tricky = "a\"b\\c\n\t<>&='中　\uD83D\uDCD6 lone:\uD800x\uDC00";
+        List<RpcResponse> responses = List.of(
+                RpcResponse.success("1", largeSnapshot()),
+                RpcResponse.success("2", tricky),
+                RpcResponse.success("3", OutlineAck.resync(new OutlineSnapshot(3, List.of(new OutlineNode("x", tricky, 1, 2))), 1, "boom")),
+                RpcResponse.error("4", "failed"));
+        Buffer buffer = WebSocketRpcHandler.serialize(responses, true);
+        byte[] expected = new Gson().toJson(responses).getBytes(StandardCharsets.UTF_8);
+        assertTrue(JsonParser.parseString(new String(expected, StandardCharsets.UTF_8)).equals(JsonParser.parseString(buffer.toString())),
+                "streamed JSON differs from reflective Gson output");
+        // 单个代理字符与 String.getBytes 一样编码为 '?'
+        Buffer single = WebSocketRpcHandler.serialize(List.of(RpcResponse.success(null, tricky)), false);
+        assertArrayEquals(reflectiveGsonBytes(tricky), single.getBytes());
+    }
+
+    private static byte[] reflectiveGsonBytes(String result) {
+        // 关闭 HTML 转义，与 JsonWriter 默认行为一致
+        return new GsonBuilder().disableHtmlEscaping().create()
+                .toJson(RpcResponse.success(null, result)).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void largeResponseIsSentAsFragments() throws Exception {
+        AtomicInteger frames = new AtomicInteger();
+        BlockingQueue<String> messages = new LinkedBlockingQueue<>();
+        BlockingQueue<Integer> frameCounts = new LinkedBlockingQueue<>();
+        WebSocket ws = wsClient.connect(port, "127.0.0.1", "/ws/tauri").await();
+        Buffer[] assembled = {Buffer.buffer()};
+        ws.frameHandler(frame -> { // 设置 frameHandler 后需要自行拼接分片
+            frames.incrementAndGet();
+            assembled[0].appendBuffer(frame.binaryData());
+            if (frame.isFinal()) {
+                messages.add(assembled[0].toString());
+                frameCounts.add(frames.getAndSet(0));
+                assembled[0] = Buffer.buffer();
+            }
+        });
+        ws.writeTextMessage(request("big", "extractToc", LARGE_RESULT)).await();
+
+        JsonObject response;
+        int responseFrames;
+        do { // 跳过提取进度事件
+            String message = messages.poll(30, TimeUnit.SECONDS);
+            assertNotNull(message);
+            responseFrames = frameCounts.take();
+            response = JsonParser.parseString(message).getAsJsonObject();
+        } while (response.has("type"));
+        assertEquals(largeToc(), response.get("result").getAsString());
+        assertTrue(responseFrames > 1, "expected fragmented frames, got " + responseFrames);
+    }
+
+    @Test
+    void binaryModeAnswersWithBinaryFrames(@TempDir Path dir) throws Exception {
+        String pdf = createPdf(dir).toString();
+        BlockingQueue<Buffer> frames = new LinkedBlockingQueue<>();
+        WebSocket ws = wsClient.connect(port, "127.0.0.1", "/ws/tauri?format=binary").await();
+        ws.binaryMessageHandler(frames::add);
+        List<String> requests = documentOpenSequence(pdf, 0);
+        ws.writeTextMessage("[" + String.join(",", requests) + "]").await();
+
+        Buffer frame = frames.poll(10, TimeUnit.SECONDS);
+        assertNotNull(frame);
+        List<RpcResponse> responses = BinaryRpcCodec.decode(frame);
+        assertEquals(requests.size(), responses.size());
+        assertEquals("0-open", responses.get(0).id);
+        assertInstanceOf(OutlineSnapshot.class, responses.get(0).result);
+        assertEquals("OK", responses.get(2).result);
+    }
+
+    @Test
+    void extractionProgressIsPushedBeforeResponse(@TempDir Path dir) throws Exception {
+        int pages = 40;
+        String pdf = SyntheticPdfGenerator.spec().seed(31).pages(pages).tocPages(2).generate()
+                .writeTo(dir.resolve("toc.pdf")).toString();
+        Client client = connect("/ws/tauri");
+        Client other = connect("/ws/tauri");
+        client.ws().writeTextMessage(request("x", "extractToc", pdf)).await();
+
+        List<JsonObject> progress = new ArrayList<>();
+        while (true) {
+            String frame = client.frames().poll(30, TimeUnit.SECONDS);
+            assertNotNull(frame, "timed out waiting for extractToc");
+            JsonObject json = JsonParser.parseString(frame).getAsJsonObject();
+            if (json.has("type")) {
+                assertEquals("extractProgress", json.get("type").getAsString());
+                progress.add(json.getAsJsonObject("payload"));
+            } else {
+                assertEquals("x", json.get("id").getAsString());
+                assertFalse(json.get("result").getAsString().isEmpty());
+                break;
+            }
+        }
+        // 合并后事件数不超过页数，最后一个是 finished，且早于响应到达
+        assertFalse(progress.isEmpty());
+        assertTrue(progress.size() <= pages + 1, "progress events: " + progress.size());
+        JsonObject last = progress.get(progress.size() - 1);
+        assertTrue(last.get("finished").getAsBoolean());
+        assertEquals(pages, last.get("donePages").getAsInt());
+        assertEquals(pages, last.get("totalPages").getAsInt());
+        progress.forEach(p -> assertEquals("x", p.get("requestId").getAsString()));
+        assertEquals(1, progress.stream().filter(p -> p.get("finished").getAsBoolean()).count());
+        // 进度只推送给发起提取的会话
+        assertNull(other.frames().poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void extractionIsCancelledWhenSessionCloses(@TempDir Path dir) throws Exception {
+        String pdf = SyntheticPdfGenerator.spec().seed(32).pages(20).tocPages(1).generate()
+                .writeTo(dir.resolve("toc.pdf")).toString();
+        extractionGate = new CountDownLatch(1);
+        Client client = connect("/ws/tauri");
+        client.ws().writeTextMessage(request("x", "extractToc", pdf)).await();
+        String frame = client.frames().poll(30, TimeUnit.SECONDS);
+        assertNotNull(frame, "no progress before disconnect");
+        assertEquals("extractProgress", JsonParser.parseString(frame).getAsJsonObject().get("type").getAsString());
+
+        client.ws().close().await();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (sessions.getSessionCount() > 0) {
+            assertTrue(System.nanoTime() < deadline, "session not unregistered");
+            Thread.sleep(10);
+        }
+        extractionGate.countDown();
+        while (!cancelledExtractions.contains(pdf)) {
+            assertTrue(System.nanoTime() < deadline, "extraction not cancelled");
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void queryParamsAreMatchedByExactName() {
+        assertEquals("binary", WebSocketRpcHandler.queryParam("coalesceMs=5&format=binary", "format"));
+        assertNull(WebSocketRpcHandler.queryParam("formats=binary", "format"));
+        assertNull(WebSocketRpcHandler.queryParam(null, "format"));
+    }
+
+    @Test
+    void coalesceWindowIsParsedAndClamped() {
+        assertEquals(0, ResponseCoalescer.parseWindow(null));
+        assertEquals(5, ResponseCoalescer.parseWindow("a=1&coalesceMs=5"));
+        assertEquals(0, ResponseCoalescer.parseWindow("coalesceMs=x"));
+        assertEquals(ResponseCoalescer.MAX_WINDOW_MILLIS, ResponseCoalescer.parseWindow("coalesceMs=99999"));
+    }
+
+    /**
+     * 5 MB 结果每次序列化分配的字节数：反射 Gson 生成 String 再编码为帧字节，
+     * 与 TypeAdapter + JsonWriter 直接写入 Buffer 对比
+     */
+    @Test
+    @Tag("benchmark")
+    void benchmarkAllocationPerLargeResponse() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Gson reflective = new Gson();
+        Map<String, Object> results = Map.of("toc text", largeToc(), "outline snapshot", largeSnapshot());
+        for (Map.Entry<String, Object> entry : results.entrySet()) {
+            RpcResponse response = RpcResponse.success("1", entry.getValue());
+            long payload = WebSocketRpcHandler.serialize(List.of(response), false).length();
+            long[] oldPath = new long[2];
+            long[] newPath = new long[2];
+            for (int round = 0; round < 15; round++) {
+                boolean measure = round >= 5; // 前 5 轮预热
+                long tid = Thread.currentThread().threadId();
+                long bytes = threads.getThreadAllocatedBytes(tid);
+                long start = System.nanoTime();
+                byte[] frame = reflective.toJson(response).getBytes(StandardCharsets.UTF_8);
+                long oldNanos = System.nanoTime() - start;
+                long oldBytes = threads.getThreadAllocatedBytes(tid) - bytes;
+                assertTrue(frame.length > 0);
+
+                bytes = threads.getThreadAllocatedBytes(tid);
+                start = System.nanoTime();
+                Buffer buffer = WebSocketRpcHandler.serialize(List.of(response), false);
+                long newNanos = System.nanoTime() - start;
+                long newBytes = threads.getThreadAllocatedBytes(tid) - bytes;
+                assertTrue(buffer.length() > 0);
+                if (measure) {
+                    oldPath[0] += oldBytes;
+                    oldPath[1] += oldNanos;
+                    newPath[0] += newBytes;
+                    newPath[1] += newNanos;
+                }
+            }
+            System.out.printf("%s (%.1f MB): reflective String %.1f MB allocated, %.1f ms; streaming Buffer %.1f MB allocated, %.1f ms%n",
+                    entry.getKey(), payload / 1e6, oldPath[0] / 10 / 1e6, oldPath[1] / 10 / 1e6, newPath[0] / 10 / 1e6, newPath[1] / 10 / 1e6);
+        }
+    }
+
+    /**
+     * 打开文档的一组请求：逐个发送 / 逐个发送并合并响应 / 批量发送，比较收到的帧数与总耗时
+     */
+    @Test
+    @Tag("benchmark")
+    void benchmarkDocumentOpenSequence(@TempDir Path dir) throws Exception {
+        String pdf = createPdf(dir).toString();
+        int rounds = 300;
+        for (String mode : List.of("individual", "coalesced", "batch", "individual", "coalesced", "batch")) {
+            Client client = connect(mode.equals("coalesced") ? "/ws/tauri?coalesceMs=2" : "/ws/tauri");
+            long frames = 0;
+            long start = System.nanoTime();
+            for (int round = 0; round < rounds; round++) {
+                List<String> requests = documentOpenSequence(pdf, round);
+                if (mode.equals("batch")) {
+                    client.ws().writeTextMessage("[" + String.join(",", requests) + "]");
+                } else {
+                    requests.forEach(client.ws()::writeTextMessage);
+                }
+                frames += client.awaitResponses(requests.size(), new ArrayList<>());
+            }
+            long nanos = System.nanoTime() - start;
+            client.ws().close().await();
+            System.out.printf("%-10s: %.1f response frames, %.3f ms per document open%n",
+                    mode, frames / (double) rounds, nanos / 1e6 / rounds);
+        }
+    }
+}
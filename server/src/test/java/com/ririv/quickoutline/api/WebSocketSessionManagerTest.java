@@ -0,0 +1,174 @@
+package com.ririv.quickoutline.api;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.WebSocket;
+import io.vertx.core.http.WebSocketClient;
+import io.vertx.core.http.WebSocketClientOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WebSocketSessionManagerTest {
+
+    private static final int CLIENTS = 300;
+
+    private Vertx vertx;
+    private WebSocketClient wsClient;
+    private int port;
+    private WebSocketSessionManager manager;
+    private final Map<String, String> sessionOfClient = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void startServer() {
+        vertx = Vertx.vertx();
+        manager = new WebSocketSessionManager();
+        port = vertx.createHttpServer().webSocketHandler(ws -> {
+            String sessionId = manager.register(ws);
+            sessionOfClient.put(ws.query(), sessionId);
+            ws.closeHandler(v -> manager.unregister(sessionId));
+        }).listen(0).await().actualPort();
+        wsClient = vertx.createWebSocketClient(new WebSocketClientOptions().setMaxConnections(CLIENTS * 2));
+    }
+
+    @AfterEach
+    void stopServer() {
+        vertx.close().await();
+    }
+
+    private static final class Client {
+        final WebSocket ws;
+        final List<JsonObject> events = new CopyOnWriteArrayList<>();
+
+        Client(WebSocket ws) {
+            this.ws = ws;
+            ws.textMessageHandler(text -> events.add(JsonParser.parseString(text).getAsJsonObject()));
+        }
+
+        long count(String type) {
+            return events.stream().filter(e -> e.get("type").getAsString().equals(type)).count();
+        }
+    }
+
+    private List<Client> connectAll(int count) {
+        List<Future<WebSocket>> connecting = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            connecting.add(wsClient.connect(port, "127.0.0.1", "/?" + i));
+        }
+        List<Client> clients = new ArrayList<>();
+        for (Future<WebSocket> f : connecting) {
+            clients.add(new Client(f.await()));
+        }
+        awaitTrue(() -> manager.getSessionCount() == count, "sessions not registered");
+        return clients;
+    }
+
+    private static void awaitTrue(BooleanSupplier condition, String message) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, message);
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    @Test
+    void broadcastReachesEveryClient() {
+        List<Client> clients = connectAll(CLIENTS);
+        for (int i = 0; i < 10; i++) {
+            manager.sendEvent("document-changed", Map.of("seq", i));
+        }
+        awaitTrue(() -> clients.stream().allMatch(c -> c.count("document-changed") == 10), "broadcast not delivered");
+        for (Client client : clients) {
+            for (int i = 0; i < 10; i++) { // 每个会话内保持发送顺序
+                assertEquals(i, client.events.get(i).getAsJsonObject("payload").get("seq").getAsInt());
+            }
+        }
+    }
+
+    @Test
+    void jobEventsGoOnlyToTheOwner() {
+        List<Client> clients = connectAll(CLIENTS);
+        int owner = 42;
+        String ownerSession = sessionOfClient.get(String.valueOf(owner));
+        manager.claimJob("job-1", ownerSession, () -> fail("job of a live session cancelled"));
+
+        manager.sendProgress("job-1", "extract-progress", Map.of("page", 1));
+        manager.sendTerminalEvent("job-1", "extract-done", Map.of("pages", 1));
+        awaitTrue(() -> clients.get(owner).count("extract-done") == 1, "owner did not receive job event");
+
+        manager.sendEvent("marker", null); // 广播送达后，之前的任务事件若误发也已送达
+        awaitTrue(() -> clients.stream().allMatch(c -> c.count("marker") == 1), "broadcast not delivered");
+        for (int i = 0; i < clients.size(); i++) {
+            assertEquals(i == owner ? 1 : 0, clients.get(i).count("extract-progress"), "client " + i);
+            assertEquals(i == owner ? 1 : 0, clients.get(i).count("extract-done"), "client " + i);
+        }
+        manager.releaseJob("job-1");
+    }
+
+    @Test
+    void disconnectRemovesOnlyThatSessionAndCancelsItsJobs() {
+        List<Client> clients = connectAll(CLIENTS);
+        Set<Integer> cancelled = ConcurrentHashMap.newKeySet();
+        for (int i = 0; i < CLIENTS; i++) {
+            int job = i;
+            manager.claimJob("job-" + i, sessionOfClient.get(String.valueOf(i)), () -> assertTrue(cancelled.add(job)));
+        }
+        for (int i = 0; i < CLIENTS; i += 2) {
+            clients.get(i).ws.close();
+        }
+        awaitTrue(() -> manager.getSessionCount() == CLIENTS / 2, "closed sessions not unregistered");
+        awaitTrue(() -> cancelled.size() == CLIENTS / 2, "jobs of closed sessions not cancelled");
+        for (int i = 0; i < CLIENTS; i++) {
+            assertEquals(i % 2 == 0, cancelled.contains(i), "job " + i);
+        }
+        // 会话已断开后登记的任务立即取消，已结束的任务不再取消
+        manager.claimJob("late", sessionOfClient.get("0"), () -> cancelled.add(-1));
+        assertTrue(cancelled.contains(-1));
+        manager.releaseJob("job-1");
+        clients.get(1).ws.close();
+        awaitTrue(() -> manager.getSessionCount() == CLIENTS / 2 - 1, "closed session not unregistered");
+        assertFalse(cancelled.contains(1));
+
+        manager.sendEvent("after-churn", null);
+        awaitTrue(() -> clients.stream().filter(c -> !c.ws.isClosed()).allMatch(c -> c.count("after-churn") == 1),
+                "remaining sessions did not receive broadcast");
+    }
+
+    @Test
+    @Tag("benchmark")
+    void benchmarkBroadcastFanOut() {
+        int clientCount = 500;
+        int events = 200;
+        List<Client> clients = connectAll(clientCount);
+        String filler = "x".repeat(1024);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < events; i++) {
+            manager.sendEvent("page-model", Map.of("page", i, "data", filler));
+        }
+        long enqueued = System.nanoTime() - start;
+        awaitTrue(() -> clients.stream().allMatch(c -> c.count("page-model") == events), "broadcast not delivered");
+        long delivered = System.nanoTime() - start;
+
+        System.out.printf("Broadcast %d events to %d clients: enqueue %.1f ms, delivered %.1f ms (%.0f msgs/s)%n",
+                events, clientCount, enqueued / 1e6, delivered / 1e6, events * (double) clientCount / (delivered / 1e9));
+    }
+}
@@ -0,0 +1,255 @@
+package com.ririv.quickoutline.api.service;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.itextpdf.io.font.constants.StandardFonts;
+import com.itextpdf.kernel.font.PdfFont;
+import com.itextpdf.kernel.font.PdfFontFactory;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.kernel.pdf.canvas.PdfCanvas;
+import com.ririv.quickoutline.api.model.RpcResponse;
+import com.ririv.quickoutline.api.service.impl.ApiServiceImpl;
+import com.ririv.quickoutline.service.WorkScheduler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RpcDispatcherTest {
+
+    private final Gson gson = new Gson();
+    private final WorkScheduler scheduler = new WorkScheduler(2);
+
+    @AfterEach
+    void shutdownScheduler() {
+        scheduler.shutdown();
+    }
+
+    private String request(String id, String method, Object... params) {
+        return gson.toJson(Map.of("id", id, "method", method, "params", Arrays.asList(params)));
+    }
+
+    private static JsonObject parse(RpcResponse response) {
+        return JsonParser.parseString(RpcJson.toJson(response)).getAsJsonObject();
+    }
+
+    @Test
+    void smallCallsDoNotWaitForHeavyCall() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ApiService api = new ApiServiceImpl() {
+            @Override
+            public String extractToc(String filePath) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "toc";
+            }
+        };
+        try (RpcDispatcher dispatcher = new RpcDispatcher(new RpcProcessor(api), scheduler)) {
+            CompletableFuture<RpcResponse> heavy = dispatcher.dispatch(request("heavy", "extractToc", "a.pdf"));
+            RpcResponse small = dispatcher.dispatch(request("small", "placeholder")).get(5, TimeUnit.SECONDS);
+            assertEquals("small", parse(small).get("id").getAsString());
+            assertFalse(heavy.isDone());
+
+            release.countDown();
+            JsonObject response = parse(heavy.get(5, TimeUnit.SECONDS));
+            assertEquals("heavy", response.get("id").getAsString());
+            assertEquals("toc", response.get("result").getAsString());
+        }
+    }
+
+    @Test
+    void maxConcurrencyIsRespected() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        ApiService api = new ApiServiceImpl() {
+            @Override
+            public String extractToc(String filePath) {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+                return filePath;
+            }
+        };
+        try (RpcDispatcher dispatcher = new RpcDispatcher(new RpcProcessor(api), scheduler)) {
+            List<CompletableFuture<RpcResponse>> futures = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                futures.add(dispatcher.dispatch(request("r" + i, "extractToc", "doc" + i + ".pdf")));
+            }
+            for (int i = 0; i < 10; i++) {
+                assertEquals("doc" + i + ".pdf", parse(futures.get(i).get(5, TimeUnit.SECONDS)).get("result").getAsString());
+            }
+        }
+        assertEquals(1, maxRunning.get());
+    }
+
+    @Test
+    void orderedMethodsRunInArrivalOrder() throws Exception {
+        List<String> executed = Collections.synchronizedList(new ArrayList<>());
+        ApiService api = new ApiServiceImpl() {
+            @Override
+            public void closeOutlineSession(String filePath) {
+                try {
+                    Thread.sleep(filePath.length() % 3); // 打乱各请求的耗时
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                executed.add(filePath);
+            }
+        };
+        List<String> expected = new ArrayList<>();
+        try (RpcDispatcher dispatcher = new RpcDispatcher(new RpcProcessor(api), scheduler)) {
+            List<CompletableFuture<RpcResponse>> futures = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                String samePath = "./".repeat(i) + "doc.pdf"; // 规范化后是同一个文档
+                expected.add(samePath);
+                futures.add(dispatcher.dispatch(request("r" + i, "closeOutlineSession", samePath)));
+            }
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+        }
+        assertEquals(expected, executed);
+    }
+
+    @Test
+    void orderedMethodsOfOtherDocumentsDoNotWait() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ApiService api = new ApiServiceImpl() {
+            @Override
+            public void closeOutlineSession(String filePath) {
+                if (filePath.equals("slow.pdf")) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        };
+        try (RpcDispatcher dispatcher = new RpcDispatcher(new RpcProcessor(api), scheduler)) {
+            CompletableFuture<RpcResponse> slow = dispatcher.dispatch(request("slow", "closeOutlineSession", "slow.pdf"));
+            CompletableFuture<RpcResponse> queued = dispatcher.dispatch(request("queued", "closeOutlineSession", "./slow.pdf"));
+            RpcResponse other = dispatcher.dispatch(request("other", "closeOutlineSession", "other.pdf")).get(5, TimeUnit.SECONDS);
+            assertEquals("OK", parse(other).get("result").getAsString());
+            assertFalse(slow.isDone());
+            assertFalse(queued.isDone()); // 同一文档仍在排队
+
+            release.countDown();
+            assertEquals("OK", parse(queued.get(5, TimeUnit.SECONDS)).get("result").getAsString());
+            assertTrue(slow.isDone());
+        }
+    }
+
+    @Test
+    void malformedRequestGetsErrorResponse() throws Exception {
+        try (RpcDispatcher dispatcher = new RpcDispatcher(new RpcProcessor(new ApiServiceImpl(scheduler)), scheduler)) {
+            JsonObject response = parse(dispatcher.dispatch("{not json").get(5, TimeUnit.SECONDS));
+            assertTrue(response.get("id") == null || response.get("id").isJsonNull());
+            assertNotNull(response.get("error"));
+        }
+    }
+
+    static Path createTextPdf(Path dir, int pages, int linesPerPage) throws IOException {
+        Path file = dir.resolve("text.pdf");
+        try (PdfDocument pdfDoc = new PdfDocument(new PdfWriter(file.toString()))) {
+            PdfFont font = PdfFontFactory.createFont(StandardFonts.HELVETICA);
+            for (int p = 0; p < pages; p++) {
+                PdfCanvas canvas = new PdfCanvas(pdfDoc.addNewPage());
+                canvas.beginText().setFontAndSize(font, 11).moveText(50, 800);
+                for (int l = 0; l < linesPerPage; l++) {
+                    canvas.moveText(0, -16).showText("Chapter " + p + "." + l + " ........ " + (p * linesPerPage + l));
+                }
+                canvas.endText();
+            }
+        }
+        return file;
+    }
+
+    /**
+     * 后台执行整本目录提取时，测量交互调用（大目录的快照）的延迟：
+     * 不分优先级（提取占满所有核、不让出）与分优先级（后台少一个核、按页让出）对比
+     */
+    @Test
+    @Tag("benchmark")
+    void benchmarkInteractiveLatencyUnderBackgroundLoad(@TempDir Path dir) throws Exception {
+        String pdf = createTextPdf(dir, 400, 45).toString();
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        WorkScheduler unprioritised = new WorkScheduler(cores);
+        try (RpcDispatcher dispatcher = new RpcDispatcher(new RpcProcessor(new ApiServiceImpl(unprioritised)), scheduler)) {
+            openLargeSession(dispatcher, pdf);
+            measureInteractiveCalls(dispatcher, pdf, 200); // 预热
+            long[] idle = measureInteractiveCalls(dispatcher, pdf, 200);
+            report("idle", idle, 0);
+            long[] busy = measureDuringExtraction(dispatcher, pdf);
+            report("no lanes", busy, 0);
+        } finally {
+            unprioritised.shutdown();
+        }
+
+        WorkScheduler shared = new WorkScheduler();
+        try (RpcDispatcher dispatcher = new RpcDispatcher(new RpcProcessor(new ApiServiceImpl(shared)), shared)) {
+            openLargeSession(dispatcher, pdf);
+            long[] busy = measureDuringExtraction(dispatcher, pdf);
+            report("lanes", busy, shared.getYieldCount());
+        } finally {
+            shared.shutdown();
+        }
+    }
+
+    private void openLargeSession(RpcDispatcher dispatcher, String pdf) throws Exception {
+        dispatcher.dispatch(request("open", "openOutlineSession", pdf, 0)).get(1, TimeUnit.MINUTES);
+        List<Map<String, Object>> ops = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            ops.add(Map.of("op", "insert", "id", "n" + i, "title", "Chapter " + i, "pageNum", i));
+        }
+        dispatcher.dispatch(request("ops", "applyOutlineOps", pdf, 0, ops)).get(1, TimeUnit.MINUTES);
+    }
+
+    private long[] measureDuringExtraction(RpcDispatcher dispatcher, String pdf) throws Exception {
+        CompletableFuture<RpcResponse> heavy = dispatcher.dispatch(request("heavy", "extractToc", pdf));
+        Thread.sleep(500); // 等提取进入 CPU 密集阶段
+        long[] latencies = measureInteractiveCalls(dispatcher, pdf, 100);
+        assertFalse(heavy.isDone(), "extraction finished before measurement ended, use a larger document");
+        heavy.get(5, TimeUnit.MINUTES);
+        return latencies;
+    }
+
+    private static void report(String label, long[] latencies, long yields) {
+        System.out.printf("interactive snapshot (%s): p50 %.2f ms, p99 %.2f ms, background yields %d%n",
+                label, latencies[0] / 1e6, latencies[1] / 1e6, yields);
+    }
+
+    // 返回 {p50, p99}，单位纳秒
+    private long[] measureInteractiveCalls(RpcDispatcher dispatcher, String pdf, int count) throws Exception {
+        long[] latencies = new long[count];
+        for (int i = 0; i < count; i++) {
+            long start = System.nanoTime();
+            dispatcher.dispatch(request("s" + i, "getOutlineSnapshot", pdf)).get(1, TimeUnit.MINUTES);
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+        return new long[]{latencies[count / 2], latencies[count * 99 / 100]};
+    }
+}
@@ -0,0 +1,156 @@
+package com.ririv.quickoutline.api.service;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfOutline;
+import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.kernel.pdf.navigation.PdfExplicitDestination;
+import com.ririv.quickoutline.api.service.impl.ApiServiceImpl;
+import com.ririv.quickoutline.service.PdfOutlineService;
+import com.ririv.quickoutline.textProcess.OutlineTextCodec;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RpcProcessorTest {
+
+    private final Gson gson = new Gson();
+    private final RpcProcessor processor = new RpcProcessor(new ApiServiceImpl());
+
+    private static Path createPdf(Path dir, int pages, int chapters) throws Exception {
+        Path file = dir.resolve("doc.pdf");
+        try (PdfDocument pdfDoc = new PdfDocument(new PdfWriter(file.toString()))) {
+            for (int i = 0; i < pages; i++) {
+                pdfDoc.addNewPage();
+            }
+            PdfOutline root = pdfDoc.getOutlines(false);
+            for (int i = 0; i < chapters; i++) {
+                PdfOutline chapter = root.addOutline("Chapter " + i);
+                chapter.addDestination(PdfExplicitDestination.createFit(pdfDoc.getPage(i % pages + 1)));
+            }
+        }
+        return file;
+    }
+
+    private JsonObject call(String method, Object... params) {
+        Map<String, Object> request = Map.of("id", "1", "method", method, "params", Arrays.asList(params));
+        JsonObject response = JsonParser.parseString(processor.process(gson.toJson(request))).getAsJsonObject();
+        assertFalse(response.has("error") && !response.get("error").isJsonNull(), () -> response.get("error").getAsString());
+        return response.get("result").isJsonObject() ? response.getAsJsonObject("result") : null;
+    }
+
+    private static Map<String, Object> op(Object... keyValues) {
+        Map<String, Object> op = new LinkedHashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            op.put((String) keyValues[i], keyValues[i + 1]);
+        }
+        return op;
+    }
+
+    @Test
+    void editOutlineIncrementally(@TempDir Path dir) throws Exception {
+        Path pdf = createPdf(dir, 5, 2);
+        String path = pdf.toString();
+
+        JsonObject snapshot = call("openOutlineSession", path, 0);
+        assertEquals(0, snapshot.get("version").getAsLong());
+        JsonArray nodes = snapshot.getAsJsonArray("nodes");
+        assertEquals(2, nodes.size());
+        String ch0 = nodes.get(0).getAsJsonObject().get("id").getAsString();
+        String ch1 = nodes.get(1).getAsJsonObject().get("id").getAsString();
+
+        JsonObject ack = call("applyOutlineOps", path, 0, List.of(
+                op("op", "insert", "id", "new-1", "parentId", ch0, "title", "Section 0.1", "pageNum", 2),
+                op("op", "retitle", "id", ch1, "title", "Appendix"),
+                op("op", "move", "id", ch1, "afterId", null),
+                op("op", "setPage", "id", "new-1", "pageNum", 3)));
+        assertEquals(4, ack.get("version").getAsLong());
+        assertFalse(ack.get("resync").getAsBoolean());
+        assertFalse(ack.has("snapshot"), "snapshot is only sent on resync");
+
+        // 使用过期的基准版本，服务端要求重建
+        JsonObject stale = call("applyOutlineOps", path, 0, List.of(op("op", "delete", "id", ch0)));
+        assertTrue(stale.get("resync").getAsBoolean());
+        assertEquals(0, stale.get("applied").getAsInt());
+        assertEquals(4, stale.getAsJsonObject("snapshot").get("version").getAsLong());
+
+        // 第二个操作失败：第一个已生效，并返回快照
+        JsonObject partial = call("applyOutlineOps", path, 4, List.of(
+                op("op", "insert", "id", "new-2", "parentId", ch0, "afterId", "new-1", "title", "Section 0.2", "pageNum", 4),
+                op("op", "delete", "id", "missing")));
+        assertTrue(partial.get("resync").getAsBoolean());
+        assertEquals(1, partial.get("applied").getAsInt());
+        assertEquals(5, partial.get("version").getAsLong());
+
+        List<String> lines = new ArrayList<>();
+        for (var node : call("getOutlineSnapshot", path).getAsJsonArray("nodes")) {
+            JsonObject n = node.getAsJsonObject();
+            lines.add(n.get("level").getAsInt() + ":" + n.get("title").getAsString() + ":" + n.get("pageNum"));
+        }
+        assertEquals(List.of("1:Appendix:2", "1:Chapter 0:1", "2:Section 0.1:3", "2:Section 0.2:4"), lines);
+
+        call("saveOutlineSession", path, null, 0);
+        call("closeOutlineSession", path);
+        assertEquals("""
+                Appendix    2
+                Chapter 0    1
+                \tSection 0.1    3
+                \tSection 0.2    4
+                """, new PdfOutlineService().getOutlineAsString(path, 0));
+    }
+
+    @Test
+    void unknownSessionIsAnError(@TempDir Path dir) {
+        String response = processor.process(gson.toJson(Map.of("id", "7", "method", "getOutlineSnapshot",
+                "params", List.of(dir.resolve("none.pdf").toString()))));
+        JsonObject json = JsonParser.parseString(response).getAsJsonObject();
+        assertEquals("7", json.get("id").getAsString());
+        assertTrue(json.get("error").getAsString().startsWith("No outline session"));
+    }
+
+    /**
+     * 大目录下单个标题修改：增量操作 vs 传输并重新解析整个目录文本
+     */
+    @Test
+    @Tag("benchmark")
+    void benchmarkRetitleVsFullText(@TempDir Path dir) throws Exception {
+        int chapters = 50_000;
+        String path = createPdf(dir, 100, chapters).toString();
+        JsonArray nodes = call("openOutlineSession", path, 0).getAsJsonArray("nodes");
+        String target = nodes.get(chapters / 2).getAsJsonObject().get("id").getAsString();
+
+        int rounds = 200;
+        long start = System.nanoTime();
+        int requestBytes = 0;
+        for (int i = 0; i < rounds; i++) {
+            String request = gson.toJson(Map.of("id", "r" + i, "method", "applyOutlineOps",
+                    "params", List.of(path, i, List.of(op("op", "retitle", "id", target, "title", "Title " + i)))));
+            requestBytes = request.length();
+            processor.process(request);
+        }
+        long opsNanos = (System.nanoTime() - start) / rounds;
+
+        String fullText = new PdfOutlineService().getOutlineAsString(path, 0);
+        start = System.nanoTime();
+        for (int i = 0; i < rounds / 20; i++) {
+            OutlineTextCodec.read(new StringReader(fullText));
+        }
+        long textNanos = (System.nanoTime() - start) / (rounds / 20);
+
+        System.out.printf("retitle op: %.3f ms, %d bytes; full text parse: %.3f ms, %d chars%n",
+                opsNanos / 1e6, requestBytes, textNanos / 1e6, fullText.length());
+    }
+}
@@ -0,0 +1,320 @@
+package com.ririv.quickoutline.model;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookmarkTest {
+
+    /**
+     * 生成线性书签列表：每 10 个为一章，章下 3 节，节下 2 小节的循环结构
+     */
+    static List<Bookmark> createLinearList(int size) {
+        List<Bookmark> list = new ArrayList<>(size);
+        int[] pattern = {1, 2, 3, 3, 2, 3, 3, 2, 3, 3};
+        for (int i = 0; i < size; i++) {
+            list.add(new Bookmark("Title " + i, i, pattern[i % pattern.length]));
+        }
+        return list;
+    }
+
+    @Test
+    void idsAreUniqueAcrossThreads() throws Exception {
+        int threads = 8;
+        int perThread = 50_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<String>>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    List<String> ids = new ArrayList<>(perThread);
+                    for (int i = 0; i < perThread; i++) {
+                        ids.add(new Bookmark("t", null, 1).getId());
+                    }
+                    return ids;
+                }));
+            }
+            Set<String> all = new HashSet<>();
+            for (Future<List<String>> future : futures) {
+                all.addAll(future.get());
+            }
+            assertEquals(threads * perThread, all.size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Tag("benchmark")
+    @Test
+    void benchmarkBuildLargeTree() throws Exception {
+        int size = 100_000;
+        for (int round = 0; round < 3; round++) { // 前几轮为预热
+            long start = System.nanoTime();
+            Bookmark root = Bookmark.convertListToBookmarkTree(createLinearList(size));
+            long treeMs = (System.nanoTime() - start) / 1_000_000;
+            assertEquals(size / 10, root.getChildren().size());
+
+            start = System.nanoTime();
+            for (int i = 0; i < size; i++) {
+                UUID.randomUUID().toString();
+            }
+            long uuidMs = (System.nanoTime() - start) / 1_000_000;
+            System.out.printf("round %d: build %d-node tree %d ms (UUID.randomUUID x %d alone: %d ms)%n",
+                    round, size, treeMs, size, uuidMs);
+        }
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Callable<Bookmark>> tasks = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                tasks.add(() -> Bookmark.convertListToBookmarkTree(createLinearList(size)));
+            }
+            long start = System.nanoTime();
+            for (Future<Bookmark> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+            System.out.printf("%d threads x %d-node tree: %d ms%n", threads, size, (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static List<String> titles(List<Bookmark> bookmarks) {
+        return bookmarks.stream().map(Bookmark::getTitle).toList();
+    }
+
+    @Test
+    void siblingMovesKeepLinksAndIndexConsistent() {
+        Bookmark root = Bookmark.createRoot();
+        Bookmark a = new Bookmark("a", 1, 1);
+        Bookmark b = new Bookmark("b", 2, 1);
+        Bookmark c = new Bookmark("c", 3, 1);
+        root.addChild(a);
+        root.addChild(b);
+        root.addChild(c);
+        assertSame(c, root.findById(c.getId()));
+
+        c.moveBefore(a);
+        assertEquals(List.of("c", "a", "b"), titles(root.getChildren()));
+        assertNull(c.getPrevSibling());
+        assertSame(a, c.getNextSibling());
+
+        a.moveTo(b);
+        assertEquals(List.of("c", "b"), titles(root.getChildren()));
+        assertSame(b, a.getParent());
+        assertEquals(2, a.getLevel());
+        assertSame(c, b.getPre());
+        assertSame(a, root.findById(a.getId()));
+
+        b.addChild(0, new Bookmark("b0", null, 2));
+        b.moveAfter(c);
+        assertEquals(List.of("b0", "a"), titles(b.getChildren()));
+        assertEquals("a", b.getChildren().get(1).getTitle());
+
+        b.remove();
+        assertEquals(List.of("c"), titles(root.getChildren()));
+        assertNull(root.findById(a.getId()));
+        assertNull(root.findById(b.getId()));
+        assertSame(c, root.findById(c.getId()));
+    }
+
+    @Test
+    void cannotMoveUnderOwnDescendant() {
+        Bookmark root = Bookmark.createRoot();
+        Bookmark a = new Bookmark("a", 1, 1);
+        Bookmark a1 = new Bookmark("a1", 1, 2);
+        root.addChild(a);
+        a.addChild(a1);
+
+        assertThrows(IllegalArgumentException.class, () -> a.moveTo(a1));
+        assertThrows(IllegalArgumentException.class, () -> a.moveTo(a));
+        assertSame(root, a.getParent());
+        assertSame(a, a1.getParent());
+    }
+
+    @Test
+    void attachingSubtreeFromAnotherTreeUpdatesIndexes() {
+        Bookmark root = Bookmark.createRoot();
+        root.addChild(new Bookmark("x", 1, 1));
+        Bookmark other = Bookmark.createRoot();
+        Bookmark d = new Bookmark("d", 1, 1);
+        Bookmark d1 = new Bookmark("d1", 1, 2);
+        other.addChild(d);
+        d.addChild(d1);
+        assertSame(d1, other.findById(d1.getId()));
+        assertNull(root.findById(d1.getId()));
+
+        d.moveTo(root, 0);
+        assertSame(d1, root.findById(d1.getId()));
+        assertNull(other.findById(d1.getId()));
+        assertEquals(List.of("d", "x"), titles(root.getChildren()));
+        assertEquals(2, d1.getLevel());
+    }
+
+    /**
+     * 10 万个同级节点：随机移动、前驱、删除、按 id 查找，
+     * 对比 ArrayList 的 indexOf/remove/add 写法
+     */
+    @Tag("benchmark")
+    @Test
+    void benchmarkFlatSiblings() {
+        int size = 100_000;
+        int ops = 100_000;
+        Bookmark root = Bookmark.createRoot();
+        Bookmark[] nodes = new Bookmark[size];
+        for (int i = 0; i < size; i++) {
+            nodes[i] = new Bookmark("t" + i, i, 1);
+            root.addChild(nodes[i]);
+        }
+        root.findById(nodes[0].getId()); // 建立索引
+
+        Random random = new Random(1);
+        long start = System.nanoTime();
+        for (int i = 0; i < ops; i++) {
+            Bookmark node = nodes[random.nextInt(size)];
+            Bookmark target = nodes[random.nextInt(size)];
+            if (random.nextBoolean()) node.moveAfter(target);
+            else node.moveBefore(target);
+            node.getPre();
+            assertSame(node, root.findById(node.getId()));
+        }
+        long linkedMs = (System.nanoTime() - start) / 1_000_000;
+        assertEquals(size, root.getChildren().size());
+
+        start = System.nanoTime();
+        for (int i = 0; i < size; i += 2) {
+            nodes[i].remove();
+        }
+        long removeMs = (System.nanoTime() - start) / 1_000_000;
+        assertEquals(size / 2, root.getChildren().size());
+        assertNull(root.findById(nodes[0].getId()));
+
+        // 基线：ArrayList 上的 indexOf + remove + add，只做 1/10 的操作量
+        List<Bookmark> list = new ArrayList<>(Arrays.asList(nodes));
+        start = System.nanoTime();
+        for (int i = 0; i < ops / 10; i++) {
+            Bookmark node = nodes[random.nextInt(size)];
+            Bookmark target = nodes[random.nextInt(size)];
+            list.remove(node);
+            list.add(list.indexOf(target) + 1, node);
+        }
+        long listMs = (System.nanoTime() - start) / 1_000_000;
+
+        System.out.printf("%d flat siblings: %d linked move+pre+find ops %d ms, remove %d nodes %d ms; ArrayList baseline %d ops %d ms%n",
+                size, ops, linkedMs, size / 2, removeMs, ops / 10, listMs);
+    }
+
+    @Test
+    void convertListFollowsDeclaredLevels() {
+        List<Bookmark> list = List.of(
+                new Bookmark("1", 1, 1),
+                new Bookmark("1.1.1", 2, 3), // 跳级时只进入下一级
+                new Bookmark("1.2", 3, 2),
+                new Bookmark("1.2.1", 4, 3),
+                new Bookmark("2", 5, 1));
+        Bookmark root = Bookmark.convertListToBookmarkTree(list);
+        assertEquals("""
+                1    1
+                \t1.1.1    2
+                \t1.2    3
+                \t\t1.2.1    4
+                2    5
+                """, root.toOutlineString());
+        assertEquals(2, list.get(1).getLevel());
+    }
+
+    @Test
+    void indentAndOutdentRanges() {
+        Bookmark root = Bookmark.convertListToBookmarkTree(List.of(
+                new Bookmark("a", 1, 1),
+                new Bookmark("b", 2, 1),
+                new Bookmark("b1", 3, 2),
+                new Bookmark("c", 4, 1),
+                new Bookmark("d", 5, 1),
+                new Bookmark("e", 6, 1)));
+        Bookmark a = root.getFirstChild();
+        Bookmark b = a.getNextSibling();
+        Bookmark c = b.getNextSibling();
+        Bookmark d = c.getNextSibling();
+        assertSame(b, root.findById(b.getId()));
+
+        Bookmark.indent(b, d);
+        assertEquals(List.of("a", "e"), titles(root.getChildren()));
+        assertEquals(List.of("b", "c", "d"), titles(a.getChildren()));
+        assertEquals(3, b.getChildren().get(0).getLevel());
+
+        Bookmark.outdent(c, c);
+        assertEquals(List.of("a", "c", "e"), titles(root.getChildren()));
+        assertEquals(List.of("b", "d"), titles(a.getChildren()));
+        assertSame(c, root.findById(c.getId()));
+
+        assertThrows(IllegalStateException.class, () -> Bookmark.indent(a, a));
+        assertThrows(IllegalStateException.class, () -> Bookmark.outdent(a, c));
+        assertThrows(IllegalArgumentException.class, () -> Bookmark.indent(d, b));
+    }
+
+    @Test
+    void pathologicalDepthDoesNotOverflow() {
+        int depth = 200_000;
+        List<Bookmark> chain = new ArrayList<>(depth);
+        for (int i = 1; i <= depth; i++) {
+            chain.add(new Bookmark("n" + i, i, i));
+        }
+        Bookmark root = Bookmark.convertListToBookmarkTree(chain);
+
+        long[] levelSum = {0};
+        root.traverseWithLevel((e, level) -> levelSum[0] += level);
+        assertEquals((long) depth * (depth + 1) / 2, levelSum[0]);
+        assertEquals(depth, root.flattenToList().size());
+        assertSame(chain.get(depth - 1), root.findById(chain.get(depth - 1).getId()));
+
+        Bookmark middle = chain.get(depth / 2);
+        middle.moveTo(root);
+        assertEquals(1, middle.getLevel());
+        assertEquals(depth - depth / 2, chain.get(depth - 1).getLevel());
+    }
+
+    /**
+     * 编辑大目录时整体应保持线性：建树、带层级遍历、大子树反复移动
+     */
+    @Tag("benchmark")
+    @Test
+    void benchmarkDeepAndWideEdits() {
+        int size = 1_000_000;
+        long start = System.nanoTime();
+        Bookmark root = Bookmark.convertListToBookmarkTree(createLinearList(size));
+        long buildMs = (System.nanoTime() - start) / 1_000_000;
+
+        start = System.nanoTime();
+        long[] levelSum = {0};
+        root.traverseWithLevel((e, level) -> levelSum[0] += level);
+        long traverseMs = (System.nanoTime() - start) / 1_000_000;
+
+        // 把前一半的章反复缩进/反缩进，每次移动整个子树
+        List<Bookmark> chapters = new ArrayList<>(root.getChildren());
+        start = System.nanoTime();
+        for (int i = 1; i < 1000; i++) {
+            Bookmark.indent(chapters.get(i), chapters.get(i));
+            Bookmark.outdent(chapters.get(i), chapters.get(i));
+        }
+        long moveMs = (System.nanoTime() - start) / 1_000_000;
+
+        int depth = 100_000;
+        List<Bookmark> chain = new ArrayList<>(depth);
+        for (int i = 1; i <= depth; i++) {
+            chain.add(new Bookmark("n" + i, i, i));
+        }
+        start = System.nanoTime();
+        Bookmark deepRoot = Bookmark.convertListToBookmarkTree(chain);
+        deepRoot.traverseWithLevel((e, level) -> levelSum[0] += level);
+        long deepMs = (System.nanoTime() - start) / 1_000_000;
+
+        System.out.printf("%d nodes: build %d ms, traverse with levels %d ms, 2k subtree indent/outdent %d ms; %d-deep chain build+traverse %d ms%n",
+                size, buildMs, traverseMs, moveMs, depth, deepMs);
+    }
+}
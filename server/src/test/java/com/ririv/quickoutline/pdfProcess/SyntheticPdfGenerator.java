@@ -0,0 +1,358 @@
+package com.ririv.quickoutline.pdfProcess;
+
+import com.itextpdf.io.font.constants.StandardFonts;
+import com.itextpdf.io.image.ImageData;
+import com.itextpdf.io.image.ImageDataFactory;
+import com.itextpdf.kernel.font.PdfFont;
+import com.itextpdf.kernel.font.PdfFontFactory;
+import com.itextpdf.kernel.geom.PageSize;
+import com.itextpdf.kernel.geom.Rectangle;
+import com.itextpdf.kernel.pdf.*;
+import com.itextpdf.kernel.pdf.canvas.CanvasTag;
+import com.itextpdf.kernel.pdf.canvas.PdfCanvas;
+import com.itextpdf.kernel.pdf.navigation.PdfExplicitDestination;
+import com.itextpdf.kernel.pdf.tagutils.TagTreePointer;
+import com.itextpdf.kernel.pdf.tagging.StandardRoles;
+import com.itextpdf.kernel.pdf.xobject.PdfFormXObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * 按种子生成合成 PDF，用于性能与规模测试：同一 Spec 生成的文件逐字节相同。
+ * <p>
+ * 前 tocPages 页为目录页，条目指向正文页，布局见 {@link TocLayout}；其余为正文页，
+ * 可按间隔插入图片页、矢量页，或内容重复的页面（轮流为空白页、分隔页和只绘制同一个 Form XObject 的页面）。可选加密（RC4 128，无用户密码，保持确定性）、
+ * 标记结构（每个目录条目一个 TOCI 标签，正文每行一个 P 标签），以及指定深度和数量的书签。
+ * 生成的同时记录预期的目录条目，供测试检查提取结果。
+ */
+public final class SyntheticPdfGenerator {
+
+    public enum TocLayout {
+        DOT_LEADERS,      // 标题 . . . . . 页码
+        NUMERIC_ENDINGS,  // 标题与右对齐的页码之间只有空白
+        CJK_DOTS,         // 中文标题 …………… 页码（全角点）
+        MULTI_COLUMN      // 每页左右两栏，栏内为点引导符
+    }
+
+    public record TocEntry(String title, int pageNum, int level) {
+    }
+
+    public record Generated(byte[] pdf, List<TocEntry> toc) {
+        /**
+         * 提取结果中找回的预期目录条目比例：某一行以标题开头、以页码结尾即视为找回
+         */
+        public double recall(List<String> extractedLines) {
+            if (toc.isEmpty()) return 1;
+            Set<String> lines = new HashSet<>();
+            for (String block : extractedLines) {
+                for (String line : block.split("\n")) lines.add(line.strip());
+            }
+            int found = 0;
+            for (TocEntry entry : toc) {
+                String page = Integer.toString(entry.pageNum());
+                for (String line : lines) {
+                    if (line.startsWith(entry.title()) && line.endsWith(page)
+                            && !Character.isDigit(line.charAt(line.length() - page.length() - 1))) {
+                        found++;
+                        break;
+                    }
+                }
+            }
+            return found / (double) toc.size();
+        }
+
+        public Path writeTo(Path file) {
+            try {
+                return Files.write(file, pdf);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    public static final class Spec {
+        long seed = 1;
+        int pages = 10;
+        int tocPages = 1;
+        int entriesPerTocPage = 30;
+        TocLayout tocLayout = TocLayout.DOT_LEADERS;
+        int imageEvery = 0;  // 每 n 个正文页一个图片页，0 为不插入
+        int vectorEvery = 0; // 每 n 个正文页一个矢量页，0 为不插入
+        int repeatedEvery = 0; // 每 n 个正文页一个重复页，0 为不插入
+        boolean encrypted;
+        boolean tagged;
+        int outlineSize;
+        int outlineDepth = 1;
+
+        public Spec seed(long seed) { this.seed = seed; return this; }
+        public Spec pages(int pages) { this.pages = pages; return this; }
+        public Spec tocPages(int tocPages) { this.tocPages = tocPages; return this; }
+        public Spec entriesPerTocPage(int entries) { this.entriesPerTocPage = entries; return this; }
+        public Spec tocLayout(TocLayout layout) { this.tocLayout = layout; return this; }
+        public Spec imageEvery(int n) { this.imageEvery = n; return this; }
+        public Spec vectorEvery(int n) { this.vectorEvery = n; return this; }
+        public Spec repeatedEvery(int n) { this.repeatedEvery = n; return this; }
+        public Spec encrypted(boolean encrypted) { this.encrypted = encrypted; return this; }
+        public Spec tagged(boolean tagged) { this.tagged = tagged; return this; }
+        public Spec outline(int size, int depth) { this.outlineSize = size; this.outlineDepth = depth; return this; }
+
+        public Generated generate() {
+            return SyntheticPdfGenerator.generate(this);
+        }
+    }
+
+    private static final float MARGIN = 50;
+    private static final float LINE_HEIGHT = 20;
+    private static final String FIXED_DATE = "D:20240101000000Z";
+    private static final byte[] OWNER_PASSWORD = "owner".getBytes(StandardCharsets.US_ASCII);
+
+    private SyntheticPdfGenerator() {
+    }
+
+    public static Spec spec() {
+        return new Spec();
+    }
+
+    private static Generated generate(Spec spec) {
+        if (spec.tocPages > spec.pages) throw new IllegalArgumentException("tocPages > pages");
+        Random random = new Random(spec.seed);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        List<TocEntry> toc = new ArrayList<>();
+
+        // 文件 ID 默认含时间和随机数，固定后加密密钥和 trailer 都可复现
+        byte[] id = new byte[16];
+        new Random(spec.seed ^ 0x5DEECE66DL).nextBytes(id);
+        WriterProperties properties = new WriterProperties()
+                .setInitialDocumentId(new PdfString(id).setHexWriting(true))
+                .setModifiedDocumentId(new PdfString(id).setHexWriting(true));
+        if (spec.encrypted) {
+            properties.setStandardEncryption(null, OWNER_PASSWORD, EncryptionConstants.ALLOW_PRINTING,
+                    EncryptionConstants.STANDARD_ENCRYPTION_128);
+        }
+
+        try (PdfDocument pdfDoc = new PdfDocument(new PdfWriter(out, properties))) {
+            if (spec.tagged) pdfDoc.setTagged();
+            Fonts fonts = new Fonts(spec.tocLayout == TocLayout.CJK_DOTS);
+            for (int i = 0; i < spec.pages; i++) {
+                pdfDoc.addNewPage(PageSize.A4);
+            }
+
+            PdfFormXObject divider = spec.repeatedEvery > 0 ? dividerForm(pdfDoc, fonts) : null;
+            int bodyPages = spec.pages - spec.tocPages;
+            int entryIndex = 0;
+            for (int p = 1; p <= spec.tocPages; p++) {
+                entryIndex = writeTocPage(pdfDoc, pdfDoc.getPage(p), spec, random, fonts, toc, entryIndex, bodyPages);
+            }
+            for (int p = spec.tocPages + 1; p <= spec.pages; p++) {
+                int bodyIndex = p - spec.tocPages;
+                PdfPage page = pdfDoc.getPage(p);
+                if (spec.repeatedEvery > 0 && bodyIndex % spec.repeatedEvery == 0) {
+                    writeRepeatedPage(page, bodyIndex / spec.repeatedEvery, fonts, divider);
+                } else if (spec.imageEvery > 0 && bodyIndex % spec.imageEvery == 0) {
+                    writeImagePage(page, random);
+                } else if (spec.vectorEvery > 0 && bodyIndex % spec.vectorEvery == 0) {
+                    writeVectorPage(page, random);
+                } else {
+                    writeBodyPage(pdfDoc, page, spec.tagged, random, fonts);
+                }
+            }
+            writeOutline(pdfDoc, spec, random);
+            fonts.flush(); // 字体在关闭时按哈希表顺序写出，先按固定顺序写出以保证字节稳定
+
+            // 创建/修改日期默认为当前时间
+            pdfDoc.getDocumentInfo().setMoreInfo("CreationDate", FIXED_DATE);
+            pdfDoc.getDocumentInfo().setMoreInfo("ModDate", FIXED_DATE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new Generated(out.toByteArray(), List.copyOf(toc));
+    }
+
+    private static final class Fonts {
+        final PdfFont regular;
+        final PdfFont bold;
+        final PdfFont cjk;
+
+        Fonts(boolean withCjk) throws IOException {
+            regular = PdfFontFactory.createFont(StandardFonts.HELVETICA);
+            bold = PdfFontFactory.createFont(StandardFonts.HELVETICA_BOLD);
+            cjk = withCjk ? PdfFontFactory.createFont("STSong-Light", "UniGB-UCS2-H") : null;
+        }
+
+        void flush() {
+            for (PdfFont font : new PdfFont[]{regular, bold, cjk}) {
+                if (font != null && font.getPdfObject().getIndirectReference() != null) font.flush(); // 未使用的字体没有加入文档
+            }
+        }
+    }
+
+    private static int writeTocPage(PdfDocument pdfDoc, PdfPage page, Spec spec, Random random, Fonts fonts,
+                                    List<TocEntry> toc, int entryIndex, int bodyPages) {
+        PdfCanvas canvas = new PdfCanvas(page);
+        Rectangle size = page.getPageSize();
+        int columns = spec.tocLayout == TocLayout.MULTI_COLUMN ? 2 : 1;
+        float columnWidth = (size.getWidth() - 2 * MARGIN) / columns;
+        int rows = Math.min(spec.entriesPerTocPage / columns, (int) ((size.getHeight() - 2 * MARGIN) / LINE_HEIGHT));
+        TagTreePointer pointer = spec.tagged ? new TagTreePointer(pdfDoc).setPageForTagging(page).addTag(StandardRoles.TOC) : null;
+
+        for (int column = 0; column < columns; column++) {
+            float left = MARGIN + column * columnWidth;
+            float right = left + columnWidth - 10;
+            for (int row = 0; row < rows; row++) {
+                int level = entryIndex % 5 == 0 ? 1 : 2;
+                int target = spec.tocPages + 1 + (bodyPages == 0 ? 0 : (int) ((long) entryIndex * 7 % bodyPages));
+                String title = entryTitle(spec.tocLayout, entryIndex, random);
+                toc.add(new TocEntry(title, target, level));
+                float y = size.getTop() - MARGIN - (row + 1) * LINE_HEIGHT;
+                float x = left + (level - 1) * 15;
+
+                if (pointer != null) canvas.openTag(pointer.addTag(StandardRoles.TOCI).getTagReference());
+                boolean cjk = spec.tocLayout == TocLayout.CJK_DOTS;
+                PdfFont titleFont = cjk ? fonts.cjk : level == 1 ? fonts.bold : fonts.regular;
+                String pageLabel = Integer.toString(target);
+                float pageWidth = fonts.regular.getWidth(pageLabel, 11);
+                text(canvas, titleFont, level == 1 ? 12 : 11, x, y, title);
+                float titleEnd = x + titleFont.getWidth(title, level == 1 ? 12 : 11) + 6;
+                switch (spec.tocLayout) {
+                    case DOT_LEADERS, MULTI_COLUMN -> text(canvas, fonts.regular, 11, titleEnd, y,
+                            leader(". ", fonts.regular, 11, right - pageWidth - 6 - titleEnd));
+                    case CJK_DOTS -> text(canvas, fonts.cjk, 11, titleEnd, y,
+                            leader("…", fonts.cjk, 11, right - pageWidth - 6 - titleEnd));
+                    case NUMERIC_ENDINGS -> { }
+                }
+                text(canvas, fonts.regular, 11, right - pageWidth, y, pageLabel);
+                if (pointer != null) {
+                    canvas.closeTag();
+                    pointer.moveToParent();
+                }
+                entryIndex++;
+            }
+        }
+        return entryIndex;
+    }
+
+    private static String entryTitle(TocLayout layout, int index, Random random) {
+        if (layout == TocLayout.CJK_DOTS) {
+            StringBuilder title = new StringBuilder("第").append(index + 1).append("节 ");
+            int length = 3 + random.nextInt(6);
+            for (int i = 0; i < length; i++) title.append((char) ('一' + random.nextInt(0x2000)));
+            return title.toString();
+        }
+        return (index + 1) + " " + words(random, 2 + random.nextInt(4));
+    }
+
+    private static String leader(String unit, PdfFont font, float fontSize, float width) {
+        int count = Math.max(4, (int) (width / Math.max(1, font.getWidth(unit, fontSize))));
+        return unit.repeat(count);
+    }
+
+    private static void writeBodyPage(PdfDocument pdfDoc, PdfPage page, boolean tagged, Random random, Fonts fonts) {
+        PdfCanvas canvas = new PdfCanvas(page);
+        TagTreePointer pointer = tagged ? new TagTreePointer(pdfDoc).setPageForTagging(page) : null;
+        float top = page.getPageSize().getTop() - MARGIN;
+        int lines = (int) ((page.getPageSize().getHeight() - 2 * MARGIN) / 14);
+        for (int l = 0; l < lines; l++) {
+            if (pointer != null) canvas.openTag(pointer.addTag(StandardRoles.P).getTagReference());
+            text(canvas, fonts.regular, 10, MARGIN, top - l * 14, words(random, 8 + random.nextInt(4)).toLowerCase());
+            if (pointer != null) {
+                canvas.closeTag();
+                pointer.moveToParent();
+            }
+        }
+    }
+
+    // 所有重复页共用的 Form XObject
+    private static PdfFormXObject dividerForm(PdfDocument pdfDoc, Fonts fonts) {
+        Rectangle size = PageSize.A4;
+        PdfFormXObject divider = new PdfFormXObject(size);
+        PdfCanvas canvas = new PdfCanvas(divider, pdfDoc);
+        canvas.rectangle(MARGIN, size.getHeight() / 2 - 40, size.getWidth() - 2 * MARGIN, 80).stroke();
+        text(canvas, fonts.regular, 12, MARGIN + 20, size.getHeight() / 2, "This page intentionally left blank");
+        return divider;
+    }
+
+    // 第 n 个重复页依次为空白页、分隔页（每页各自的内容流，字节相同）、绘制共用 Form XObject 的页
+    private static void writeRepeatedPage(PdfPage page, int n, Fonts fonts, PdfFormXObject divider) {
+        Rectangle size = page.getPageSize();
+        switch (n % 3) {
+            case 1 -> text(new PdfCanvas(page), fonts.bold, 14, size.getWidth() / 2 - 20, size.getHeight() / 2, "* * *");
+            case 2 -> new PdfCanvas(page).addXObjectAt(divider, 0, 0);
+            default -> { } // 空白页
+        }
+    }
+
+    // 四张渐变图，像素由种子决定，可压缩但每页不同
+    private static void writeImagePage(PdfPage page, Random random) {
+        PdfCanvas canvas = new PdfCanvas(page);
+        int side = 256;
+        for (int i = 0; i < 4; i++) {
+            byte[] pixels = new byte[side * side * 3];
+            int r = random.nextInt(256), g = random.nextInt(256), b = random.nextInt(256);
+            for (int y = 0, k = 0; y < side; y++) {
+                for (int x = 0; x < side; x++) {
+                    pixels[k++] = (byte) (r + x);
+                    pixels[k++] = (byte) (g + y);
+                    pixels[k++] = (byte) (b + x + y);
+                }
+            }
+            ImageData image = ImageDataFactory.create(side, side, 3, 8, pixels, null);
+            canvas.addImageFittedIntoRectangle(image, new Rectangle(MARGIN + (i % 2) * 250, 100 + (i / 2) * 330, 240, 240), false);
+        }
+    }
+
+    private static void writeVectorPage(PdfPage page, Random random) {
+        PdfCanvas canvas = new PdfCanvas(page);
+        Rectangle size = page.getPageSize();
+        canvas.setLineWidth(0.3f);
+        for (int i = 0; i < 2000; i++) {
+            float x = random.nextFloat() * size.getWidth();
+            float y = random.nextFloat() * size.getHeight();
+            canvas.moveTo(x, y);
+            if (i % 2 == 0) {
+                canvas.lineTo(x + random.nextFloat() * 40 - 20, y + random.nextFloat() * 40 - 20);
+            } else {
+                canvas.curveTo(x + 10, y + 20, x + 30, y - 20, x + 40, y);
+            }
+        }
+        canvas.stroke();
+    }
+
+    // 第 i 个书签的层级为 i % depth + 1，相邻书签最多加深一级
+    private static void writeOutline(PdfDocument pdfDoc, Spec spec, Random random) {
+        if (spec.outlineSize <= 0) return;
+        PdfOutline[] parents = new PdfOutline[spec.outlineDepth + 1];
+        parents[0] = pdfDoc.getOutlines(false);
+        int pages = pdfDoc.getNumberOfPages();
+        for (int i = 0; i < spec.outlineSize; i++) {
+            int level = i % spec.outlineDepth + 1;
+            PdfOutline outline = parents[level - 1].addOutline(i + " " + words(random, 3));
+            outline.addDestination(PdfExplicitDestination.createFit(pdfDoc.getPage(1 + i % pages)));
+            parents[level] = outline;
+        }
+    }
+
+    private static void text(PdfCanvas canvas, PdfFont font, float fontSize, float x, float y, String text) {
+        canvas.beginText().setFontAndSize(font, fontSize).moveText(x, y).showText(text).endText();
+    }
+
+    static String words(Random random, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int w = 0; w < count; w++) {
+            if (w > 0) text.append(' ');
+            int length = 3 + random.nextInt(8);
+            text.append((char) ('A' + random.nextInt(26)));
+            for (int c = 1; c < length; c++) text.append((char) ('a' + random.nextInt(26)));
+        }
+        return text.toString();
+    }
+}
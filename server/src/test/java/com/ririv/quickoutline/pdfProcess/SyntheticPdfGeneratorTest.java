@@ -0,0 +1,52 @@
+package com.ririv.quickoutline.pdfProcess;
+
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfReader;
+import com.ririv.quickoutline.pdfProcess.SyntheticPdfGenerator.Generated;
+import com.ririv.quickoutline.pdfProcess.SyntheticPdfGenerator.TocLayout;
+import com.ririv.quickoutline.pdfProcess.itextImpl.ItextTocExtractor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SyntheticPdfGeneratorTest {
+
+    private static SyntheticPdfGenerator.Spec fullSpec() {
+        return SyntheticPdfGenerator.spec().seed(3).pages(12).tocPages(2).imageEvery(4).vectorEvery(5).repeatedEvery(3)
+                .encrypted(true).tagged(true).outline(40, 3);
+    }
+
+    @Test
+    void sameSpecIsByteStable() {
+        for (TocLayout layout : TocLayout.values()) {
+            byte[] first = fullSpec().tocLayout(layout).generate().pdf();
+            byte[] second = fullSpec().tocLayout(layout).generate().pdf();
+            assertArrayEquals(first, second, layout.name());
+        }
+        assertFalse(java.util.Arrays.equals(fullSpec().generate().pdf(), fullSpec().seed(4).generate().pdf()));
+    }
+
+    @Test
+    void featuresArePresent() throws Exception {
+        Generated generated = fullSpec().generate();
+        try (PdfDocument pdfDoc = new PdfDocument(new PdfReader(new ByteArrayInputStream(generated.pdf())))) {
+            assertEquals(12, pdfDoc.getNumberOfPages());
+            assertTrue(pdfDoc.getReader().isEncrypted());
+            assertTrue(pdfDoc.isTagged());
+            assertEquals(14, pdfDoc.getOutlines(false).getAllChildren().size()); // 40 个书签，深度 3，顶层为第 0、3、6…… 个
+        }
+        assertEquals(2 * 30, generated.toc().size());
+    }
+
+    @Test
+    void dotLeaderTocIsRecovered(@TempDir Path dir) {
+        Generated generated = SyntheticPdfGenerator.spec().pages(20).tocPages(2).generate();
+        Path pdf = generated.writeTo(dir.resolve("toc.pdf"));
+        double recall = generated.recall(new ItextTocExtractor(pdf.toString()).extract());
+        assertEquals(1.0, recall, 1e-9);
+    }
+}
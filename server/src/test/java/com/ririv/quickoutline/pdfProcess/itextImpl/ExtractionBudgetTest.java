@@ -0,0 +1,156 @@
+package com.ririv.quickoutline.pdfProcess.itextImpl;
+
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfReader;
+import com.itextpdf.kernel.pdf.canvas.parser.PdfCanvasProcessor;
+import com.ririv.quickoutline.pdfProcess.SyntheticPdfGenerator;
+import com.ririv.quickoutline.pdfProcess.SyntheticPdfGenerator.Generated;
+import com.ririv.quickoutline.pdfProcess.itextImpl.model.LineWithMetadata;
+import com.ririv.quickoutline.pdfProcess.itextImpl.model.Style;
+import com.ririv.quickoutline.pdfProcess.itextImpl.model.TextBlock;
+import com.ririv.quickoutline.pdfProcess.itextImpl.model.TextChunk;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 提取器的分配与耗时预算，运行：./gradlew perfTest。
+ * <p>
+ * 提取在一个自有的单线程池上执行，分配量为调用线程与该线程的 ThreadMXBean 分配字节数之和；
+ * 先固定预热若干次，再取多次测量中的最小值。预算在 perf-budgets.properties 中，
+ * 超出 预算 × 余量 时失败；任何一项都可用 -Dquickoutline.perf.键=值 覆盖。
+ * 耗时与机器相关，余量比分配量宽松得多。
+ */
+@Tag("perf")
+class ExtractionBudgetTest {
+
+    private static final int PAGES = 200;
+    private static final int WARMUP_RUNS = 3;
+    private static final int MEASURED_RUNS = 3;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static Properties budgets;
+    private static Path dir;
+    private static Path pdf;
+    private static Generated generated;
+    private static ExecutorService executor;
+    private static long workerThreadId;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        budgets = new Properties();
+        try (InputStream in = ExtractionBudgetTest.class.getResourceAsStream("/perf-budgets.properties")) {
+            budgets.load(in);
+        }
+        dir = Files.createTempDirectory("quickoutline-perf");
+        generated = SyntheticPdfGenerator.spec().seed(44).pages(PAGES).tocPages(10).vectorEvery(40).generate();
+        pdf = generated.writeTo(dir.resolve("budget.pdf"));
+        executor = Executors.newSingleThreadExecutor();
+        workerThreadId = executor.submit(() -> Thread.currentThread().threadId()).get();
+    }
+
+    @AfterAll
+    static void tearDown() throws IOException {
+        executor.shutdownNow();
+        Files.deleteIfExists(pdf);
+        Files.deleteIfExists(dir);
+    }
+
+    private static double budget(String key) {
+        String value = System.getProperty("quickoutline.perf." + key, budgets.getProperty(key));
+        assertNotNull(value, "missing budget " + key);
+        return Double.parseDouble(value);
+    }
+
+    private record Measurement(long allocatedBytes, long nanos) {
+    }
+
+    private static long allocatedBytes() {
+        long[] bytes = THREADS.getThreadAllocatedBytes(new long[]{Thread.currentThread().threadId(), workerThreadId});
+        return bytes[0] + bytes[1];
+    }
+
+    private static Measurement measure(Runnable work) {
+        for (int i = 0; i < WARMUP_RUNS; i++) work.run();
+        long minBytes = Long.MAX_VALUE;
+        long minNanos = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            long bytesBefore = allocatedBytes();
+            long start = System.nanoTime();
+            work.run();
+            long nanos = System.nanoTime() - start;
+            minBytes = Math.min(minBytes, allocatedBytes() - bytesBefore);
+            minNanos = Math.min(minNanos, nanos);
+        }
+        return new Measurement(minBytes, minNanos);
+    }
+
+    private static void assertWithinBudget(String key, double actual, String marginKey) {
+        double limit = budget(key) * budget(marginKey);
+        System.out.printf("%-28s %14.1f (budget %.1f, limit %.1f)%n", key, actual, budget(key), limit);
+        assertTrue(actual <= limit, String.format("%s = %.1f exceeds %.1f (budget %.1f × %s)",
+                key, actual, limit, budget(key), budget(marginKey)));
+    }
+
+    @Test
+    void wholeDocumentExtraction() {
+        ItextTocExtractor extractor = new ItextTocExtractor(pdf.toString(), executor, () -> {});
+        List<String> toc = extractor.extract();
+        assertEquals(1.0, generated.recall(toc), 1e-9, "fixture TOC not recovered, budgets would measure the wrong work");
+
+        Measurement m = measure(extractor::extract);
+        assertWithinBudget("extract.bytesPerPage", m.allocatedBytes() / (double) PAGES, "margin.allocation");
+        assertWithinBudget("extract.msPer100Pages", m.nanos() / 1e6 * 100 / PAGES, "margin.time");
+    }
+
+    @Test
+    void tocAnalysis() {
+        List<TextBlock> blocks = extractBlocks();
+        Collection<List<TextBlock>> blocksByPage = blocks.stream()
+                .collect(Collectors.groupingBy(b -> b.getPrimaryLine().getPageNum()))
+                .values();
+        Measurement m = measure(() -> {
+            TocAnalyser analyser = new TocAnalyser();
+            Style dominantStyle = analyser.findDominantStyle(blocks);
+            for (List<TextBlock> pageBlocks : blocksByPage) {
+                analyser.findTocBlocksInPage(pageBlocks, dominantStyle);
+            }
+        });
+        assertWithinBudget("analyse.bytesPerBlock", m.allocatedBytes() / (double) blocks.size(), "margin.allocation");
+        assertWithinBudget("analyse.usPerBlock", m.nanos() / 1e3 / blocks.size(), "margin.time");
+    }
+
+    private static List<TextBlock> extractBlocks() {
+        try (PdfDocument pdfDoc = new PdfDocument(new PdfReader(pdf.toString()))) {
+            List<LineWithMetadata> lines = new ArrayList<>();
+            for (int p = 1; p <= pdfDoc.getNumberOfPages(); p++) {
+                MetadataTextExtractionStrategy strategy = new MetadataTextExtractionStrategy();
+                new PdfCanvasProcessor(strategy).processPageContent(pdfDoc.getPage(p));
+                List<TextChunk> chunks = strategy.getTextChunks();
+                lines.addAll(TextChunk.convertChunksToLines(chunks, pdfDoc.getPage(p), pdfDoc));
+            }
+            return TextBlock.aggregateLinesIntoBlocks(lines);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.ririv.quickoutline.pdfProcess.itextImpl;
+
+import com.ririv.quickoutline.pdfProcess.SyntheticPdfGenerator;
+import com.ririv.quickoutline.pdfProcess.SyntheticPdfGenerator.Generated;
+import com.ririv.quickoutline.pdfProcess.SyntheticPdfGenerator.TocLayout;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 整本提取的规模测试：在合成文档上从 10 页到 50000 页逐级运行，
+ * 报告吞吐量、堆峰值和目录条目找回率。页数可用 -Dquickoutline.scaling.pages=10,100 覆盖。
+ */
+class ExtractionScalingTest {
+
+    private static final String DEFAULT_PAGES = "10,100,1000,10000,50000";
+
+    private static int[] pageCounts() {
+        return Arrays.stream(System.getProperty("quickoutline.scaling.pages", DEFAULT_PAGES).split(","))
+                .mapToInt(s -> Integer.parseInt(s.strip()))
+                .toArray();
+    }
+
+    private static List<MemoryPoolMXBean> heapPools() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream().filter(p -> p.getType() == MemoryType.HEAP).toList();
+    }
+
+    private static long peakHeapBytes(List<MemoryPoolMXBean> pools) {
+        return pools.stream().mapToLong(p -> p.getPeakUsage().getUsed()).sum();
+    }
+
+    @Test
+    @Tag("benchmark")
+    void benchmarkScaling(@TempDir Path dir) throws Exception {
+        System.out.printf("%8s %8s %10s %10s %10s %8s%n", "pages", "MB", "extractMs", "pages/s", "peakHeapMB", "recall");
+        for (int pages : pageCounts()) {
+            Generated generated = SyntheticPdfGenerator.spec().seed(pages).pages(pages)
+                    .tocPages(Math.clamp(pages / 50, 1, 40)).imageEvery(100).vectorEvery(50).outline(pages / 10, 3)
+                    .generate();
+            Path pdf = generated.writeTo(dir.resolve(pages + ".pdf"));
+            long fileBytes = Files.size(pdf);
+            Generated expected = new Generated(new byte[0], generated.toc()); // 不再持有 PDF 字节，避免计入堆峰值
+
+            List<MemoryPoolMXBean> pools = heapPools();
+            System.gc();
+            pools.forEach(MemoryPoolMXBean::resetPeakUsage);
+            long start = System.nanoTime();
+            List<String> toc = new ItextTocExtractor(pdf.toString()).extract();
+            long elapsed = System.nanoTime() - start;
+
+            System.out.printf("%8d %8.1f %10.0f %10.1f %10.1f %8.3f%n", pages, fileBytes / 1e6, elapsed / 1e6,
+                    pages / (elapsed / 1e9), peakHeapBytes(pools) / 1e6, expected.recall(toc));
+            Files.delete(pdf);
+        }
+    }
+
+    /**
+     * 各目录布局的找回率，用于观察分析器对不同排版的覆盖情况
+     */
+    @Test
+    @Tag("benchmark")
+    void benchmarkLayoutRecall(@TempDir Path dir) {
+        for (TocLayout layout : TocLayout.values()) {
+            Generated generated = SyntheticPdfGenerator.spec().pages(40).tocPages(4).tocLayout(layout).generate();
+            Path pdf = generated.writeTo(dir.resolve(layout + ".pdf"));
+            List<String> toc = new ItextTocExtractor(pdf.toString()).extract();
+            System.out.printf("%-16s recall %.3f (%d entries, %d blocks extracted)%n",
+                    layout, generated.recall(toc), generated.toc().size(), toc.size());
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.ririv.quickoutline.pdfProcess.itextImpl;
+
+import com.itextpdf.kernel.pdf.*;
+import com.itextpdf.kernel.pdf.action.PdfAction;
+import com.itextpdf.kernel.pdf.navigation.PdfExplicitDestination;
+import com.itextpdf.kernel.pdf.navigation.PdfStringDestination;
+import com.ririv.quickoutline.model.Bookmark;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ItextOutlineProcessorTest {
+
+    /**
+     * 生成一个带目录的 PDF：每个顶层书签带 childrenPerTop 个子书签，
+     * 目标依次轮换为 显式目标 / 命名目标 / GoTo 动作，页码为 (序号 % pages) + 1
+     */
+    static byte[] createPdfWithOutline(int pages, int topCount, int childrenPerTop) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PdfDocument pdfDoc = new PdfDocument(new PdfWriter(out))) {
+            for (int i = 0; i < pages; i++) {
+                pdfDoc.addNewPage();
+            }
+            PdfOutline root = pdfDoc.getOutlines(false);
+            int seq = 0;
+            for (int i = 0; i < topCount; i++) {
+                PdfOutline top = addItem(pdfDoc, root, "Chapter " + i, seq++, pages);
+                for (int j = 0; j < childrenPerTop; j++) {
+                    addItem(pdfDoc, top, "Section " + i + "." + j, seq++, pages);
+                }
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static PdfOutline addItem(PdfDocument pdfDoc, PdfOutline parent, String title, int seq, int pages) {
+        PdfOutline outline = parent.addOutline(title);
+        PdfPage page = pdfDoc.getPage(seq % pages + 1);
+        switch (seq % 3) {
+            case 0 -> outline.addDestination(PdfExplicitDestination.createFit(page));
+            case 1 -> {
+                String name = "dest-" + seq;
+                pdfDoc.addNamedDestination(name, PdfExplicitDestination.createFit(page).getPdfObject());
+                outline.addDestination(new PdfStringDestination(name));
+            }
+            default -> outline.addAction(PdfAction.createGoTo(PdfExplicitDestination.createFit(page)));
+        }
+        return outline;
+    }
+
+    private static PdfDocument open(byte[] pdf) throws IOException {
+        return new PdfDocument(new PdfReader(new ByteArrayInputStream(pdf)));
+    }
+
+    @Test
+    void readOutline() throws IOException {
+        byte[] pdf = createPdfWithOutline(7, 4, 3);
+        try (PdfDocument pdfDoc = open(pdf)) {
+            Bookmark root = new ItextOutlineProcessor().readOutline(pdfDoc, 2);
+            assertEquals(4, root.getChildren().size());
+
+            List<Bookmark> all = root.flattenToList();
+            assertEquals(16, all.size());
+            for (int seq = 0; seq < all.size(); seq++) {
+                Bookmark bookmark = all.get(seq);
+                assertEquals(seq % 7 + 1 - 2, bookmark.getPageNum().orElseThrow(), bookmark.getTitle());
+            }
+            assertEquals("Section 1.2", all.get(7).getTitle());
+            assertEquals(2, all.get(7).getLevel());
+        }
+    }
+
+    @Test
+    void readOutlineWithoutOutlines() throws IOException {
+        byte[] pdf = createPdfWithOutline(2, 0, 0);
+        try (PdfDocument pdfDoc = open(pdf)) {
+            Bookmark root = new ItextOutlineProcessor().readOutline(pdfDoc, 0);
+            assertTrue(root.isRoot());
+            assertTrue(root.getChildren().isEmpty());
+        }
+    }
+
+    /**
+     * 50k 书签：索引解析 vs. 每个书签调用 getPageNumber 的线性查找
+     */
+    @Tag("benchmark")
+    @Test
+    void benchmark50kOutlines() throws IOException {
+        int pages = 20_000;
+        byte[] pdf = createPdfWithOutline(pages, 5_000, 9);
+
+        long start = System.nanoTime();
+        int count;
+        try (PdfDocument pdfDoc = open(pdf)) {
+            count = new ItextOutlineProcessor().readOutline(pdfDoc, 0).flattenToList().size();
+        }
+        long indexedMs = (System.nanoTime() - start) / 1_000_000;
+        assertEquals(50_000, count);
+
+        start = System.nanoTime();
+        int naiveCount = 0;
+        try (PdfDocument pdfDoc = open(pdf)) {
+            PdfNameTree nameTree = pdfDoc.getCatalog().getNameTree(PdfName.Dests);
+            for (PdfOutline top : pdfDoc.getOutlines(false).getAllChildren()) {
+                List<PdfOutline> outlines = new ArrayList<>(top.getAllChildren());
+                outlines.add(top);
+                for (PdfOutline outline : outlines) {
+                    if (outline.getDestination() != null) {
+                        pdfDoc.getPageNumber((PdfDictionary) outline.getDestination().getDestinationPage(nameTree));
+                        naiveCount++;
+                    }
+                }
+            }
+        }
+        long naiveMs = (System.nanoTime() - start) / 1_000_000;
+
+        System.out.printf("50k outlines / %d pages: indexed %d ms, getPageNumber per outline %d ms (%d resolved)%n",
+                pages, indexedMs, naiveMs, naiveCount);
+    }
+
+    /**
+     * 生成 pages 页、每页附带 fillerBytesPerPage 字节不可压缩数据的 PDF，用于放大文件体积
+     */
+    static void createLargePdf(Path path, int pages, int fillerBytesPerPage) throws IOException {
+        Random random = new Random(42);
+        byte[] filler = new byte[fillerBytesPerPage];
+        try (PdfDocument pdfDoc = new PdfDocument(new PdfWriter(path.toString()))) {
+            for (int i = 0; i < pages; i++) {
+                PdfPage page = pdfDoc.addNewPage();
+                random.nextBytes(filler);
+                PdfStream stream = new PdfStream(filler);
+                stream.makeIndirect(pdfDoc);
+                page.getPdfObject().put(new PdfName("Filler"), stream);
+                page.flush();
+            }
+        }
+    }
+
+    static Bookmark createBookmarkTree(int topCount, int childrenPerTop, int pages) {
+        Bookmark root = Bookmark.createRoot();
+        int seq = 0;
+        for (int i = 0; i < topCount; i++) {
+            Bookmark top = new Bookmark("Chapter " + i, seq++ % pages + 1, 1);
+            root.addChild(top);
+            for (int j = 0; j < childrenPerTop; j++) {
+                top.addChild(new Bookmark("Section " + i + "." + j, seq++ % pages + 1, 2));
+            }
+        }
+        return root;
+    }
+
+    @Test
+    void setOutlineAppendsIncrementalUpdate(@TempDir Path dir) throws IOException {
+        Path src = dir.resolve("src.pdf");
+        Files.write(src, createPdfWithOutline(7, 2, 2));
+        byte[] original = Files.readAllBytes(src);
+
+        Bookmark root = createBookmarkTree(3, 2, 6);
+        new ItextOutlineProcessor().setOutline(root, src.toString(), null, 1);
+
+        byte[] updated = Files.readAllBytes(src);
+        assertTrue(updated.length > original.length);
+        assertArrayEquals(original, Arrays.copyOf(updated, original.length), "original bytes must stay untouched");
+
+        Bookmark read = new ItextOutlineProcessor().getOutline(src.toString(), 1);
+        assertEquals(root.toOutlineString(), read.toOutlineString());
+    }
+
+    @Test
+    void setOutlineToAnotherFile(@TempDir Path dir) throws IOException {
+        Path src = dir.resolve("src.pdf");
+        Path dest = dir.resolve("dest.pdf");
+        Files.write(src, createPdfWithOutline(5, 1, 1));
+        byte[] original = Files.readAllBytes(src);
+
+        Bookmark root = createBookmarkTree(2, 3, 5);
+        new ItextOutlineProcessor().setOutline(root, src.toString(), dest.toString(), 0);
+
+        assertArrayEquals(original, Files.readAllBytes(src), "source must not change");
+        assertEquals(root.toOutlineString(), new ItextOutlineProcessor().getOutline(dest.toString(), 0).toOutlineString());
+    }
+
+    /**
+     * 相同目录写入不同体积的文件：追加模式耗时应只随目录大小变化，对比完整重写
+     */
+    @Tag("benchmark")
+    @Test
+    void benchmarkAppendVsRewrite(@TempDir Path dir) throws IOException {
+        int pages = 500;
+        Bookmark root = createBookmarkTree(500, 9, pages);
+        ItextOutlineProcessor processor = new ItextOutlineProcessor();
+
+        Path warmup = dir.resolve("warmup.pdf");
+        createLargePdf(warmup, pages, 1024);
+        processor.setOutline(root, warmup.toString(), null, 0);
+
+        for (int fillerKb : new int[]{10, 100, 400}) {
+            Path src = dir.resolve("large-" + fillerKb + ".pdf");
+            createLargePdf(src, pages, fillerKb * 1024);
+            long fileSize = Files.size(src);
+
+            Path appendTarget = dir.resolve("append-" + fillerKb + ".pdf");
+            Files.copy(src, appendTarget);
+            long start = System.nanoTime();
+            processor.setOutline(root, appendTarget.toString(), null, 0);
+            long appendMs = (System.nanoTime() - start) / 1_000_000;
+            long incrementBytes = Files.size(appendTarget) - fileSize;
+
+            Path rewriteTarget = dir.resolve("rewrite-" + fillerKb + ".pdf");
+            start = System.nanoTime();
+            try (PdfDocument pdfDoc = new PdfDocument(new PdfReader(src.toString()), new PdfWriter(rewriteTarget.toString()))) {
+                processor.writeOutline(pdfDoc, root, 0);
+            }
+            long rewriteMs = (System.nanoTime() - start) / 1_000_000;
+
+            System.out.printf("file %d MB, 5000 outlines: append %d ms (+%d KB), full rewrite %d ms%n",
+                    fileSize >> 20, appendMs, incrementBytes >> 10, rewriteMs);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.ririv.quickoutline.pdfProcess.itextImpl;
+
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfReader;
+import com.ririv.quickoutline.pdfProcess.SyntheticPdfGenerator;
+import com.ririv.quickoutline.pdfProcess.SyntheticPdfGenerator.Generated;
+import com.ririv.quickoutline.pdfProcess.itextImpl.model.LineWithMetadata;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PageDeduplicatorTest {
+
+    private static List<String> describe(List<LineWithMetadata> lines) {
+        return lines.stream().map(l -> l.getPageNum() + ":" + l.getY() + ":" + l.getTextContent()).toList();
+    }
+
+    @Test
+    void repeatedPagesAreParsedOnce(@TempDir Path dir) throws Exception {
+        // 58 个正文页中 29 个重复页，只有空白、分隔、共用 Form XObject 三种内容
+        Generated generated = SyntheticPdfGenerator.spec().seed(21).pages(60).tocPages(2).repeatedEvery(2).generate();
+        Path pdf = generated.writeTo(dir.resolve("repeated.pdf"));
+
+        PageDeduplicator duplicates = new PageDeduplicator();
+        List<LineWithMetadata> deduplicated = new ItextTocExtractor(pdf.toString()).extractLines(1, 60, duplicates);
+        List<LineWithMetadata> parsed = new ItextTocExtractor(pdf.toString()).extractLines(1, 60, null);
+        assertEquals(describe(parsed), describe(deduplicated));
+        assertEquals(26, duplicates.getDuplicatePages());
+        assertEquals(34, duplicates.getParsedPages());
+
+        List<String> toc = new ItextTocExtractor(pdf.toString()).extract();
+        assertEquals(new ItextTocExtractor(pdf.toString()).deduplicatePages(false).extract(), toc);
+        assertEquals(1.0, generated.recall(toc), 1e-9);
+    }
+
+    @Test
+    void duplicatesAreSharedAcrossChunks(@TempDir Path dir) throws Exception {
+        Path pdf = SyntheticPdfGenerator.spec().seed(22).pages(30).tocPages(1).repeatedEvery(1).generate()
+                .writeTo(dir.resolve("repeated.pdf"));
+        ItextTocExtractor extractor = new ItextTocExtractor(pdf.toString());
+        PageDeduplicator duplicates = new PageDeduplicator();
+        List<LineWithMetadata> first = extractor.extractLines(2, 4, duplicates);
+        List<LineWithMetadata> second = extractor.extractLines(5, 7, duplicates); // 与 2~4 页内容相同
+        assertEquals(3, duplicates.getParsedPages());
+        assertEquals(3, duplicates.getDuplicatePages());
+        assertEquals(first.size(), second.size());
+        for (int i = 0; i < first.size(); i++) {
+            assertEquals(first.get(i).getTextContent(), second.get(i).getTextContent());
+            assertEquals(first.get(i).getPageNum() + 3, second.get(i).getPageNum());
+        }
+    }
+
+    @Test
+    void waitersParseThemselvesWhenFirstParseThrowsError(@TempDir Path dir) throws Exception {
+        Path pdf = SyntheticPdfGenerator.spec().seed(23).pages(10).tocPages(1).repeatedEvery(1).generate()
+                .writeTo(dir.resolve("repeated.pdf"));
+        PageDeduplicator duplicates = new PageDeduplicator();
+        CountDownLatch parsing = new CountDownLatch(1);
+        CountDownLatch fail = new CountDownLatch(1);
+        // PdfDocument 不是线程安全的，两个线程各用一个实例；第 2 页与第 5 页内容相同
+        try (PdfDocument first = new PdfDocument(new PdfReader(pdf.toString()));
+             PdfDocument second = new PdfDocument(new PdfReader(pdf.toString()))) {
+            CompletableFuture<List<LineWithMetadata>> failing = CompletableFuture.supplyAsync(() ->
+                    duplicates.extract(first.getPage(2), 2, new PageFingerprinter(), () -> {
+                        parsing.countDown();
+                        awaitQuietly(fail);
+                        throw new StackOverflowError("parser blew up");
+                    }));
+            assertTrue(parsing.await(10, TimeUnit.SECONDS));
+            CompletableFuture<List<LineWithMetadata>> waiting = CompletableFuture.supplyAsync(() ->
+                    duplicates.extract(second.getPage(5), 5, new PageFingerprinter(), List::of));
+            Thread.sleep(100); // 让第二个线程进入等待
+            fail.countDown();
+
+            assertEquals(List.of(), waiting.get(10, TimeUnit.SECONDS));
+            Throwable error = assertThrows(Exception.class, () -> failing.get(10, TimeUnit.SECONDS)).getCause();
+            assertInstanceOf(StackOverflowError.class, error);
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 不同重复页比例下的去重率与耗时：分别开启、关闭去重做整本提取，取多次中的最小值
+     */
+    @Test
+    @Tag("benchmark")
+    void benchmarkDeduplication(@TempDir Path dir) throws Exception {
+        int pages = 400;
+        System.out.printf("%8s %10s %12s %12s %12s %12s%n", "every", "dupRate", "dedupOnMs", "dedupOffMs", "savedMs", "estSavedMs");
+        for (int every : new int[]{0, 10, 4, 2}) {
+            Path pdf = SyntheticPdfGenerator.spec().seed(every).pages(pages).tocPages(8).repeatedEvery(every)
+                    .generate().writeTo(dir.resolve(every + ".pdf"));
+            ItextTocExtractor on = new ItextTocExtractor(pdf.toString());
+            ItextTocExtractor off = new ItextTocExtractor(pdf.toString()).deduplicatePages(false);
+            long onNanos = Long.MAX_VALUE;
+            long offNanos = Long.MAX_VALUE;
+            for (int run = 0; run < 5; run++) {
+                long start = System.nanoTime();
+                on.extract();
+                onNanos = Math.min(onNanos, System.nanoTime() - start);
+                start = System.nanoTime();
+                off.extract();
+                offNanos = Math.min(offNanos, System.nanoTime() - start);
+            }
+            PageDeduplicator duplicates = new PageDeduplicator();
+            on.extractLines(1, pages, duplicates);
+            System.out.printf("%8d %10.3f %12.1f %12.1f %12.1f %12.1f%n", every,
+                    duplicates.getDuplicatePages() / (double) pages, onNanos / 1e6, offNanos / 1e6,
+                    (offNanos - onNanos) / 1e6, duplicates.getSavedNanos() / 1e6);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.ririv.quickoutline.server;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SidecarAppTest {
+
+    @Test
+    void batchOptionsWithoutValueAreRejected() throws Exception {
+        assertEquals(2, SidecarApp.runBatchExtraction(new String[]{"--extract", "a.pdf", "--output"}));
+        assertEquals(2, SidecarApp.runBatchExtraction(new String[]{"--extract", "a.pdf", "--checkpoint"}));
+        // 下一个选项不能当作文件名
+        assertEquals(2, SidecarApp.runBatchExtraction(new String[]{"--extract", "a.pdf", "--output", "--threads", "4"}));
+        assertEquals(2, SidecarApp.runBatchExtraction(new String[]{"--extract", "a.pdf", "--threads"}));
+    }
+}
@@ -0,0 +1,123 @@
+package com.ririv.quickoutline.server;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.ririv.quickoutline.pdfProcess.SyntheticPdfGenerator;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 冷启动测量：每轮启动一个新的 sidecar 进程，记录从进程启动到输出端口行的时间（time-to-port），
+ * 以及到第一次目录提取返回的时间（time-to-first-extraction）。
+ * 额外的 JVM 参数（如 -XX:SharedArchiveFile=...）用 -Dquickoutline.startup.jvmArgs 传入，
+ * 同一测量即可对比有无 CDS 归档。连接后等待 quickoutline.startup.idleMs 毫秒再发请求，
+ * 模拟用户打开文件前的空闲时间，后台预热在这段时间内完成。
+ */
+class SidecarStartupTest {
+
+    private static final int RUNS = Integer.getInteger("quickoutline.startup.runs", 5);
+    private static final long IDLE_MILLIS = Long.getLong("quickoutline.startup.idleMs", 0);
+
+    @Test
+    @Tag("benchmark")
+    void benchmarkColdStart(@TempDir Path dir) throws Exception {
+        Path pdf = SyntheticPdfGenerator.spec().pages(20).tocPages(2).generate().writeTo(dir.resolve("toc.pdf"));
+        long[] toPort = new long[RUNS];
+        long[] toExtraction = new long[RUNS];
+        long[] firstLatency = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long[] run = coldStart(pdf);
+            toPort[i] = run[0];
+            toExtraction[i] = run[1];
+            firstLatency[i] = run[2];
+        }
+        Arrays.sort(toPort);
+        Arrays.sort(toExtraction);
+        Arrays.sort(firstLatency);
+        System.out.printf("cold start (%s, idle %d ms): time-to-port median %d ms, time-to-first-extraction median %d ms"
+                        + " (request latency %d ms)%n",
+                System.getProperty("quickoutline.startup.jvmArgs", "default"), IDLE_MILLIS,
+                toPort[RUNS / 2] / 1_000_000, toExtraction[RUNS / 2] / 1_000_000, firstLatency[RUNS / 2] / 1_000_000);
+    }
+
+    // 返回 {time-to-port, time-to-first-extraction, 第一次提取请求的延迟}，单位纳秒
+    private static long[] coldStart(Path pdf) throws Exception {
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command().orElse("java"));
+        String jvmArgs = System.getProperty("quickoutline.startup.jvmArgs", "");
+        if (!jvmArgs.isBlank()) command.addAll(Arrays.asList(jvmArgs.trim().split("\\s+")));
+        command.addAll(List.of("-Djava.awt.headless=true", "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn",
+                "-cp", classPath(), SidecarApp.class.getName(), "--port", "0"));
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.DISCARD).start();
+        try {
+            BufferedReader stdout = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+            String line = stdout.readLine();
+            long toPort = System.nanoTime() - start;
+            assertNotNull(line, "sidecar exited before announcing its port");
+            int port = JsonParser.parseString(line).getAsJsonObject().get("port").getAsInt();
+
+            CompletableFuture<String> reply = new CompletableFuture<>();
+            WebSocket ws = HttpClient.newHttpClient().newWebSocketBuilder()
+                    .buildAsync(URI.create("ws://127.0.0.1:" + port + "/ws/tauri"), new WebSocket.Listener() {
+                        private final StringBuilder text = new StringBuilder();
+
+                        @Override
+                        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+                            text.append(data);
+                            if (last) {
+                                JsonObject message = JsonParser.parseString(text.toString()).getAsJsonObject();
+                                text.setLength(0);
+                                if (message.has("id") && "first".equals(message.get("id").getAsString())) {
+                                    reply.complete(message.toString());
+                                }
+                            }
+                            webSocket.request(1);
+                            return null;
+                        }
+                    }).get(30, TimeUnit.SECONDS);
+            Thread.sleep(IDLE_MILLIS);
+            long sent = System.nanoTime();
+            ws.sendText(new Gson().toJson(Map.of("id", "first", "method", "extractToc", "params", List.of(pdf.toString()))), true);
+            String response = reply.get(1, TimeUnit.MINUTES);
+            long received = System.nanoTime();
+            assertTrue(response.contains("\"result\""), response);
+            ws.abort();
+            return new long[]{toPort, received - start, received - sent};
+        } finally {
+            process.destroy();
+            process.waitFor(10, TimeUnit.SECONDS);
+        }
+    }
+
+    // 测试可能在模块路径上运行，两者合并作为子进程的类路径
+    private static String classPath() {
+        List<String> entries = new ArrayList<>();
+        for (String property : List.of("jdk.module.path", "java.class.path")) {
+            String value = System.getProperty(property);
+            if (value != null && !value.isBlank()) entries.add(value);
+        }
+        return String.join(File.pathSeparator, entries);
+    }
+}
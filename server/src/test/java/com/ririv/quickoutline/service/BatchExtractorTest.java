@@ -0,0 +1,140 @@
+package com.ririv.quickoutline.service;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.itextpdf.io.font.constants.StandardFonts;
+import com.itextpdf.kernel.font.PdfFontFactory;
+import com.itextpdf.kernel.geom.Rectangle;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.kernel.pdf.canvas.PdfCanvas;
+import com.itextpdf.kernel.pdf.xobject.PdfFormXObject;
+import com.ririv.quickoutline.pdfProcess.SyntheticPdfGenerator;
+import com.ririv.quickoutline.pdfProcess.SyntheticPdfGenerator.Generated;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchExtractorTest {
+
+    private static List<JsonObject> parseLines(String jsonLines) {
+        List<JsonObject> records = new ArrayList<>();
+        for (String line : jsonLines.split("\n")) {
+            if (!line.isBlank()) records.add(JsonParser.parseString(line).getAsJsonObject());
+        }
+        return records;
+    }
+
+    private static List<String> tocOf(JsonObject record) {
+        List<String> toc = new ArrayList<>();
+        JsonArray array = record.getAsJsonArray("toc");
+        array.forEach(e -> toc.add(e.getAsString()));
+        return toc;
+    }
+
+    @Test
+    void chunkedExtractionFindsWholeToc(@TempDir Path dir) throws Exception {
+        // 段长小于目录页数，目录跨段
+        Generated a = SyntheticPdfGenerator.spec().seed(1).pages(20).tocPages(4).generate();
+        Generated b = SyntheticPdfGenerator.spec().seed(2).pages(9).tocPages(2).generate();
+        Files.createDirectories(dir.resolve("sub"));
+        a.writeTo(dir.resolve("a.pdf"));
+        b.writeTo(dir.resolve("sub/b.PDF"));
+        Files.writeString(dir.resolve("notes.txt"), "not a pdf");
+
+        List<Path> files = BatchExtractor.collectPdfs(List.of(dir));
+        assertEquals(2, files.size());
+
+        StringWriter out = new StringWriter();
+        BatchExtractor.Summary summary = new BatchExtractor(2, 3).run(files, out, null);
+        assertEquals(2, summary.documents());
+        assertEquals(29, summary.pages());
+        assertEquals(0, summary.failed());
+
+        for (JsonObject record : parseLines(out.toString())) {
+            Generated expected = record.get("file").getAsString().endsWith("a.pdf") ? a : b;
+            assertEquals(1.0, expected.recall(tocOf(record)), 1e-9, record.get("file").getAsString());
+        }
+    }
+
+    @Test
+    void checkpointSkipsCompletedDocuments(@TempDir Path dir) throws Exception {
+        Path good = SyntheticPdfGenerator.spec().seed(1).pages(6).generate().writeTo(dir.resolve("good.pdf"));
+        Path broken = Files.writeString(dir.resolve("broken.pdf"), "%PDF-1.7 truncated");
+        Path manifest = dir.resolve("done.tsv");
+
+        StringWriter first = new StringWriter();
+        BatchExtractor.Summary summary = new BatchExtractor(2, 4).run(List.of(good, broken), first, manifest);
+        assertEquals(1, summary.documents());
+        assertEquals(1, summary.failed());
+        List<JsonObject> records = parseLines(first.toString());
+        assertEquals(2, records.size());
+        assertTrue(records.stream().anyMatch(r -> r.has("error") && r.get("file").getAsString().endsWith("broken.pdf")));
+
+        StringWriter second = new StringWriter();
+        summary = new BatchExtractor(2, 4).run(List.of(good, broken), second, manifest);
+        assertEquals(2, summary.skipped());
+        assertEquals("", second.toString());
+
+        // 文件变化后重新提取
+        SyntheticPdfGenerator.spec().seed(2).pages(8).generate().writeTo(good);
+        StringWriter third = new StringWriter();
+        summary = new BatchExtractor(2, 4).run(List.of(good, broken), third, manifest);
+        assertEquals(1, summary.documents());
+        assertEquals(1, summary.skipped());
+    }
+
+    // 每层 Form XObject 只引用下一层，解析时递归过深
+    private static Path createDeeplyNestedPdf(Path file, int depth) throws IOException {
+        try (PdfDocument pdfDoc = new PdfDocument(new PdfWriter(file.toString()))) {
+            Rectangle box = new Rectangle(200, 200);
+            PdfFormXObject form = new PdfFormXObject(box);
+            new PdfCanvas(form, pdfDoc).beginText().setFontAndSize(PdfFontFactory.createFont(StandardFonts.HELVETICA), 12)
+                    .moveText(10, 10).showText("Deep").endText();
+            for (int i = 0; i < depth; i++) {
+                PdfFormXObject outer = new PdfFormXObject(box);
+                new PdfCanvas(outer, pdfDoc).addXObjectAt(form, 0, 0);
+                form = outer;
+            }
+            new PdfCanvas(pdfDoc.addNewPage()).addXObjectAt(form, 0, 0);
+        }
+        return file;
+    }
+
+    @Test
+    void errorInTaskFailsOnlyThatDocument(@TempDir Path dir) throws Exception {
+        Path deep = createDeeplyNestedPdf(dir.resolve("deep.pdf"), 50_000);
+        Path good = SyntheticPdfGenerator.spec().seed(3).pages(6).generate().writeTo(dir.resolve("good.pdf"));
+
+        StringWriter out = new StringWriter();
+        BatchExtractor.Summary summary = assertTimeoutPreemptively(Duration.ofSeconds(60),
+                () -> new BatchExtractor(2, 4).run(List.of(deep, good), out, null));
+        assertEquals(1, summary.documents());
+        assertEquals(1, summary.failed());
+        JsonObject failed = parseLines(out.toString()).stream()
+                .filter(r -> r.get("file").getAsString().endsWith("deep.pdf")).findFirst().orElseThrow();
+        assertTrue(failed.get("error").getAsString().contains("StackOverflowError"), failed.toString());
+    }
+
+    @Test
+    void smallDocumentIsNotStuckBehindLargeOne(@TempDir Path dir) throws Exception {
+        Path large = SyntheticPdfGenerator.spec().seed(1).pages(200).generate().writeTo(dir.resolve("large.pdf"));
+        Path small = SyntheticPdfGenerator.spec().seed(2).pages(10).generate().writeTo(dir.resolve("small.pdf"));
+
+        StringWriter out = new StringWriter();
+        new BatchExtractor(1, 8).run(List.of(large, small), out, null);
+        List<JsonObject> records = parseLines(out.toString());
+        assertEquals(2, records.size());
+        assertTrue(records.get(0).get("file").getAsString().endsWith("small.pdf"));
+    }
+}
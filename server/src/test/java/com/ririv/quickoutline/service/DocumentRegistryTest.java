@@ -0,0 +1,273 @@
+package com.ririv.quickoutline.service;
+
+import com.itextpdf.io.font.constants.StandardFonts;
+import com.itextpdf.kernel.font.PdfFontFactory;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfReader;
+import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.kernel.pdf.canvas.PdfCanvas;
+import com.ririv.quickoutline.model.Bookmark;
+import com.ririv.quickoutline.pdfProcess.SyntheticPdfGenerator;
+import com.ririv.quickoutline.pdfProcess.SyntheticPdfGenerator.Generated;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DocumentRegistryTest {
+
+    // 整个文件重写（对象重新编号），只在 pageNum 页追加一行文字
+    static void addLineToPage(Path pdf, int pageNum, String text) throws IOException {
+        Path rewritten = pdf.resolveSibling(pdf.getFileName() + ".tmp");
+        try (PdfDocument doc = new PdfDocument(new PdfReader(pdf.toString()), new PdfWriter(rewritten.toString()))) {
+            new PdfCanvas(doc.getPage(pageNum)).beginText()
+                    .setFontAndSize(PdfFontFactory.createFont(StandardFonts.HELVETICA), 9)
+                    .moveText(72, 30).showText(text).endText();
+        }
+        Files.move(rewritten, pdf, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Test
+    void extractionReusesOpenedDocument(@TempDir Path dir) throws Exception {
+        Path pdf = SyntheticPdfGenerator.spec().seed(3).pages(12).tocPages(2).generate().writeTo(dir.resolve("a.pdf"));
+        String expected = new PdfTocExtractorService().extract(pdf.toString());
+        assertFalse(expected.isEmpty());
+
+        DocumentRegistry registry = new DocumentRegistry(Long.MAX_VALUE);
+        PdfTocExtractorService service = new PdfTocExtractorService(null, registry);
+        DocumentHandle handle = registry.open(pdf.toString());
+        assertEquals(12, handle.getPageCount());
+        assertEquals(1, registry.getMisses());
+
+        assertEquals(expected, service.extract(pdf.toString()));
+        long bytesAfterFirst = handle.getEstimatedBytes();
+        assertEquals(expected, service.extract(pdf.toString())); // 第二次全部来自缓存的页面模型
+        assertEquals(bytesAfterFirst, handle.getEstimatedBytes());
+        assertEquals(1, registry.getMisses());
+        assertEquals(2, registry.getHits());
+    }
+
+    @Test
+    void firstExtractionParsesPagesInParallel(@TempDir Path dir) throws Exception {
+        Path pdf = SyntheticPdfGenerator.spec().seed(4).pages(12).tocPages(2).generate().writeTo(dir.resolve("a.pdf"));
+        String expected = new PdfTocExtractorService().extract(pdf.toString());
+
+        WorkScheduler scheduler = new WorkScheduler(2);
+        try {
+            DocumentRegistry registry = new DocumentRegistry(Long.MAX_VALUE);
+            PdfTocExtractorService service = new PdfTocExtractorService(scheduler, registry);
+            DocumentHandle handle = registry.open(pdf.toString());
+            handle.pageLines(1, () -> {}); // 已缓存的页面不再解析，计为已完成
+
+            Thread caller = Thread.currentThread();
+            List<Integer> done = Collections.synchronizedList(new ArrayList<>());
+            Set<Thread> workers = ConcurrentHashMap.newKeySet();
+            String toc = String.join("\n", service.extract(handle, (pageDone, total) -> {
+                assertEquals(12, total);
+                done.add(pageDone);
+                workers.add(Thread.currentThread());
+            }));
+            assertEquals(expected, toc);
+            assertEquals(IntStream.rangeClosed(2, 12).boxed().toList(), done.stream().sorted().toList());
+            assertFalse(workers.contains(caller));
+            assertEquals(0, handle.uncachedPages().pageNums().length);
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedOverBudget(@TempDir Path dir) throws Exception {
+        Path[] pdfs = new Path[3];
+        for (int i = 0; i < pdfs.length; i++) {
+            pdfs[i] = SyntheticPdfGenerator.spec().seed(10 + i).pages(6).tocPages(1).generate()
+                    .writeTo(dir.resolve(i + ".pdf"));
+        }
+        DocumentRegistry probe = new DocumentRegistry(Long.MAX_VALUE);
+        long oneDocument = probe.open(pdfs[0].toString()).getEstimatedBytes();
+
+        // 预算大约能容纳两个文档
+        DocumentRegistry registry = new DocumentRegistry(oneDocument * 5 / 2);
+        DocumentHandle a = registry.open(pdfs[0].toString());
+        DocumentHandle b = registry.open(pdfs[1].toString());
+        DocumentHandle c = registry.open(pdfs[2].toString());
+        assertFalse(a.isLoaded());
+        assertTrue(b.isLoaded());
+        assertTrue(c.isLoaded());
+        assertEquals(1, registry.getEvictions());
+        assertEquals(3, registry.getOpenCount());
+
+        registry.acquire(b); // b 变为最近使用，再用 a 时淘汰 c
+        registry.acquire(a);
+        assertTrue(a.isLoaded());
+        assertTrue(b.isLoaded());
+        assertFalse(c.isLoaded());
+        assertEquals(2, registry.getEvictions());
+        assertTrue(registry.getLoadedBytes() <= oneDocument * 5 / 2);
+    }
+
+    @Test
+    void reloadsWhenFileChanges(@TempDir Path dir) throws Exception {
+        Path pdf = SyntheticPdfGenerator.spec().seed(4).pages(5).tocPages(1).generate().writeTo(dir.resolve("a.pdf"));
+        DocumentRegistry registry = new DocumentRegistry(Long.MAX_VALUE);
+        DocumentHandle handle = registry.open(pdf.toString());
+        assertEquals(5, handle.getPageSizes().length);
+
+        Generated changed = SyntheticPdfGenerator.spec().seed(5).pages(8).tocPages(2).generate();
+        changed.writeTo(pdf);
+        registry.acquire(handle);
+        assertEquals(8, handle.getPageSizes().length);
+        assertEquals(2, registry.getMisses());
+        assertEquals(1.0, changed.recall(new PdfTocExtractorService(null, registry).extract(pdf.toString()).lines().toList()), 1e-9);
+    }
+
+    @Test
+    void accessorsReloadAfterEvictionRace(@TempDir Path dir) throws Exception {
+        Path pdf = SyntheticPdfGenerator.spec().seed(4).pages(5).tocPages(1).generate().writeTo(dir.resolve("a.pdf"));
+        DocumentRegistry registry = new DocumentRegistry(Long.MAX_VALUE);
+        DocumentHandle handle = registry.open(pdf.toString());
+
+        // 模拟 acquire 之后、使用之前被其他线程淘汰
+        handle.unload();
+        assertEquals(5, handle.getPageSizes().length);
+        handle.unload();
+        assertEquals(5, handle.getPageCount());
+        handle.unload();
+        assertEquals(5, (int) handle.read(doc -> doc.getNumberOfPages()));
+        assertTrue(handle.isLoaded());
+    }
+
+    @Test
+    void accessDuringWriteWaitsForTheWrittenFile(@TempDir Path dir) throws Exception {
+        Path pdf = SyntheticPdfGenerator.spec().seed(4).pages(5).tocPages(1).generate().writeTo(dir.resolve("a.pdf"));
+        DocumentRegistry registry = new DocumentRegistry(Long.MAX_VALUE);
+        DocumentHandle handle = registry.open(pdf.toString());
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        Generated changed = SyntheticPdfGenerator.spec().seed(5).pages(8).tocPages(2).generate();
+
+        CompletableFuture<Void> write = CompletableFuture.runAsync(() -> {
+            try {
+                registry.write(pdf.toString(), () -> {
+                    writing.countDown();
+                    Files.write(pdf, new byte[]{'%', 'P', 'D', 'F'}); // 写了一半的文件
+                    try {
+                        finish.await();
+                    } catch (InterruptedException e) {
+                        throw new IOException(e);
+                    }
+                    changed.writeTo(pdf);
+                });
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        assertTrue(writing.await(10, TimeUnit.SECONDS));
+        CompletableFuture<Integer> pages = CompletableFuture.supplyAsync(() -> {
+            try {
+                return handle.getPageSizes().length;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        Thread.sleep(100);
+        assertFalse(pages.isDone()); // 等待写入完成，而不是打开写了一半的文件
+        finish.countDown();
+        write.get(10, TimeUnit.SECONDS);
+        assertEquals(8, pages.get(10, TimeUnit.SECONDS));
+        assertTrue(handle.isOwnWrite());
+    }
+
+    @Test
+    void savingOutlineReusesEveryPage(@TempDir Path dir) throws Exception {
+        Path pdf = SyntheticPdfGenerator.spec().seed(7).pages(10).tocPages(2).generate().writeTo(dir.resolve("a.pdf"));
+        DocumentRegistry registry = new DocumentRegistry(Long.MAX_VALUE);
+        PdfTocExtractorService service = new PdfTocExtractorService(null, registry);
+        DocumentHandle handle = registry.open(pdf.toString());
+        String before = service.extract(pdf.toString());
+
+        Bookmark root = Bookmark.createRoot();
+        root.addChild(new Bookmark("Added", 3, 1));
+        registry.write(pdf.toString(), () -> new PdfOutlineService().setOutline(root, pdf.toString(), null, 0));
+
+        DocumentHandle.Reload reload = registry.refresh(handle);
+        assertNotNull(reload);
+        assertEquals(new DocumentHandle.Reload(10, 10, 10), reload);
+        assertEquals(before, service.extract(pdf.toString()));
+        assertEquals("Added", new PdfOutlineService().readOutline(handle, 0).getChildren().get(0).getTitle());
+    }
+
+    @Test
+    void onlyChangedPagesAreReparsed(@TempDir Path dir) throws Exception {
+        Path pdf = SyntheticPdfGenerator.spec().seed(8).pages(10).tocPages(2).generate().writeTo(dir.resolve("a.pdf"));
+        DocumentRegistry registry = new DocumentRegistry(Long.MAX_VALUE);
+        PdfTocExtractorService service = new PdfTocExtractorService(null, registry);
+        DocumentHandle handle = registry.open(pdf.toString());
+        service.extract(pdf.toString());
+
+        addLineToPage(pdf, 2, "Appendix Z .......... 9");
+        DocumentHandle.Reload reload = registry.refresh(handle);
+        assertEquals(new DocumentHandle.Reload(10, 10, 9), reload);
+
+        String incremental = service.extract(pdf.toString());
+        assertEquals(new PdfTocExtractorService().extract(pdf.toString()), incremental);
+        assertTrue(incremental.contains("Appendix Z"), incremental);
+        assertNull(registry.refresh(handle));
+    }
+
+    @Test
+    void movedPagesAreReused(@TempDir Path dir) throws Exception {
+        Path pdf = SyntheticPdfGenerator.spec().seed(8).pages(10).tocPages(2).generate().writeTo(dir.resolve("a.pdf"));
+        DocumentRegistry registry = new DocumentRegistry(Long.MAX_VALUE);
+        PdfTocExtractorService service = new PdfTocExtractorService(null, registry);
+        DocumentHandle handle = registry.open(pdf.toString());
+        service.extract(pdf.toString());
+
+        // 在最前面插入一页，原有页面全部后移一位
+        Path rewritten = dir.resolve("a.pdf.tmp");
+        try (PdfDocument doc = new PdfDocument(new PdfReader(pdf.toString()), new PdfWriter(rewritten.toString()))) {
+            new PdfCanvas(doc.addNewPage(1)).beginText()
+                    .setFontAndSize(PdfFontFactory.createFont(StandardFonts.HELVETICA), 12)
+                    .moveText(72, 700).showText("Cover").endText();
+        }
+        Files.move(rewritten, pdf, StandardCopyOption.REPLACE_EXISTING);
+
+        assertEquals(new DocumentHandle.Reload(11, 10, 10), registry.refresh(handle));
+        assertEquals(new PdfTocExtractorService().extract(pdf.toString()), service.extract(pdf.toString()));
+    }
+
+    @Test
+    void closeReleasesAfterLastReference(@TempDir Path dir) throws Exception {
+        Path pdf = SyntheticPdfGenerator.spec().seed(6).pages(3).tocPages(1).generate().writeTo(dir.resolve("a.pdf"));
+        DocumentRegistry registry = new DocumentRegistry(Long.MAX_VALUE);
+        DocumentHandle first = registry.open(pdf.toString());
+        DocumentHandle second = registry.open(dir.resolve("./a.pdf").toString());
+        assertSame(first, second);
+        assertEquals(1, registry.getOpenCount());
+
+        registry.close(first.getId());
+        assertSame(first, registry.get(first.getId()));
+        assertTrue(first.isLoaded());
+
+        registry.close(first.getId());
+        assertFalse(first.isLoaded());
+        assertNull(registry.findByPath(pdf.toString()));
+        assertThrows(IllegalArgumentException.class, () -> registry.get(first.getId()));
+        assertEquals(0, registry.getOpenCount());
+    }
+}
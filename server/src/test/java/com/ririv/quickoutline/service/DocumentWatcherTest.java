@@ -0,0 +1,101 @@
+package com.ririv.quickoutline.service;
+
+import com.ririv.quickoutline.pdfProcess.SyntheticPdfGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DocumentWatcherTest {
+
+    @Test
+    void changedDocumentIsRefreshedOnce(@TempDir Path dir) throws Exception {
+        Path pdf = SyntheticPdfGenerator.spec().seed(9).pages(6).tocPages(1).generate().writeTo(dir.resolve("a.pdf"));
+        SyntheticPdfGenerator.spec().seed(9).pages(2).tocPages(1).generate().writeTo(dir.resolve("other.pdf"));
+        DocumentRegistry registry = new DocumentRegistry(Long.MAX_VALUE);
+        AtomicInteger notifications = new AtomicInteger();
+        CompletableFuture<DocumentHandle.Reload> refreshed = new CompletableFuture<>();
+        DocumentWatcher watcher = DocumentWatcher.start(registry, Runnable::run, handle -> {
+            notifications.incrementAndGet();
+            refreshed.complete(registry.refresh(handle));
+        }, 200);
+        try {
+            DocumentHandle handle = registry.open(pdf.toString());
+            new PdfTocExtractorService(null, registry).extract(pdf.toString());
+
+            // 连续两次写入只通知一次；未打开的文件变化不通知
+            DocumentRegistryTest.addLineToPage(pdf, 4, "First edit");
+            DocumentRegistryTest.addLineToPage(pdf, 4, "Second edit");
+            SyntheticPdfGenerator.spec().seed(10).pages(2).tocPages(1).generate().writeTo(dir.resolve("other.pdf"));
+
+            DocumentHandle.Reload reload = refreshed.get(30, TimeUnit.SECONDS);
+            assertEquals(new DocumentHandle.Reload(6, 6, 5), reload);
+            Thread.sleep(500);
+            assertEquals(1, notifications.get());
+
+            registry.close(handle.getId());
+        } finally {
+            watcher.close();
+        }
+    }
+
+    @Test
+    void ownWritesAreNotReported(@TempDir Path dir) throws Exception {
+        Path pdf = SyntheticPdfGenerator.spec().seed(11).pages(6).tocPages(1).generate().writeTo(dir.resolve("a.pdf"));
+        Path other = SyntheticPdfGenerator.spec().seed(12).pages(2).tocPages(1).generate().writeTo(dir.resolve("other.pdf"));
+        DocumentRegistry registry = new DocumentRegistry(Long.MAX_VALUE);
+        AtomicInteger notifications = new AtomicInteger();
+        CompletableFuture<DocumentHandle.Reload> refreshed = new CompletableFuture<>();
+        CompletableFuture<Void> otherChanged = new CompletableFuture<>();
+        DocumentWatcher watcher = DocumentWatcher.start(registry, Runnable::run, handle -> {
+            if (handle.getFilePath().equals(other.toString())) {
+                otherChanged.complete(null);
+                return;
+            }
+            notifications.incrementAndGet();
+            refreshed.complete(registry.refresh(handle));
+        }, 200);
+        try {
+            DocumentHandle handle = registry.open(pdf.toString());
+            registry.open(other.toString());
+            new PdfTocExtractorService(null, registry).extract(pdf.toString());
+
+            // 保存目录是本进程的写入，不通知
+            OutlineSessionService outlines = new OutlineSessionService(new PdfOutlineService(), registry);
+            outlines.open(pdf.toString(), 0);
+            outlines.save(pdf.toString(), null, 0);
+            Thread.sleep(800);
+            assertEquals(0, notifications.get());
+
+            // 写入耗时超过去抖时间时同样不通知；写入期间监视线程不被阻塞，其他文档的变化照常通知
+            boolean[] otherReportedDuringWrite = {false};
+            registry.write(pdf.toString(), () -> {
+                DocumentRegistryTest.addLineToPage(pdf, 2, "Slow save");
+                DocumentRegistryTest.addLineToPage(other, 1, "External edit");
+                try {
+                    otherChanged.get(5, TimeUnit.SECONDS);
+                    otherReportedDuringWrite[0] = true;
+                } catch (Exception e) {
+                    // 超时，断言失败
+                }
+            });
+            assertTrue(otherReportedDuringWrite[0], "watcher blocked while the document was being written");
+            Thread.sleep(800);
+            assertEquals(0, notifications.get());
+            new PdfTocExtractorService(null, registry).extract(pdf.toString());
+
+            // 之后其他程序的修改照常通知
+            DocumentRegistryTest.addLineToPage(pdf, 3, "External edit");
+            assertEquals(new DocumentHandle.Reload(6, 6, 5), refreshed.get(30, TimeUnit.SECONDS));
+
+            registry.close(handle.getId());
+        } finally {
+            watcher.close();
+        }
+    }
+}
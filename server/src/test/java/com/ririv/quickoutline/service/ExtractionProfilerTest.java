@@ -0,0 +1,107 @@
+package com.ririv.quickoutline.service;
+
+import com.itextpdf.io.font.constants.StandardFonts;
+import com.itextpdf.kernel.font.PdfFont;
+import com.itextpdf.kernel.font.PdfFontFactory;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.kernel.pdf.canvas.PdfCanvas;
+import com.ririv.quickoutline.pdfProcess.itextImpl.ItextTocExtractor;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExtractionProfilerTest {
+
+    private static Path createTocPdf(Path dir, int pages, int linesPerPage) throws IOException {
+        Path file = dir.resolve("toc.pdf");
+        try (PdfDocument pdfDoc = new PdfDocument(new PdfWriter(file.toString()))) {
+            PdfFont font = PdfFontFactory.createFont(StandardFonts.HELVETICA);
+            for (int p = 0; p < pages; p++) {
+                PdfCanvas canvas = new PdfCanvas(pdfDoc.addNewPage());
+                canvas.beginText().setFontAndSize(font, 11).moveText(50, 800);
+                for (int l = 0; l < linesPerPage; l++) {
+                    canvas.moveText(0, -16).showText("Chapter " + p + "." + l + " ........ " + (p * linesPerPage + l));
+                }
+                canvas.endText();
+            }
+        }
+        return file;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Number> stage(Map<String, Object> summary, String name) {
+        return ((Map<String, Map<String, Number>>) summary.get("stages")).get(name);
+    }
+
+    @Test
+    void summarizesEveryStage(@TempDir Path dir) throws Exception {
+        int pages = 4;
+        Path pdf = createTocPdf(dir, pages, 10);
+        ExtractionProfiler profiler = new ExtractionProfiler();
+        profiler.start(60);
+        assertTrue(profiler.isRunning());
+        new ItextTocExtractor(pdf.toString()).extract();
+        Map<String, Object> summary = profiler.stop();
+        assertFalse(profiler.isRunning());
+
+        assertEquals(pages, stage(summary, "PdfOpen").get("count").longValue());
+        assertTrue(stage(summary, "PdfOpen").get("fileBytes").longValue() > 0);
+        assertEquals(pages, stage(summary, "ContentParse").get("count").longValue());
+        assertTrue(stage(summary, "ContentParse").get("contentBytes").longValue() > 0);
+        long chunks = stage(summary, "ContentParse").get("chunkCount").longValue();
+        assertTrue(chunks >= pages * 10L);
+        assertEquals(chunks, stage(summary, "LineConversion").get("chunkCount").longValue());
+        assertEquals(pages * 10L, stage(summary, "LineConversion").get("lineCount").longValue());
+        assertEquals(1, stage(summary, "BlockAggregation").get("count").longValue());
+        assertEquals(pages * 10L, stage(summary, "BlockAggregation").get("lineCount").longValue());
+        assertEquals(1, stage(summary, "DominantStyle").get("count").longValue());
+        assertEquals(pages, stage(summary, "TocAnalysis").get("count").longValue());
+        assertTrue(stage(summary, "ContentParse").get("totalMs").doubleValue() > 0);
+    }
+
+    @Test
+    void onlyOneRecordingAtATime() throws Exception {
+        ExtractionProfiler profiler = new ExtractionProfiler();
+        assertThrows(IllegalStateException.class, profiler::stop);
+        profiler.start(5);
+        assertThrows(IllegalStateException.class, () -> profiler.start(5));
+        Map<String, Object> summary = profiler.stop();
+        assertEquals(0L, stage(summary, "PdfOpen").get("count").longValue());
+    }
+
+    /**
+     * 录制关闭与开启时整本提取的耗时对比
+     */
+    @Test
+    @Tag("benchmark")
+    void benchmarkRecordingOverhead(@TempDir Path dir) throws Exception {
+        Path pdf = createTocPdf(dir, 200, 40);
+        ItextTocExtractor extractor = new ItextTocExtractor(pdf.toString());
+        for (int i = 0; i < 3; i++) extractor.extract(); // 预热
+
+        int runs = 5;
+        long off = 0;
+        long on = 0;
+        ExtractionProfiler profiler = new ExtractionProfiler();
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            extractor.extract();
+            off += System.nanoTime() - start;
+
+            profiler.start(60);
+            start = System.nanoTime();
+            extractor.extract();
+            on += System.nanoTime() - start;
+            profiler.stop();
+        }
+        System.out.printf("Extraction of 200 pages: recording off %.1f ms, on %.1f ms%n",
+                off / 1e6 / runs, on / 1e6 / runs);
+    }
+}
@@ -0,0 +1,60 @@
+package com.ririv.quickoutline.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WarmupTest {
+
+    @Test
+    void samplePdfRunsThroughWholePipeline(@TempDir Path dir) throws Exception {
+        Path pdf = Files.write(dir.resolve("sample.pdf"), Warmup.samplePdf());
+        assertEquals(30, Warmup.runOnce(pdf)); // 预热必须走到目录分析阶段，而不是在前面提前结束
+    }
+
+    @Test
+    void warmupWaitsForIdle() throws Exception {
+        WorkScheduler scheduler = new WorkScheduler(1);
+        try {
+            scheduler.requestArrived(); // 一个长时间未完成的请求
+            Future<Integer> warmup = Warmup.startInBackground(scheduler, 1, 10);
+            Thread.sleep(300);
+            assertEquals(0, scheduler.getBackgroundActiveCount());
+            assertFalse(warmup.isDone());
+
+            scheduler.requestFinished();
+            assertEquals(1, warmup.get(30, TimeUnit.SECONDS));
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    void firstRequestCancelsWarmup() throws Exception {
+        WorkScheduler scheduler = new WorkScheduler(1);
+        try {
+            Future<Integer> warmup = Warmup.startInBackground(scheduler, 100_000, 10);
+            Thread.sleep(1500); // 让预热进入提取流程
+            assertFalse(warmup.isDone());
+
+            long start = System.nanoTime();
+            scheduler.requestArrived();
+            scheduler.requestFinished();
+            int rounds = warmup.get(5, TimeUnit.SECONDS);
+            long stopMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            assertTrue(rounds < 100_000, "rounds " + rounds);
+            assertTrue(stopMillis < 500, "warm-up took " + stopMillis + " ms to stop");
+
+            // 预热停止后后台线程立即可用
+            assertEquals("real", scheduler.getBackgroundExecutor().submit(() -> "real").get(1, TimeUnit.SECONDS));
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.ririv.quickoutline.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WorkSchedulerTest {
+
+    @Test
+    void checkpointWaitsForInteractiveWork() throws Exception {
+        WorkScheduler scheduler = new WorkScheduler(1);
+        try {
+            long start = System.nanoTime();
+            scheduler.checkpoint();
+            assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(10), "no interactive work, no wait");
+            assertEquals(0, scheduler.getYieldCount());
+
+            scheduler.enterInteractive();
+            CompletableFuture<Void> background = CompletableFuture.runAsync(scheduler::checkpoint, scheduler.getBackgroundExecutor());
+            Thread.sleep(10);
+            assertFalse(background.isDone());
+            scheduler.exitInteractive();
+            background.get(1, TimeUnit.SECONDS);
+            assertEquals(1, scheduler.getYieldCount());
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    void checkpointWaitIsBounded() {
+        WorkScheduler scheduler = new WorkScheduler(1);
+        try {
+            scheduler.enterInteractive(); // 一直不结束
+            long start = System.nanoTime();
+            scheduler.checkpoint();
+            long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            assertTrue(waited >= 40 && waited < 1000, "waited " + waited + " ms");
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+}
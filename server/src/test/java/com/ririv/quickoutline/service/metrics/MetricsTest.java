@@ -0,0 +1,136 @@
+package com.ririv.quickoutline.service.metrics;
+
+import com.google.gson.Gson;
+import com.ririv.quickoutline.api.service.RpcDispatcher;
+import com.ririv.quickoutline.api.service.RpcProcessor;
+import com.ririv.quickoutline.api.service.impl.ApiServiceImpl;
+import com.ririv.quickoutline.service.WorkScheduler;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsTest {
+
+    private final Gson gson = new Gson();
+
+    private String request(String id, String method, Object... params) {
+        return gson.toJson(Map.of("id", id, "method", method, "params", Arrays.asList(params)));
+    }
+
+    @Test
+    void histogramBucketsAndPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 98; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(500)); // 1ms 桶
+        }
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(40)); // 50ms 桶
+        histogram.record(TimeUnit.MINUTES.toNanos(1)); // +Inf 桶
+
+        assertEquals(100, histogram.count());
+        long[] counts = histogram.bucketCounts();
+        assertEquals(98, counts[0]);
+        assertEquals(1, counts[counts.length - 1]);
+        assertEquals(1, histogram.percentileMillis(0.5));
+        assertEquals(50, histogram.percentileMillis(0.99));
+        assertEquals(30000, histogram.percentileMillis(1.0));
+        assertEquals(0, new LatencyHistogram().percentileMillis(0.5));
+    }
+
+    @Test
+    void dispatcherRecordsPerMethodStats() throws Exception {
+        Metrics metrics = new Metrics();
+        WorkScheduler scheduler = new WorkScheduler(1);
+        try (RpcDispatcher dispatcher = new RpcDispatcher(new RpcProcessor(new ApiServiceImpl(scheduler)), scheduler, metrics)) {
+            for (int i = 0; i < 5; i++) {
+                dispatcher.dispatch(request("p" + i, "placeholder")).get(5, TimeUnit.SECONDS);
+            }
+            dispatcher.dispatch(request("s", "getOutlineSnapshot", "/no/such.pdf")).get(5, TimeUnit.SECONDS);
+            dispatcher.dispatch(request("u", "no\"such")).get(5, TimeUnit.SECONDS);
+        } finally {
+            scheduler.shutdown();
+        }
+
+        Metrics.MethodStats placeholder = metrics.method("placeholder");
+        assertEquals(5, placeholder.latency.count());
+        assertEquals(0, placeholder.errors.sum());
+        assertEquals(0, placeholder.inFlight.sum());
+        assertEquals(0, placeholder.queued.sum());
+        assertEquals(1, metrics.method("getOutlineSnapshot").errors.sum());
+        assertEquals(1, metrics.method(Metrics.OTHER_METHOD).errors.sum()); // 未注册的方法名不单独成为标签
+
+        String text = metrics.toPrometheus();
+        assertTrue(text.contains("quickoutline_rpc_duration_seconds_count{method=\"placeholder\"} 5\n"), text);
+        assertTrue(text.contains("quickoutline_rpc_duration_seconds_bucket{method=\"placeholder\",le=\"+Inf\"} 5\n"), text);
+        assertTrue(text.contains("quickoutline_rpc_errors_total{method=\"other\"} 1\n"), text);
+        assertFalse(text.contains("no\"such"));
+        assertTrue(text.contains("quickoutline_jvm_memory_used_bytes{area=\"heap\"}"));
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> rpc = (Map<String, Object>) metrics.snapshot().get("rpc");
+        assertEquals(5L, ((Map<?, ?>) rpc.get("placeholder")).get("count"));
+    }
+
+    @Test
+    void gaugesAndExtractionAreExported() {
+        Metrics metrics = new Metrics();
+        metrics.gauge("quickoutline_test_queue", "Test queue", () -> 7);
+        metrics.recordExtraction(200, TimeUnit.SECONDS.toNanos(2));
+
+        String text = metrics.toPrometheus();
+        assertTrue(text.contains("# TYPE quickoutline_test_queue gauge\nquickoutline_test_queue 7\n"), text);
+        assertTrue(text.contains("quickoutline_extracted_pages_total 200\n"), text);
+        @SuppressWarnings("unchecked")
+        Map<String, Object> extraction = (Map<String, Object>) metrics.snapshot().get("extraction");
+        assertEquals(100.0, (double) extraction.get("pagesPerSecond"), 1e-9);
+    }
+
+    @Test
+    void statsRpcReturnsSnapshot() {
+        WorkScheduler scheduler = new WorkScheduler(1);
+        try {
+            String response = new RpcProcessor(new ApiServiceImpl(scheduler)).process(request("1", "stats"));
+            assertTrue(response.contains("\"rpc\""), response);
+            assertTrue(response.contains("\"heapUsedBytes\""), response);
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    void labelValuesAreEscaped() {
+        assertEquals("a\\\"b\\\\c\\n", Metrics.escape("a\"b\\c\n"));
+        assertEquals("plain", Metrics.escape("plain"));
+    }
+
+    @Test
+    @Tag("benchmark")
+    void benchmarkRecordingOverhead() throws Exception {
+        Metrics metrics = new Metrics();
+        int threads = 4;
+        int perThread = 5_000_000;
+        List<Thread> workers = new java.util.ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = Thread.ofPlatform().start(() -> {
+                Metrics.MethodStats stats = metrics.method("placeholder");
+                for (int i = 0; i < perThread; i++) {
+                    stats.inFlight.increment();
+                    stats.latency.record(i & 0xFFFFF);
+                    stats.inFlight.decrement();
+                }
+            });
+            workers.add(worker);
+        }
+        for (Thread worker : workers) worker.join();
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("Recorded %d samples on %d threads: %.1f ns/sample%n",
+                threads * perThread, threads, elapsed / (double) (threads * perThread));
+        assertEquals((long) threads * perThread, metrics.method("placeholder").latency.count());
+    }
+}
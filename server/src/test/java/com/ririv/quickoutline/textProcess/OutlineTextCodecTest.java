@@ -0,0 +1,99 @@
+package com.ririv.quickoutline.textProcess;
+
+import com.ririv.quickoutline.model.Bookmark;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutlineTextCodecTest {
+
+    @Test
+    void roundTrip() throws IOException {
+        String text = """
+                第一章 绪论    1
+                \t1.1 背景    2
+                \t\t1.1.1 细节    3
+                \t1.2 无页码   \s
+                第二章    -4
+                """;
+        Bookmark root = OutlineTextCodec.read(new StringReader(text));
+        assertEquals(2, root.getChildren().size());
+        assertEquals(5, root.getLinearBookmarkList().size());
+        assertEquals(text, root.toOutlineString());
+
+        StringWriter writer = new StringWriter();
+        OutlineTextCodec.write(root, writer);
+        assertEquals(text, writer.toString());
+    }
+
+    @Test
+    void parseSeparators() {
+        Bookmark full = OutlineTextCodec.parseLine("前言　　12\r");
+        assertEquals("前言", full.getTitle());
+        assertEquals(12, full.getPageNum().orElseThrow());
+
+        Bookmark single = OutlineTextCodec.parseLine("\tChapter 1 Intro 7");
+        assertEquals("Chapter 1 Intro", single.getTitle());
+        assertEquals(7, single.getPageNum().orElseThrow());
+        assertEquals(2, single.getLevel());
+
+        Bookmark noSeparator = OutlineTextCodec.parseLine("Chapter12");
+        assertEquals("Chapter12", noSeparator.getTitle());
+        assertTrue(noSeparator.getPageNum().isEmpty());
+
+        Bookmark overflow = OutlineTextCodec.parseLine("Title 99999999999");
+        assertEquals("Title 99999999999", overflow.getTitle());
+        assertTrue(overflow.getPageNum().isEmpty());
+
+        assertNull(OutlineTextCodec.parseLine(" \t　\r"));
+    }
+
+    /**
+     * 100 万行目录的读写吞吐，对比 toOutlineString 旧实现中逐行 repeat 缩进的写法
+     */
+    @Tag("benchmark")
+    @Test
+    void benchmarkMillionLines() throws IOException {
+        int lines = 1_000_000;
+        StringBuilder source = new StringBuilder();
+        int[] levels = {1, 2, 3, 3, 2, 3, 4, 4, 2, 1};
+        for (int i = 0; i < lines; i++) {
+            int level = levels[i % levels.length];
+            source.append("\t".repeat(level - 1)).append("Section ").append(i).append("    ").append(i % 900 + 1).append('\n');
+        }
+        byte[] bytes = source.toString().getBytes(StandardCharsets.UTF_8);
+
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            Bookmark root;
+            try (Reader reader = new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8)) {
+                root = OutlineTextCodec.read(reader);
+            }
+            long readMs = (System.nanoTime() - start) / 1_000_000;
+
+            start = System.nanoTime();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length);
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+                OutlineTextCodec.write(root, writer);
+            }
+            long writeMs = (System.nanoTime() - start) / 1_000_000;
+            assertArrayEquals(bytes, out.toByteArray());
+
+            start = System.nanoTime();
+            StringBuilder legacy = new StringBuilder();
+            for (Bookmark e : root.flattenToList()) {
+                legacy.append("\t".repeat(e.getLevel() - 1)).append(e.getTitle()).append("    ")
+                        .append(e.getPageNum().map(String::valueOf).orElse("")).append('\n');
+            }
+            long legacyMs = (System.nanoTime() - start) / 1_000_000;
+
+            System.out.printf("round %d, %d lines (%d MB): read %d ms, write %d ms, legacy string build %d ms%n",
+                    round, lines, bytes.length >> 20, readMs, writeMs, legacyMs);
+        }
+    }
+}
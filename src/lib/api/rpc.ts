@@ -18,6 +18,40 @@ export interface RpcResponse {
 
 // --- Data Models ---
 
+/**
+ * openDocument 的结果
+ */
+export interface DocumentInfo {
+    handle: string;
+    filePath: string;
+    pageCount: number;
+}
+
+export interface OutlineNode {
+    id: string;
+    title: string;
+    pageNum: number | null;
+    level: number;
+}
+
+export interface OutlineSnapshot {
+    version: number;
+    nodes: OutlineNode[];
+}
+
+/**
+ * documentChanged 事件：已打开的文档被其他程序修改，sidecar 已重新加载（sidecar 自己保存造成的变化不推送）
+ */
+export interface DocumentChange {
+    handle: string;
+    filePath: string;
+    pageCount: number;
+    reusedPages: number;
+    reparsedPages: number;
+    toc: string[] | null; // 之前提取过目录时为重新提取的结果
+    millis: number;
+}
+
 // TocConfig removed. Use src/lib/api/rust_pdf.ts
 
 class RpcClient {
@@ -66,11 +100,32 @@ class RpcClient {
         });
     }
 
+    private handleMessage(message: any) {
+        // Check if it's an RPC response
+        const handler = this.pendingRequests.get(message.id);
+        if (handler) {
+            if (message.error) {
+                console.error("RPC: Response error", message.error);
+                handler.reject(new Error(message.error));
+            } else {
+                handler.resolve(message.result);
+            }
+            this.pendingRequests.delete(message.id);
+        } else if (message.type) { // It's an unsolicited event from backend
+            console.log(`RPC: Received event [${message.type}]`, message.payload);
+            this.emit(message.type, message.payload);
+        } else {
+            console.warn("RPC: Unknown message format or no handler found", message);
+        }
+    }
+
     /**
      * 初始化连接
      * @param port Tauri 模式下 Java Sidecar 的端口（从 Rust 获取）
+     * @param coalesceMs 服务端合并单个响应的时间窗口（毫秒），0 表示不合并
+     * @param binary 响应使用二进制编码（见 decodeBinaryFrame），请求仍为 JSON
      */
-    public async connect(port?: number): Promise<void> {
+    public async connect(port?: number, coalesceMs: number = 0, binary: boolean = false): Promise<void> {
         if (this.isAndroid) {
             console.log("RPC: Running in Android mode");
             return Promise.resolve();
@@ -82,7 +137,12 @@ class RpcClient {
         this.port = port; // Store the port
 
         return new Promise((resolve, reject) => {
-            this.ws = new WebSocket(`ws://127.0.0.1:${port}/ws/tauri`);
+            const params = new URLSearchParams();
+            if (coalesceMs > 0) params.set('coalesceMs', String(coalesceMs));
+            if (binary) params.set('format', 'binary');
+            const query = params.toString() ? `?${params}` : '';
+            this.ws = new WebSocket(`ws://127.0.0.1:${port}/ws/tauri${query}`);
+            this.ws.binaryType = 'arraybuffer';
             
             this.ws.onopen = () => {
                 console.log("RPC: WebSocket connected");
@@ -96,24 +156,14 @@ class RpcClient {
 
             this.ws.onmessage = (event) => {
                 try {
-                    const message = JSON.parse(event.data);
-                    
-                    // Check if it's an RPC response
-                    const handler = this.pendingRequests.get(message.id);
-                    if (handler) {
-                        if (message.error) {
-                            console.error("RPC: Response error", message.error);
-                            handler.reject(new Error(message.error));
-                        } else {
-                            handler.resolve(message.result);
-                        }
-                        this.pendingRequests.delete(message.id);
-                    } else if (message.type) { // It's an unsolicited event from backend
-                        console.log(`RPC: Received event [${message.type}]`, message.payload);
-                        this.emit(message.type, message.payload);
-                    } else {
-                        console.warn("RPC: Unknown message format or no handler found", message);
+                    if (event.data instanceof ArrayBuffer) {
+                        decodeBinaryFrame(event.data).forEach(m => this.handleMessage(m));
+                        return;
                     }
+                    const message = JSON.parse(event.data);
+                    // Batch responses and coalesced responses arrive as an array
+                    const messages = Array.isArray(message) ? message : [message];
+                    messages.forEach(m => this.handleMessage(m));
                 } catch (e) {
                     console.error("RPC: Failed to parse message or handle", e);
                 }
@@ -163,6 +213,133 @@ class RpcClient {
             });
         }
     }
+
+    /**
+     * 在 sidecar 上打开文档及其目录会话。目录会话在文档打开之后再建立，读取目录时复用已打开的文档，
+     * 放在同一批量帧中两者会并发执行，目录会话可能另行解析一次文件
+     */
+    public async openDocument(filePath: string, offset: number): Promise<{ document: DocumentInfo, outline: OutlineSnapshot }> {
+        const document: DocumentInfo = await this.send('openDocument', [filePath]);
+        try {
+            const outline: OutlineSnapshot = await this.send('openOutlineSession', [filePath, offset]);
+            return { document, outline };
+        } catch (e) {
+            this.send('closeDocument', [document.handle]).catch(() => {}); // 不留下无人持有的文档
+            throw e;
+        }
+    }
+
+    /**
+     * 与 openDocument 配对
+     */
+    public async closeDocument(document: DocumentInfo): Promise<void> {
+        await Promise.all(this.sendBatch([
+            { method: 'closeOutlineSession', params: [document.filePath] },
+            { method: 'closeDocument', params: [document.handle] },
+        ]));
+    }
+
+    /**
+     * 在一个帧内发送多个请求，服务端全部完成后以一个数组帧返回。
+     * 每个调用各自 resolve/reject，返回的 Promise 与 calls 顺序一致。
+     */
+    public sendBatch(calls: { method: string, params: any[] }[]): Promise<any>[] {
+        if (this.isAndroid || calls.length <= 1) {
+            return calls.map(c => this.send(c.method, c.params));
+        }
+        const requests: RpcRequest[] = calls.map(c => ({ id: crypto.randomUUID(), method: c.method, params: c.params }));
+        const promises = requests.map(r => new Promise<any>((resolve, reject) => {
+            this.pendingRequests.set(r.id, { resolve, reject });
+        }));
+        if (!this.ws || this.ws.readyState !== WebSocket.OPEN) {
+            requests.forEach(r => {
+                this.pendingRequests.get(r.id)?.reject(new Error("WebSocket not connected"));
+                this.pendingRequests.delete(r.id);
+            });
+        } else {
+            const json = JSON.stringify(requests);
+            console.log(`RPC: Sending batch of ${requests.length}`, json);
+            this.ws.send(json);
+        }
+        return promises;
+    }
+}
+
+/**
+ * 解码二进制模式的响应帧，格式见服务端 BinaryRpcCodec
+ */
+export function decodeBinaryFrame(data: ArrayBuffer): RpcResponse[] {
+    const view = new DataView(data);
+    const bytes = new Uint8Array(data);
+    const utf8 = new TextDecoder();
+    let pos = 0;
+
+    const varint = (): number => {
+        let value = 0;
+        let scale = 1;
+        for (;;) {
+            const b = bytes[pos++];
+            value += (b & 0x7f) * scale; // 不用位运算，避免超过 32 位时溢出
+            if (b < 0x80) return value;
+            scale *= 128;
+        }
+    };
+    const str = (): string | null => {
+        const length = varint();
+        if (length === 0) return null;
+        const s = utf8.decode(bytes.subarray(pos, pos + length - 1));
+        pos += length - 1;
+        return s;
+    };
+    const snapshot = () => {
+        const version = varint();
+        const count = varint();
+        const nodes = new Array(count);
+        for (let i = 0; i < count; i++) {
+            const id = str();
+            const title = str();
+            const page = varint();
+            const pageNum = page === 0 ? null : ((page - 1) % 2 === 0 ? (page - 1) / 2 : -(page / 2));
+            nodes[i] = { id, title, pageNum, level: varint() };
+        }
+        return { version, nodes };
+    };
+
+    const responses: RpcResponse[] = [];
+    while (pos < bytes.length) {
+        const end = pos + 4 + view.getUint32(pos);
+        pos += 4;
+        const type = bytes[pos++];
+        switch (type) {
+            case 0:
+                responses.push(JSON.parse(utf8.decode(bytes.subarray(pos, end))));
+                break;
+            case 1:
+                responses.push({ id: str()!, result: null, error: str() });
+                break;
+            case 2:
+                responses.push({ id: str()!, result: str(), error: null });
+                break;
+            case 3:
+                responses.push({ id: str()!, result: snapshot(), error: null });
+                break;
+            case 4: {
+                const id = str()!;
+                const version = varint();
+                const applied = varint();
+                const flags = bytes[pos++];
+                const ack: any = { version, applied, resync: (flags & 1) !== 0 };
+                if (flags & 2) ack.error = str();
+                if (flags & 4) ack.snapshot = snapshot();
+                responses.push({ id, result: ack, error: null });
+                break;
+            }
+            default:
+                console.error(`RPC: Unknown binary message type ${type}`);
+        }
+        pos = end;
+    }
+    return responses;
 }
 
 export const rpc = new RpcClient();
@@ -5,6 +5,8 @@ import { checkPdf } from '@/lib/pdfjs/pdfChecker';
 import { messageStore } from './messageStore.svelte';
 import { formatError } from '@/lib/utils/error';
 import { loadDocument, closeDocument } from '@/lib/api/rust_pdf';
+import { rpc, type DocumentInfo } from '@/lib/api/rpc';
+import { connectionStore } from './connectionStore.svelte';
 import { readFile } from '@tauri-apps/plugin-fs';
 import type { PDFDocumentProxy } from 'pdfjs-dist';
 
@@ -21,6 +23,8 @@ export class DocContext {
     pdfDoc = $state.raw<PDFDocumentProxy | null>(null);
     originalPageLabels = $state.raw<string[]>([]);
     originalRules = $state.raw<PageLabel[]>([]);
+    sidecarDocument = $state.raw<DocumentInfo | null>(null); // Handle in the Java sidecar, when connected
+    extractedToc = $state.raw<string[] | null>(null); // Last extracted TOC lines for the current file content
 
     constructor(path: string, doc: PDFDocumentProxy) {
         this.path = path;
@@ -39,6 +43,11 @@ export class DocContext {
         } catch (e) {
             console.warn("Failed to close document in Rust backend:", e);
         }
+        if (this.sidecarDocument) {
+            const document = this.sidecarDocument;
+            this.sidecarDocument = null;
+            rpc.closeDocument(document).catch(e => console.warn("Failed to close document in sidecar:", e));
+        }
     }
 }
 
@@ -93,15 +102,8 @@ class DocStore {
             const newContext = new DocContext(path, checkResult.doc);
             
             // 5. Load initial metadata
-            // Optimization: Use pdf-lib in frontend to parse originalRules instead of slow Rust lopdf
             console.time("5. Metadata:PageLabels");
-            const fileBytes = await readFile(path);
-            const originalRules = await pageLabelService.getRulesFromData(fileBytes);
-            console.log(originalRules);
-            const labels = await pageLabelService.simulateLabels(originalRules, newContext.pageCount) || [];
-            
-            newContext.originalPageLabels = labels;
-            newContext.originalRules = originalRules;
+            await this.loadPageLabels(newContext);
             console.timeEnd("5. Metadata:PageLabels");
 
             // 6. Activate context
@@ -109,13 +111,23 @@ class DocStore {
 
             // 7. Init side stores
             console.time("7. SideStores");
-            offsetStore.autoDetect(labels);
-            pageLabelStore.init(labels);
-            
-            // Set originalRules to store
-            pageLabelStore.setRules(originalRules, newContext.pageCount);
+            offsetStore.autoDetect(newContext.originalPageLabels);
+            this.initPageLabelStore(newContext);
             console.timeEnd("7. SideStores");
 
+            // 8. Open in the Java sidecar too (document first, then its outline session), without blocking the UI
+            if (connectionStore.connectionStatus === 'connected') {
+                rpc.openDocument(path, offsetStore.value)
+                    .then(({ document }) => {
+                        if (this.activeDoc === newContext) {
+                            newContext.sidecarDocument = document;
+                        } else {
+                            rpc.closeDocument(document).catch(() => {}); // Closed before the sidecar answered
+                        }
+                    })
+                    .catch(e => console.warn("Failed to open document in sidecar:", e));
+            }
+
             console.log(`Document opened: ${path}`);
 
         } catch (e: unknown) {
@@ -129,6 +141,57 @@ class DocStore {
         }
     }
 
+    /**
+     * Reloads the view of the active document after it changed on disk.
+     * Only pdf.js and the Rust session are reloaded: the sidecar handle and its outline session stay open,
+     * so the sidecar keeps the page models it reused by fingerprint. `toc` is the sidecar's re-extracted TOC, if any.
+     */
+    async reloadFile(path: string, toc: string[] | null = null) {
+        const context = this.activeDoc;
+        if (!context || context.path !== path) {
+            await this.openFile(path);
+            return;
+        }
+        try {
+            await loadDocument(path, 'MemoryBuffer'); // Replaces the existing Rust session
+            const checkResult = await checkPdf(path);
+            if (!checkResult.isValid || !checkResult.doc) {
+                messageStore.add(`Failed to reload PDF: ${checkResult.errorName || 'Unknown error'}`, "ERROR");
+                return;
+            }
+            if (this.activeDoc !== context) { // Switched to another file meanwhile
+                await checkResult.doc.destroy();
+                return;
+            }
+            const oldDoc = context.pdfDoc;
+            context.pdfDoc = checkResult.doc;
+            context.pageCount = checkResult.doc.numPages;
+            context.version = Date.now();
+            context.extractedToc = toc;
+            await oldDoc?.destroy();
+
+            await this.loadPageLabels(context);
+            this.initPageLabelStore(context);
+        } catch (e: unknown) {
+            console.error("DocStore: Failed to reload file", e);
+            messageStore.add("Failed to reload file: " + formatError(e), "ERROR");
+        }
+    }
+
+    // Optimization: Use pdf-lib in frontend to parse originalRules instead of slow Rust lopdf
+    private async loadPageLabels(context: DocContext) {
+        const fileBytes = await readFile(context.path);
+        const originalRules = await pageLabelService.getRulesFromData(fileBytes);
+        console.log(originalRules);
+        context.originalPageLabels = await pageLabelService.simulateLabels(originalRules, context.pageCount) || [];
+        context.originalRules = originalRules;
+    }
+
+    private initPageLabelStore(context: DocContext) {
+        pageLabelStore.init(context.originalPageLabels);
+        pageLabelStore.setRules(context.originalRules, context.pageCount);
+    }
+
     setCurrentFile(path: string | null) {
         if (!path) {
             this.reset();